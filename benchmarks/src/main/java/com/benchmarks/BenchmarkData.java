@@ -0,0 +1,68 @@
+package com.benchmarks;
+
+import com.models.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded fixtures shared by the benchmarks, so every run measures the same data.
+ */
+final class BenchmarkData {
+    static final long SEED = 42;
+    static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+
+    private BenchmarkData() {
+    }
+
+    static List<Port> ports(Random random, int count) {
+        List<Port> ports = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ports.add(new Port("p-" + i, "Port " + i, random.nextDouble() * 140 - 70,
+                    random.nextDouble() * 360 - 180, Integer.MAX_VALUE, random.nextBoolean()));
+        }
+        return ports;
+    }
+
+    static List<Container> containers(Random random, int count) {
+        Container.ContainerType[] types = Container.ContainerType.values();
+        List<Container> containers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // Light containers so large counts stay within int capacities
+            containers.add(new Container("c-" + i, 1 + random.nextInt(100), types[random.nextInt(types.length)]));
+        }
+        return containers;
+    }
+
+    static List<Vehicle> vehicles(Random random, List<Port> ports, int count) {
+        Truck.TruckType[] truckTypes = Truck.TruckType.values();
+        List<Vehicle> vehicles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Vehicle vehicle = random.nextBoolean()
+                    ? new Ship("sh-" + i, "Ship " + i, 1_000_000, Integer.MAX_VALUE)
+                    : new Truck("tr-" + i, "Truck " + i, 10_000, Integer.MAX_VALUE, truckTypes[random.nextInt(truckTypes.length)]);
+            Port port = ports.get(random.nextInt(ports.size()));
+            vehicle.setCurrentPort(port);
+            port.addVehicle(vehicle);
+            vehicles.add(vehicle);
+        }
+        return vehicles;
+    }
+
+    /**
+     * Completed trips spread evenly over about ten years, each lasting one to seven days.
+     */
+    static List<Trip> trips(Random random, List<Vehicle> vehicles, List<Port> ports, int count) {
+        List<Trip> trips = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Vehicle vehicle = vehicles.get(random.nextInt(vehicles.size()));
+            Port from = ports.get(random.nextInt(ports.size()));
+            Port to = ports.get(random.nextInt(ports.size()));
+            LocalDate departure = FIRST_DAY.plusDays(random.nextInt(3650));
+            trips.add(new Trip(vehicle, departure, departure.plusDays(1 + random.nextInt(7)), from, to,
+                    Trip.TripStatus.COMPLETED));
+        }
+        return trips;
+    }
+}
@@ -0,0 +1,117 @@
+package com.benchmarks;
+
+import com.models.*;
+import com.utils.DataStore;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Encoding and decoding {@code size} containers and trips in memory: default Java serialization of each
+ * list, as written by {@code FileHandler.saveData}, versus the {@link DataStore} binary codec.
+ * The encoded sizes are printed once per trial, and setup checks that the codec round-trips the data.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xss16m")
+@State(Scope.Benchmark)
+public class CodecBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private List<Port> ports;
+    private List<Vehicle> vehicles;
+    private List<Container> containers;
+    private List<Trip> trips;
+    private byte[][] serialized;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(BenchmarkData.SEED);
+        ports = BenchmarkData.ports(random, 100);
+        vehicles = BenchmarkData.vehicles(random, ports, 200);
+        containers = BenchmarkData.containers(random, size);
+        for (int i = 0; i < containers.size(); i++) {
+            ports.get(i % ports.size()).addContainer(containers.get(i));
+        }
+        trips = BenchmarkData.trips(random, vehicles, ports, size);
+
+        serialized = serialize();
+        encoded = encode();
+        long serializedSize = 0;
+        for (byte[] bytes : serialized) {
+            serializedSize += bytes.length;
+        }
+        System.out.printf("%nsize=%d: serialization %d bytes, codec %d bytes (%.1f%%)%n",
+                size, serializedSize, encoded.length, 100.0 * encoded.length / serializedSize);
+
+        DataStore decoded = decode();
+        if (decoded.getContainers().size() != containers.size() || decoded.getTrips().size() != trips.size()) {
+            throw new IllegalStateException("Codec round trip lost entities");
+        }
+        for (int i = 0; i < trips.size(); i++) {
+            Trip expected = trips.get(i);
+            Trip actual = decoded.getTrips().get(i);
+            if (!expected.getDepartureDate().equals(actual.getDepartureDate())
+                    || !expected.getArrivalDate().equals(actual.getArrivalDate())
+                    || expected.getStatus() != actual.getStatus()
+                    || !expected.getVehicle().getId().equals(actual.getVehicle().getId())
+                    || !expected.getArrivalPort().getId().equals(actual.getArrivalPort().getId())) {
+                throw new IllegalStateException("Codec round trip changed trip " + i);
+            }
+        }
+        for (int i = 0; i < containers.size(); i++) {
+            Container expected = containers.get(i);
+            Container actual = decoded.getContainers().get(i);
+            if (!expected.getId().equals(actual.getId()) || expected.getWeight() != actual.getWeight()
+                    || expected.getType() != actual.getType()) {
+                throw new IllegalStateException("Codec round trip changed container " + i);
+            }
+        }
+    }
+
+    @Benchmark
+    public byte[][] serialize() throws IOException {
+        return new byte[][]{serialize(ports), serialize(vehicles), serialize(containers), serialize(trips)};
+    }
+
+    @Benchmark
+    public int deserialize() throws IOException, ClassNotFoundException {
+        int count = 0;
+        for (byte[] bytes : serialized) {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                count += ((List<?>) in.readObject()).size();
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            new DataStore(new ArrayList<>(), ports, vehicles, containers, trips).writeTo(new DataStore.Writer(out));
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public DataStore decode() throws IOException {
+        return DataStore.read(new DataInputStream(new ByteArrayInputStream(encoded)));
+    }
+
+    private static byte[] serialize(List<?> list) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(list);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,66 @@
+package com.benchmarks;
+
+import com.models.DistanceMatrix;
+import com.models.Port;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Distance between random pairs out of {@code size} ports, with and without the distance matrix.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DistanceBenchmark {
+
+    // The matrix holds size^2 / 2 doubles, so stop at a size that fits a default heap
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    private static final int PAIRS = 1024;
+
+    private Port[] from;
+    private Port[] to;
+    private Port[] cachedFrom;
+    private Port[] cachedTo;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(BenchmarkData.SEED);
+        List<Port> plain = BenchmarkData.ports(new Random(BenchmarkData.SEED), size);
+        List<Port> cached = BenchmarkData.ports(new Random(BenchmarkData.SEED), size);
+        DistanceMatrix matrix = new DistanceMatrix();
+        cached.forEach(matrix::register);
+
+        from = new Port[PAIRS];
+        to = new Port[PAIRS];
+        cachedFrom = new Port[PAIRS];
+        cachedTo = new Port[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            int a = random.nextInt(size);
+            int b = random.nextInt(size);
+            from[i] = plain.get(a);
+            to[i] = plain.get(b);
+            cachedFrom[i] = cached.get(a);
+            cachedTo[i] = cached.get(b);
+        }
+    }
+
+    @Benchmark
+    public double calculateDistance() {
+        int i = next++ & (PAIRS - 1);
+        return from[i].calculateDistance(to[i]);
+    }
+
+    @Benchmark
+    public double calculateDistanceCached() {
+        int i = next++ & (PAIRS - 1);
+        return cachedFrom[i].calculateDistance(cachedTo[i]);
+    }
+}
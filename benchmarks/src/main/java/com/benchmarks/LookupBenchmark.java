@@ -0,0 +1,53 @@
+package com.benchmarks;
+
+import com.models.Container;
+import com.utils.EntityRegistry;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Finding a container by ID among {@code size}: linear stream search versus the ID registry.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private static final int KEYS = 1024;
+
+    private List<Container> list;
+    private EntityRegistry<Container> registry;
+    private String[] keys;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(BenchmarkData.SEED);
+        list = BenchmarkData.containers(random, size);
+        registry = new EntityRegistry<>("Container", Container::getId);
+        list.forEach(registry::add);
+        keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = list.get(random.nextInt(size)).getId();
+        }
+    }
+
+    @Benchmark
+    public Container streamFilter() {
+        String id = keys[next++ & (KEYS - 1)];
+        return list.stream().filter(c -> c.getId().equals(id)).findFirst().orElse(null);
+    }
+
+    @Benchmark
+    public Container registryGet() {
+        return registry.get(keys[next++ & (KEYS - 1)]);
+    }
+}
@@ -0,0 +1,31 @@
+package com.benchmarks;
+
+import com.utils.Metrics;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost of recording into the operation metrics: a timed operation (two clock reads and the histogram
+ * update) and a counted one. Run with {@code -t 4} to see the cost under concurrent sessions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    private final Metrics.Operation timer = Metrics.timer("benchmark.timer");
+    private final Metrics.Operation counter = Metrics.counter("benchmark.counter");
+
+    @Benchmark
+    public void timed() {
+        timer.record(timer.start());
+    }
+
+    @Benchmark
+    public void counted() {
+        counter.increment();
+    }
+}
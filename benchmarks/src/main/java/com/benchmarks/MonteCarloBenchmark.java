@@ -0,0 +1,57 @@
+package com.benchmarks;
+
+import com.models.Container;
+import com.models.Port;
+import com.models.Vehicle;
+import com.utils.DataStore;
+import com.utils.MonteCarlo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Thirty-two seven-day scenarios of 20 ports and 200 vehicles, run on 1 to 8 threads. On a machine with
+ * at least 8 cores the time per run should fall close to linearly with the thread count.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MonteCarloBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private static final int PORTS = 20;
+    private static final int VEHICLES = 200;
+    private static final int SCENARIOS = 32;
+    private static final int DAYS = 7;
+    private static final int STORING_CAPACITY = 50_000_000;
+    private static final String PORT_ID = "p-0";
+
+    private MonteCarlo monteCarlo;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(BenchmarkData.SEED);
+        List<Port> ports = BenchmarkData.ports(random, PORTS);
+        ports.forEach(port -> port.setStoringCapacity(STORING_CAPACITY));
+        List<Vehicle> vehicles = BenchmarkData.vehicles(random, ports, VEHICLES);
+        List<Container> containers = new ArrayList<>();
+        ports.forEach(port -> containers.addAll(port.getContainerView()));
+        vehicles.forEach(vehicle -> containers.addAll(vehicle.getContainers()));
+        byte[] world = new DataStore(new ArrayList<>(), ports, vehicles, containers, new ArrayList<>()).encode();
+        monteCarlo = new MonteCarlo(world, BenchmarkData.FIRST_DAY);
+        monteCarlo.setDays(DAYS);
+        monteCarlo.setParallelism(parallelism);
+    }
+
+    @Benchmark
+    public MonteCarlo.Outcome run() {
+        return monteCarlo.run(SCENARIOS, BenchmarkData.SEED, PORT_ID, 0.8);
+    }
+}
@@ -0,0 +1,74 @@
+package com.benchmarks;
+
+import com.models.*;
+import com.utils.DataStore;
+import com.utils.FileHandler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Saving and loading {@code size} containers and trips: per-list serialization versus the unified store.
+ * Files are written to data/ under the benchmark working directory.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xss16m")
+@State(Scope.Benchmark)
+public class PersistenceBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private List<Port> ports;
+    private List<Vehicle> vehicles;
+    private List<Container> containers;
+    private List<Trip> trips;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(BenchmarkData.SEED);
+        ports = BenchmarkData.ports(random, 100);
+        vehicles = BenchmarkData.vehicles(random, ports, 200);
+        containers = BenchmarkData.containers(random, size);
+        for (int i = 0; i < containers.size(); i++) {
+            ports.get(i % ports.size()).addContainer(containers.get(i));
+        }
+        trips = BenchmarkData.trips(random, vehicles, ports, size);
+        saveFiles();
+        FileHandler.saveStore(store());
+    }
+
+    @Benchmark
+    public void saveFiles() {
+        FileHandler.savePorts(ports);
+        FileHandler.saveVehicles(vehicles);
+        FileHandler.saveContainers(containers);
+        FileHandler.saveTrips(trips);
+    }
+
+    @Benchmark
+    public int loadFiles() {
+        return FileHandler.loadPorts().size() + FileHandler.loadVehicles().size()
+                + FileHandler.loadContainers().size() + FileHandler.loadTrips().size();
+    }
+
+    @Benchmark
+    public boolean saveStore() {
+        return FileHandler.saveStore(store());
+    }
+
+    @Benchmark
+    public int loadStore() {
+        DataStore store = FileHandler.loadStore();
+        return store.getContainers().size() + store.getTrips().size();
+    }
+
+    private DataStore store() {
+        return new DataStore(new ArrayList<>(), ports, vehicles, containers, trips);
+    }
+}
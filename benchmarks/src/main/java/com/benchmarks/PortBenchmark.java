@@ -0,0 +1,56 @@
+package com.benchmarks;
+
+import com.models.Container;
+import com.models.Port;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Adding and removing containers on a port that already holds {@code size} containers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PortBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private Port port;
+    private List<Container> containers;
+    private Container extra;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(BenchmarkData.SEED);
+        port = BenchmarkData.ports(random, 1).get(0);
+        containers = BenchmarkData.containers(random, size);
+        containers.forEach(port::addContainer);
+        extra = new Container("c-extra", 50, Container.ContainerType.DRY_STORAGE);
+    }
+
+    @Benchmark
+    public int addAndRemoveContainer() {
+        port.addContainer(extra);
+        int count = port.getContainerCount();
+        // Undo so the port keeps the same size between invocations
+        port.removeContainer(extra);
+        return count;
+    }
+
+    @Benchmark
+    public int removeAndReAddContainer() {
+        // Rotate through the stored containers so removals hit every position
+        Container container = containers.get(next);
+        next = (next + 1) % containers.size();
+        port.removeContainer(container);
+        port.addContainer(container);
+        return port.getContainerCount();
+    }
+}
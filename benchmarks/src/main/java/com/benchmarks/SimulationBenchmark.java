@@ -0,0 +1,50 @@
+package com.benchmarks;
+
+import com.models.Port;
+import com.models.Vehicle;
+import com.utils.Simulation;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Thirty simulated days of traffic between {@code size / 10} ports served by {@code size} vehicles.
+ * Each invocation simulates a fresh world; the number of events per run is printed once per fork.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimulationBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    private static final int DAYS = 30;
+    private static final int STORING_CAPACITY = 50_000_000;
+
+    private Simulation simulation;
+    private boolean reported;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        Random random = new Random(BenchmarkData.SEED);
+        List<Port> ports = BenchmarkData.ports(random, Math.max(10, size / 10));
+        ports.forEach(port -> port.setStoringCapacity(STORING_CAPACITY));
+        List<Vehicle> vehicles = BenchmarkData.vehicles(random, ports, size);
+        simulation = new Simulation(ports, vehicles, BenchmarkData.FIRST_DAY, BenchmarkData.SEED);
+    }
+
+    @Benchmark
+    public long simulate() {
+        Simulation.Result result = simulation.run(DAYS);
+        if (!reported) {
+            System.out.println(result.getEvents() + " events per run");
+            reported = true;
+        }
+        return result.getEvents();
+    }
+}
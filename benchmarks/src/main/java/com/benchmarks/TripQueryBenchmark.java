@@ -0,0 +1,75 @@
+package com.benchmarks;
+
+import com.models.Port;
+import com.models.Trip;
+import com.models.Vehicle;
+import com.utils.TripIndex;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Trip date queries over {@code size} trips: full scan versus the epoch-day index.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TripQueryBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private List<Trip> trips;
+    private TripIndex index;
+    private LocalDate day;
+    private LocalDate weekEnd;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(BenchmarkData.SEED);
+        List<Port> ports = BenchmarkData.ports(random, 100);
+        List<Vehicle> vehicles = BenchmarkData.vehicles(random, ports, 200);
+        trips = BenchmarkData.trips(random, vehicles, ports, size);
+        index = new TripIndex();
+        index.rebuild(trips);
+        day = BenchmarkData.FIRST_DAY.plusDays(1825);
+        weekEnd = day.plusDays(7);
+    }
+
+    @Benchmark
+    public List<Trip> onDateScan() {
+        return trips.stream()
+                .filter(trip -> trip.getDepartureDate().equals(day) ||
+                                (trip.getArrivalDate() != null && trip.getArrivalDate().equals(day)))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Trip> onDateIndexed() {
+        return index.onDate(day);
+    }
+
+    @Benchmark
+    public List<Trip> betweenScan() {
+        return trips.stream()
+                .filter(trip -> !trip.getDepartureDate().isBefore(day) && !trip.getDepartureDate().isAfter(weekEnd) &&
+                                (trip.getArrivalDate() == null || !trip.getArrivalDate().isAfter(weekEnd)))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Trip> betweenIndexed() {
+        return index.between(day, weekEnd);
+    }
+
+    @Benchmark
+    public List<Trip> inProgressIndexed() {
+        return index.inProgressDuring(day, weekEnd);
+    }
+}
@@ -0,0 +1,60 @@
+package com.benchmarks;
+
+import com.models.*;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Fuel estimation for a ship and a basic truck each carrying {@code size} containers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VehicleBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private Ship ship;
+    private Truck truck;
+    private Port destination;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(BenchmarkData.SEED);
+        List<Port> ports = BenchmarkData.ports(random, 2);
+        ship = new Ship("sh-1", "Ship", Double.MAX_VALUE, Integer.MAX_VALUE);
+        truck = new Truck("tr-1", "Truck", Double.MAX_VALUE, Integer.MAX_VALUE, Truck.TruckType.BASIC);
+        ship.setCurrentPort(ports.get(0));
+        truck.setCurrentPort(ports.get(0));
+        destination = ports.get(1);
+        for (Container container : BenchmarkData.containers(random, size)) {
+            ship.addContainer(container);
+            if (container.getType() == Container.ContainerType.DRY_STORAGE
+                    || container.getType() == Container.ContainerType.OPEN_TOP
+                    || container.getType() == Container.ContainerType.OPEN_SIDE) {
+                truck.addContainer(container);
+            }
+        }
+    }
+
+    @Benchmark
+    public double shipRequiredFuel() {
+        return ship.calculateRequiredFuel(destination);
+    }
+
+    @Benchmark
+    public double truckRequiredFuel() {
+        return truck.calculateRequiredFuel(destination);
+    }
+
+    @Benchmark
+    public boolean shipCanMove() {
+        return ship.canMove(destination);
+    }
+}
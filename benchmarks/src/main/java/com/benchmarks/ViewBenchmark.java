@@ -0,0 +1,117 @@
+package com.benchmarks;
+
+import com.models.Container;
+import com.models.Port;
+import com.models.Trip;
+import com.models.Vehicle;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Reading the containers and traffic of a port that holds {@code size} containers and trips: the copying
+ * getters versus the read-only views, {@code forEach} and lookup by ID. Run with {@code -prof gc} to compare
+ * the allocation rate ({@code gc.alloc.rate.norm} is bytes per operation).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ViewBenchmark {
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private Port port;
+    private String middleId;
+    private double total;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(BenchmarkData.SEED);
+        List<Port> ports = BenchmarkData.ports(random, 2);
+        port = ports.get(0);
+        port.setStoringCapacity(Integer.MAX_VALUE);
+        List<Container> containers = BenchmarkData.containers(random, size);
+        containers.forEach(port::addContainer);
+        middleId = containers.get(size / 2).getId();
+
+        Vehicle vehicle = BenchmarkData.vehicles(random, ports, 1).get(0);
+        port.setTrafficWindow(size);
+        for (int i = 0; i < size; i++) {
+            Trip trip = new Trip(vehicle, BenchmarkData.FIRST_DAY.plusDays(i), port, ports.get(1));
+            port.addTrip(trip);
+            if (i % 2 == 0) {
+                port.completeTrip(trip);
+            }
+        }
+    }
+
+    @Benchmark
+    public double copyContainers() {
+        double weight = 0;
+        for (Container container : port.getContainers()) {
+            weight += container.getWeight();
+        }
+        return weight;
+    }
+
+    @Benchmark
+    public double viewContainers() {
+        List<Container> view = port.getContainerView();
+        double weight = 0;
+        for (int i = 0, n = view.size(); i < n; i++) {
+            weight += view.get(i).getWeight();
+        }
+        return weight;
+    }
+
+    @Benchmark
+    public double forEachContainer() {
+        total = 0;
+        port.forEachContainer(container -> total += container.getWeight());
+        return total;
+    }
+
+    @Benchmark
+    public Container findContainerInCopy() {
+        return port.getContainers().stream()
+                .filter(container -> container.getId().equals(middleId))
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Benchmark
+    public Container findContainer() {
+        return port.findContainer(middleId);
+    }
+
+    @Benchmark
+    public int copyTraffic() {
+        int count = 0;
+        for (Trip trip : port.getCurrentTraffic()) {
+            count += trip.getStatus().ordinal();
+        }
+        for (Trip trip : port.getPastTraffic()) {
+            count += trip.getStatus().ordinal();
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int viewTraffic() {
+        List<Trip> current = port.getCurrentTrafficView();
+        List<Trip> past = port.getPastTrafficView();
+        int count = 0;
+        for (int i = 0, n = current.size(); i < n; i++) {
+            count += current.get(i).getStatus().ordinal();
+        }
+        for (int i = 0, n = past.size(); i < n; i++) {
+            count += past.get(i).getStatus().ordinal();
+        }
+        return count;
+    }
+}
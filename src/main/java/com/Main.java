@@ -1,5 +1,10 @@
 package com;
 
+import com.utils.BatchReport;
+import com.utils.BatchScript;
+import java.io.IOException;
+import java.nio.file.Paths;
+
 /**
  * Main class for the Port Management System.
  * This class initializes and starts the system.
@@ -9,8 +14,10 @@ public class Main {
     /**
      * Main method - entry point of the application.
      * Creates a PortManagementSystem object, populates it with sample data, and starts the system.
+     * With {@code --server [port]} the system is served to concurrent sessions over TCP instead of the console,
+     * and with {@code --batch file} the commands in the file are run as one batch without any prompts.
      *
-     * @param args Command line arguments (not used in this application).
+     * @param args Command line arguments: optionally {@code --server} and a TCP port, or {@code --batch} and a file.
      */
     public static void main(String[] args) {
         // Create an instance of the PortManagementSystem
@@ -19,6 +26,29 @@ public class Main {
         // Populate the system with sample data (ships, containers, etc.)
         system.createSampleData();
 
+        if (args.length > 1 && args[0].equals("--batch")) {
+            try {
+                BatchReport report = system.runBatch(BatchScript.read(Paths.get(args[1])));
+                report.print(System.out);
+            } catch (IOException e) {
+                System.err.println("Error reading batch file " + args[1] + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : PortServer.DEFAULT_PORT;
+            try (PortServer server = new PortServer(system, port)) {
+                System.out.println("Serving the Port Management System on localhost:" + server.getPort());
+                server.serve();
+            } catch (IOException e) {
+                System.err.println("Error starting the server: " + e.getMessage());
+                e.printStackTrace();
+            }
+            return;
+        }
+
         // Start the port management system (e.g., begin processing operations)
         system.start();
     }
@@ -2,119 +2,716 @@ package com;
 
 import com.models.*;
 import com.users.*;
+import com.utils.BatchReport;
+import com.utils.BatchScript;
+import com.utils.DataStore;
+import com.utils.EntityRegistry;
 import com.utils.FileHandler;
+import com.utils.Journal;
+import com.utils.FuelRollup;
+import com.utils.TripIndex;
+import com.utils.JournalEntry;
+import com.utils.LoadPlanner;
+import com.utils.LoadReport;
+import com.utils.Metrics;
+import com.utils.MonteCarlo;
+import com.utils.PortLocks;
+import com.utils.RoutePlanner;
+import com.utils.Simulation;
+import com.utils.TrafficArchive;
+import com.utils.TripLog;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.*;
+import java.time.DateTimeException;
 import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * The main class for the Port Management System.
  * Handles user interaction, data management, and system operations.
+ *
+ * <p>Several sessions can use the system at once, each on its own thread (see {@link #run(Session)}).
+ * Operations read their input first and then apply it under the {@link PortLocks}: changes confined to one
+ * port hold that port's lock, reads of data that only changes exclusively hold the shared lock, and
+ * everything else holds the exclusive lock. Containers added under a port lock also enter the container
+ * registry, so the registry and the container store are additionally guarded by the registry's monitor
+ * whenever they are touched without the exclusive lock.</p>
  */
 public class PortManagementSystem {
 
-    // Lists to store system data
-    private List<User> users;
-    private List<Port> ports;
-    private List<Vehicle> vehicles;
-    private List<Container> containers;
-    private List<Trip> trips;
+    // Threads used to read the data files on startup: the journal, the traffic archive and up to five legacy files
+    private static final int LOAD_THREADS = 7;
 
-    // The currently logged-in user
-    private User currentUser;
+    // Number of completed trips each port keeps in memory before older ones move to the archive
+    private static final int TRAFFIC_WINDOW = Integer.getInteger("pms.traffic.window", Port.DEFAULT_TRAFFIC_WINDOW);
 
-    // Scanner for user input
-    private Scanner scanner;
+    // Number of journal records after which a full snapshot is written
+    private static final int SNAPSHOT_INTERVAL = Integer.getInteger("pms.snapshot.interval", 1000);
+
+    // Registries of system data indexed by ID (users by username)
+    private final EntityRegistry<User> users = new EntityRegistry<>("User", User::getUsername);
+    private final EntityRegistry<Port> ports = new EntityRegistry<>("Port", Port::getId);
+    private final EntityRegistry<Vehicle> vehicles = new EntityRegistry<>("Vehicle", Vehicle::getId);
+    private final EntityRegistry<Container> containers = new EntityRegistry<>("Container", Container::getId);
+
+    // Total weight of the registered containers by type, kept up to date as they are added, removed and modified
+    private final double[] containerWeights = new double[Container.ContainerType.values().length];
+
+    // Cached distances between the registered ports
+    private final DistanceMatrix distances = new DistanceMatrix();
+    // Route planner over a snapshot of the ports, or null after ports changed until the next route is planned
+    private volatile RoutePlanner routes;
+
+    // Every trip, for the snapshot; the trip reports read the trip log instead
+    private final List<Trip> trips = new ArrayList<>();
+    // Columnar copy of the trips as of the last snapshot, or null if it couldn't be written or opened
+    private TripLog tripLog;
+    // Trips added since the trip log was written (all trips without a log), indexed by departure and arrival day
+    private final TripIndex unloggedTrips = new TripIndex();
+    // Fuel used by completed trips per day, kept up to date as trips complete
+    private final FuelRollup fuelRollup = new FuelRollup();
+
+    // Number of port locks; ports whose IDs hash to the same stripe share one
+    private static final int LOCK_STRIPES = 64;
+
+    // Locks that let sessions at different ports work concurrently
+    private final PortLocks locks = new PortLocks(LOCK_STRIPES);
+
+    // The session (input, output and logged-in user) of each thread; the console unless a server thread set one
+    private final Session console = new Session(System.in, System.out);
+    private final ThreadLocal<Session> sessions = ThreadLocal.withInitial(() -> console);
+
+    // Write-ahead journal recording each mutation since the last snapshot
+    private Journal journal;
+
+    // On-disk archive of trips that dropped out of the ports' recent traffic
+    private TrafficArchive archive;
+
+    // Set while the journal is replayed: the trips that replay pushes out of traffic were archived when the
+    // journaled changes were first made, so they aren't archived again
+    private boolean replaying;
 
     /**
      * Constructor for the PortManagementSystem.
-     * Initializes data lists and loads data from files.
+     * Initializes data, loads the last snapshot from files and replays the journal on top of it.
      */
     public PortManagementSystem() {
-        users = new ArrayList<>();
-        ports = new ArrayList<>();
-        vehicles = new ArrayList<>();
-        containers = new ArrayList<>();
-        trips = new ArrayList<>();
-        scanner = new Scanner(System.in);
+        ports.addListener(new EntityRegistry.Listener<Port>() {
+            @Override
+            public void added(Port port) {
+                distances.register(port);
+                routes = null;
+                port.setTrafficEvictionListener(PortManagementSystem.this::archiveEvicted);
+                port.setTrafficWindow(TRAFFIC_WINDOW);
+            }
+
+            @Override
+            public void removed(Port port) {
+                distances.unregister(port);
+                routes = null;
+                port.setTrafficEvictionListener(null);
+            }
+        });
+        vehicles.addListener(new EntityRegistry.Listener<Vehicle>() {
+            @Override
+            public void added(Vehicle vehicle) {
+            }
+
+            @Override
+            public void removed(Vehicle vehicle) {
+                // A removed vehicle no longer occupies its port
+                Port port = vehicle.getCurrentPort();
+                if (port != null) {
+                    port.removeVehicle(vehicle);
+                }
+            }
+        });
+        containers.addListener(new EntityRegistry.Listener<Container>() {
+            @Override
+            public void added(Container container) {
+                containerWeights[container.getType().ordinal()] += container.getWeight();
+            }
+
+            @Override
+            public void removed(Container container) {
+                containerWeights[container.getType().ordinal()] -= container.getWeight();
+                // A removed container no longer takes up space where it was
+                Port port = container.getStoringPort();
+                if (port != null) {
+                    port.removeContainer(container);
+                }
+                Vehicle vehicle = container.getCarryingVehicle();
+                if (vehicle != null) {
+                    vehicle.removeContainer(container);
+                }
+            }
+        });
         loadData(); // Load data from files on startup
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            journal.close();
+            archive.close();
+        }));
     }
 
     /**
-     * Loads data from files using the FileHandler.
+     * Loads the snapshot from files using the FileHandler, then replays journaled changes made after it.
+     * Falls back to the legacy per-list files if no unified store exists yet.
+     * The files, the journal and the traffic archive are read concurrently; a per-file load-time breakdown
+     * is printed at the end.
+     * Rebuilds the ID registries from the loaded data.
      * Creates a default SystemAdmin if no users exist.
      */
     private void loadData() {
-        users = FileHandler.loadUsers();
-        ports = FileHandler.loadPorts();
-        vehicles = FileHandler.loadVehicles();
-        containers = FileHandler.loadContainers();
-        trips = FileHandler.loadTrips();
+        LoadReport report = new LoadReport();
+        ExecutorService executor = Executors.newFixedThreadPool(LOAD_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "data-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        DataStore store;
+        try {
+            Journal.SyncPolicy syncPolicy = Journal.SyncPolicy.valueOf(
+                    System.getProperty("pms.journal.sync", "INTERVAL").toUpperCase());
+            CompletableFuture<Journal> openedJournal = CompletableFuture.supplyAsync(() -> report.time(
+                    FileHandler.JOURNAL_FILE,
+                    () -> new Journal(FileHandler.JOURNAL_FILE, syncPolicy, Integer.getInteger("pms.journal.syncInterval", 32))),
+                    executor);
+            CompletableFuture<TrafficArchive> openedArchive = CompletableFuture.supplyAsync(() -> report.time(
+                    FileHandler.ARCHIVE_FILE, () -> new TrafficArchive(FileHandler.ARCHIVE_FILE)), executor);
+            store = FileHandler.loadAll(executor, report);
+            journal = openedJournal.join();
+            archive = openedArchive.join();
+        } finally {
+            executor.shutdown();
+        }
+
+        long archived = archive.size();
+        users.rebuild(store.getUsers());
+        ports.rebuild(store.getPorts());
+        vehicles.rebuild(store.getVehicles());
+        containers.rebuild(store.getContainers());
+        trips.clear();
+        trips.addAll(store.getTrips());
+        fuelRollup.rebuild(store.getTrips(), store.getMoveFuels());
 
         // Create a default admin user if no users are loaded
         if (users.isEmpty()) {
             users.add(new SystemAdmin("admin", "admin123"));
         }
+
+        replaying = true;
+        try {
+            journal.replay(entry -> {
+                try {
+                    applyEntry(entry);
+                } catch (RuntimeException e) {
+                    System.err.println("Skipping journal entry " + entry + ": " + e.getMessage());
+                }
+            });
+        } finally {
+            replaying = false;
+        }
+        // Trips pushed out of a smaller traffic window are archived now; snapshot so they aren't archived again next time
+        if (archive.size() > archived) {
+            saveData();
+        } else {
+            openTripLog();
+        }
+        report.finish();
+        report.print();
+    }
+
+    /**
+     * Archives a trip that dropped out of a port's recent traffic, unless it is being dropped again by the
+     * journal replay.
+     */
+    private void archiveEvicted(Port port, Trip trip) {
+        if (!replaying) {
+            archive.append(port, trip);
+        }
     }
 
     /**
-     * Saves data to files using the FileHandler.
+     * Writes a full snapshot of all data to the unified store using the FileHandler and checkpoints the journal.
+     * The columnar trip log is rewritten along with it.
      */
     private void saveData() {
-        FileHandler.saveUsers(users);
-        FileHandler.savePorts(ports);
-        FileHandler.saveVehicles(vehicles);
-        FileHandler.saveContainers(containers);
-        FileHandler.saveTrips(trips);
+        // Only drop journaled records and archived trips once the snapshot that covers them is safely written
+        archive.sync();
+        DataStore store = new DataStore(new ArrayList<>(users.values()), new ArrayList<>(ports.values()),
+                new ArrayList<>(vehicles.values()), new ArrayList<>(containers.values()), new ArrayList<>(trips),
+                fuelRollup.getMoveFuels());
+        if (FileHandler.saveStore(store)) {
+            journal.checkpoint();
+            saveTripLog();
+        }
+    }
+
+    /**
+     * Opens the trip log written with the loaded snapshot, rewriting it if it is missing or holds a different
+     * number of trips (e.g. after a crash between writing the store and the log).
+     */
+    private void openTripLog() {
+        tripLog = TripLog.open(FileHandler.TRIP_LOG_FILE);
+        if (tripLog == null || tripLog.size() != trips.size()) {
+            saveTripLog();
+        } else {
+            unloggedTrips.rebuild(List.of());
+        }
+    }
+
+    /**
+     * Writes the trip history to the columnar trip log and reopens it, so the date-range reports and
+     * {@code tripReport} scan mapped columns instead of trip objects.
+     */
+    private void saveTripLog() {
+        if (tripLog != null) {
+            try {
+                tripLog.close();
+            } catch (IOException e) {
+                System.err.println("Error closing trip log: " + e.getMessage());
+            }
+        }
+        tripLog = TripLog.write(FileHandler.TRIP_LOG_FILE, trips, Trip::getFuelUsed)
+                ? TripLog.open(FileHandler.TRIP_LOG_FILE) : null;
+        // Without a log the reports fall back to indexing every trip
+        unloggedTrips.rebuild(tripLog == null ? trips : List.of());
+    }
+
+    /**
+     * Appends a mutation that has just been applied to the journal.
+     *
+     * @param operation The mutation performed.
+     * @param args      The arguments needed to replay it.
+     */
+    private void record(JournalEntry.Operation operation, String... args) {
+        journal.append(operation, args);
+    }
+
+    /**
+     * Writes a new snapshot once enough records have accumulated, so replay on startup stays short.
+     * Called between operations, since a snapshot needs the exclusive lock.
+     */
+    private void snapshotIfDue() {
+        if (journal.getRecordCount() >= SNAPSHOT_INTERVAL) {
+            try (PortLocks.Held held = locks.exclusive()) {
+                if (journal.getRecordCount() >= SNAPSHOT_INTERVAL) {
+                    saveData();
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-applies a journaled mutation to the in-memory data during startup.
+     *
+     * @param entry The journal entry to apply.
+     */
+    private void applyEntry(JournalEntry entry) {
+        switch (entry.getOperation()) {
+            case ADD_MANAGER: {
+                Port port = ports.get(entry.getArg(2));
+                if (port != null) {
+                    users.add(new PortManager(entry.getArg(0), entry.getArg(1), port));
+                }
+                break;
+            }
+            case REMOVE_MANAGER:
+                if (users.get(entry.getArg(0)) instanceof PortManager) {
+                    users.remove(entry.getArg(0));
+                }
+                break;
+            case MODIFY_USER: {
+                User user = users.get(entry.getArg(0));
+                if (user != null && !entry.getArg(1).isEmpty()) {
+                    user.setPassword(entry.getArg(1));
+                }
+                Port port = ports.get(entry.getArg(2));
+                if (user instanceof PortManager && port != null) {
+                    ((PortManager) user).setManagedPort(port);
+                }
+                break;
+            }
+            case ADD_VEHICLE: {
+                String id = entry.getArg(1);
+                String name = entry.getArg(2);
+                double fuelCapacity = Double.parseDouble(entry.getArg(3));
+                int carryingCapacity = Integer.parseInt(entry.getArg(4));
+                if (entry.getArg(0).equals("ship")) {
+                    vehicles.add(new Ship(id, name, fuelCapacity, carryingCapacity));
+                } else {
+                    vehicles.add(new Truck(id, name, fuelCapacity, carryingCapacity,
+                            Truck.TruckType.valueOf(entry.getArg(5))));
+                }
+                break;
+            }
+            case REMOVE_VEHICLE:
+                vehicles.remove(entry.getArg(0));
+                break;
+            case MODIFY_VEHICLE: {
+                Vehicle vehicle = vehicles.get(entry.getArg(0));
+                if (vehicle != null) {
+                    vehicle.setName(entry.getArg(1));
+                    vehicle.setFuelCapacity(Double.parseDouble(entry.getArg(2)));
+                    vehicle.setCarryingCapacity(Integer.parseInt(entry.getArg(3)));
+                    if (vehicle instanceof Truck) {
+                        ((Truck) vehicle).setType(Truck.TruckType.valueOf(entry.getArg(4)));
+                    }
+                }
+                break;
+            }
+            case ADD_PORT:
+                ports.add(new Port(entry.getArg(0), entry.getArg(1),
+                        Double.parseDouble(entry.getArg(2)), Double.parseDouble(entry.getArg(3)),
+                        Integer.parseInt(entry.getArg(4)), Boolean.parseBoolean(entry.getArg(5))));
+                break;
+            case REMOVE_PORT:
+                ports.remove(entry.getArg(0));
+                break;
+            case MODIFY_PORT: {
+                Port port = ports.get(entry.getArg(0));
+                if (port != null) {
+                    port.setName(entry.getArg(1));
+                    port.setLatitude(Double.parseDouble(entry.getArg(2)));
+                    port.setLongitude(Double.parseDouble(entry.getArg(3)));
+                    port.setStoringCapacity(Integer.parseInt(entry.getArg(4)));
+                    port.setLandingAbility(Boolean.parseBoolean(entry.getArg(5)));
+                    routes = null;
+                }
+                break;
+            }
+            case ADD_CONTAINER: {
+                Container container = new Container(entry.getArg(0), Double.parseDouble(entry.getArg(1)),
+                        Container.ContainerType.valueOf(entry.getArg(2)));
+                containers.add(container);
+                Port port = ports.get(entry.getArg(3));
+                if (port != null) {
+                    port.addContainer(container);
+                }
+                break;
+            }
+            case REMOVE_CONTAINER: {
+                Container container = containers.get(entry.getArg(0));
+                if (container != null) {
+                    containers.remove(container.getId());
+                    Port port = ports.get(entry.getArg(1));
+                    if (port != null) {
+                        port.removeContainer(container);
+                    }
+                }
+                break;
+            }
+            case MODIFY_CONTAINER: {
+                Container container = containers.get(entry.getArg(0));
+                if (container != null) {
+                    containerWeights[container.getType().ordinal()] -= container.getWeight();
+                    container.setWeight(Double.parseDouble(entry.getArg(1)));
+                    container.setType(Container.ContainerType.valueOf(entry.getArg(2)));
+                    containerWeights[container.getType().ordinal()] += container.getWeight();
+                }
+                break;
+            }
+            case LOAD_CONTAINER: {
+                Vehicle vehicle = vehicles.get(entry.getArg(0));
+                Container container = containers.get(entry.getArg(1));
+                if (vehicle != null && container != null) {
+                    vehicle.addContainer(container);
+                    Port port = ports.get(entry.getArg(2));
+                    if (port != null) {
+                        port.removeContainer(container);
+                    }
+                }
+                break;
+            }
+            case UNLOAD_CONTAINER: {
+                Vehicle vehicle = vehicles.get(entry.getArg(0));
+                Container container = containers.get(entry.getArg(1));
+                if (vehicle != null && container != null) {
+                    vehicle.removeContainer(container);
+                    Port port = ports.get(entry.getArg(2));
+                    if (port != null) {
+                        port.addContainer(container);
+                    }
+                }
+                break;
+            }
+            case MOVE_VEHICLE: {
+                Vehicle vehicle = vehicles.get(entry.getArg(0));
+                Port port = ports.get(entry.getArg(1));
+                if (vehicle != null && port != null) {
+                    travel(vehicle, port, LocalDate.parse(entry.getArg(2)));
+                }
+                break;
+            }
+            case REFUEL_VEHICLE: {
+                Vehicle vehicle = vehicles.get(entry.getArg(0));
+                if (vehicle != null) {
+                    vehicle.refuel(Double.parseDouble(entry.getArg(1)));
+                }
+                break;
+            }
+            default:
+                System.err.println("Unknown journal operation: " + entry.getOperation());
+        }
+    }
+
+    /**
+     * Runs a batch of commands as a single commit: the commands are applied in order under the exclusive lock
+     * with the same checks as the menus, then all of their journal records are written together, and a
+     * snapshot follows once enough records have accumulated. A command that fails is reported and skipped
+     * without affecting the others.
+     *
+     * <p>Commands and arguments ({@code [...]} optional):</p>
+     * <ul>
+     *   <li>{@code addPort id name latitude longitude storingCapacity landingAbility}</li>
+     *   <li>{@code addVehicle ship|truck id name fuelCapacity carryingCapacity [truckType]}</li>
+     *   <li>{@code addContainer id weight type [portId]}</li>
+     *   <li>{@code removeContainer id}</li>
+     *   <li>{@code loadContainer vehicleId containerId}</li>
+     *   <li>{@code unloadContainer vehicleId containerId [portId]}, by default at the vehicle's port</li>
+     *   <li>{@code moveVehicle vehicleId portId}</li>
+     *   <li>{@code refuelVehicle vehicleId amount}</li>
+     * </ul>
+     *
+     * @param commands The commands to run.
+     * @return The outcome of each failed command and the batch's timings.
+     */
+    public BatchReport runBatch(List<BatchScript.Command> commands) {
+        BatchReport report = new BatchReport();
+        List<JournalEntry> records = new ArrayList<>(commands.size());
+        try (PortLocks.Held held = locks.exclusive()) {
+            for (BatchScript.Command command : commands) {
+                try {
+                    records.add(applyCommand(command));
+                    report.succeeded();
+                } catch (IllegalArgumentException | IllegalStateException | DateTimeException e) {
+                    report.failed(command, e.getMessage());
+                }
+            }
+            report.applied();
+            journal.appendAll(records);
+            // The batch is committed once its records are durable, whatever the sync policy
+            journal.sync();
+        }
+        snapshotIfDue();
+        report.finish();
+        return report;
+    }
+
+    /**
+     * Validates and applies one batch command.
+     *
+     * @return The journal record of the applied mutation, in the form the menus record it.
+     * @throws IllegalArgumentException If the command is unknown, its arguments are invalid or an entity is missing.
+     * @throws IllegalStateException    If the model rejects the change, e.g. for lack of capacity or fuel.
+     */
+    private JournalEntry applyCommand(BatchScript.Command command) {
+        switch (command.getName()) {
+            case "addPort": {
+                String id = command.getArg(0);
+                String name = command.getArg(1);
+                double latitude = Double.parseDouble(command.getArg(2));
+                double longitude = Double.parseDouble(command.getArg(3));
+                int storingCapacity = Integer.parseInt(command.getArg(4));
+                boolean landingAbility = Boolean.parseBoolean(command.getArg(5));
+                ports.add(new Port(id, name, latitude, longitude, storingCapacity, landingAbility));
+                return new JournalEntry(0, JournalEntry.Operation.ADD_PORT, id, name, Double.toString(latitude),
+                        Double.toString(longitude), Integer.toString(storingCapacity), Boolean.toString(landingAbility));
+            }
+            case "addVehicle": {
+                String type = command.getArg(0).toLowerCase();
+                String id = command.getArg(1);
+                String name = command.getArg(2);
+                double fuelCapacity = Double.parseDouble(command.getArg(3));
+                int carryingCapacity = Integer.parseInt(command.getArg(4));
+                Vehicle vehicle;
+                if (type.equals("ship")) {
+                    vehicle = new Ship(id, name, fuelCapacity, carryingCapacity);
+                } else if (type.equals("truck")) {
+                    vehicle = new Truck(id, name, fuelCapacity, carryingCapacity,
+                            Truck.TruckType.valueOf(command.getArg(5).toUpperCase()));
+                } else {
+                    throw new IllegalArgumentException("Invalid vehicle type " + type);
+                }
+                vehicles.add(vehicle);
+                return new JournalEntry(0, JournalEntry.Operation.ADD_VEHICLE, type, id, name,
+                        Double.toString(fuelCapacity), Integer.toString(carryingCapacity),
+                        vehicle instanceof Truck ? ((Truck) vehicle).getType().name() : "");
+            }
+            case "addContainer": {
+                String id = command.getArg(0);
+                double weight = Double.parseDouble(command.getArg(1));
+                Container.ContainerType type = Container.ContainerType.valueOf(command.getArg(2).toUpperCase());
+                String portId = command.getOptionalArg(3);
+                Port port = portId.isEmpty() ? null : requirePort(portId);
+                if (containers.contains(id)) {
+                    throw new IllegalArgumentException("A container with this ID already exists");
+                }
+                Container container = new Container(id, weight, type);
+                if (port != null) {
+                    port.addContainer(container); // Checks the storing capacity before anything is registered
+                }
+                containers.add(container);
+                return new JournalEntry(0, JournalEntry.Operation.ADD_CONTAINER, id, Double.toString(weight),
+                        type.name(), portId);
+            }
+            case "removeContainer": {
+                Container container = requireContainer(command.getArg(0));
+                Port port = container.getStoringPort();
+                String portId = port == null ? "" : port.getId();
+                containers.remove(container.getId()); // Also frees its place at the port or on the vehicle
+                return new JournalEntry(0, JournalEntry.Operation.REMOVE_CONTAINER, container.getId(), portId);
+            }
+            case "loadContainer": {
+                Vehicle vehicle = requireVehicle(command.getArg(0));
+                Container container = requireContainer(command.getArg(1));
+                if (container.getCarryingVehicle() != null) {
+                    throw new IllegalStateException("Container is already on vehicle " + container.getCarryingVehicle().getId());
+                }
+                vehicle.addContainer(container);
+                // Take the container from the port it was actually stored at
+                Port port = container.getStoringPort();
+                String portId = "";
+                if (port != null) {
+                    port.removeContainer(container);
+                    portId = port.getId();
+                }
+                return new JournalEntry(0, JournalEntry.Operation.LOAD_CONTAINER, vehicle.getId(), container.getId(), portId);
+            }
+            case "unloadContainer": {
+                Vehicle vehicle = requireVehicle(command.getArg(0));
+                Container container = requireContainer(command.getArg(1));
+                if (container.getCarryingVehicle() != vehicle) {
+                    throw new IllegalArgumentException("Container not found on the vehicle");
+                }
+                String portId = command.getOptionalArg(2);
+                Port port = portId.isEmpty() ? vehicle.getCurrentPort() : requirePort(portId);
+                if (port != null) {
+                    port.addContainer(container); // Checks the storing capacity before the vehicle lets go
+                }
+                vehicle.removeContainer(container);
+                return new JournalEntry(0, JournalEntry.Operation.UNLOAD_CONTAINER, vehicle.getId(), container.getId(),
+                        port == null ? "" : port.getId());
+            }
+            case "moveVehicle": {
+                Vehicle vehicle = requireVehicle(command.getArg(0));
+                Port port = requirePort(command.getArg(1));
+                if (vehicle.getCurrentPort() == null || !vehicle.canMove(port)) {
+                    throw new IllegalStateException("Vehicle cannot move to the specified port");
+                }
+                LocalDate today = LocalDate.now();
+                travel(vehicle, port, today);
+                return new JournalEntry(0, JournalEntry.Operation.MOVE_VEHICLE, vehicle.getId(), port.getId(),
+                        today.toString());
+            }
+            case "refuelVehicle": {
+                Vehicle vehicle = requireVehicle(command.getArg(0));
+                double amount = Double.parseDouble(command.getArg(1));
+                vehicle.refuel(amount);
+                return new JournalEntry(0, JournalEntry.Operation.REFUEL_VEHICLE, vehicle.getId(), Double.toString(amount));
+            }
+            default:
+                throw new IllegalArgumentException("Unknown command");
+        }
+    }
+
+    private Port requirePort(String id) {
+        Port port = ports.get(id);
+        if (port == null) {
+            throw new IllegalArgumentException("Port not found: " + id);
+        }
+        return port;
+    }
+
+    private Vehicle requireVehicle(String id) {
+        Vehicle vehicle = vehicles.get(id);
+        if (vehicle == null) {
+            throw new IllegalArgumentException("Vehicle not found: " + id);
+        }
+        return vehicle;
+    }
+
+    private Container requireContainer(String id) {
+        Container container = containers.get(id);
+        if (container == null) {
+            throw new IllegalArgumentException("Container not found: " + id);
+        }
+        return container;
     }
 
+
     /**
-     * Starts the Port Management System.
-     * Handles login/logout and user interaction.
+     * Starts the Port Management System on the console.
+     * Handles login/logout and user interaction until the input ends.
      */
     public void start() {
-        System.out.println("Welcome to the Port Management System");
-        while (true) { // Main system loop
-            if (currentUser == null) {
-                login(); // Prompt for login if no user is logged in
-            } else {
-                currentUser.displayMenu(); // Display the menu for the current user type
-                String choice = scanner.nextLine(); // Get user input
-                if (choice.equals("0")) {
-                    logout(); // Logout if the user chooses 0
+        run(console);
+    }
+
+    /**
+     * Runs an interactive session on the calling thread until its input ends. Sessions on different
+     * threads run concurrently.
+     *
+     * @param session The session to run.
+     */
+    public void run(Session session) {
+        sessions.set(session);
+        try {
+            out().println("Welcome to the Port Management System");
+            while (true) { // Main system loop
+                if (user() == null) {
+                    login(); // Prompt for login if no user is logged in
                 } else {
-                    currentUser.processOperation(choice, this); // Process the user's choice
+                    user().displayMenu(out()); // Display the menu for the current user type
+                    String choice = in().nextLine(); // Get user input
+                    if (choice.equals("0")) {
+                        logout(); // Logout if the user chooses 0
+                    } else {
+                        user().processOperation(choice, this); // Process the user's choice
+                        snapshotIfDue();
+                    }
                 }
             }
+        } catch (NoSuchElementException e) {
+            // The input has ended
+        } finally {
+            session.getOut().flush();
+            sessions.remove();
         }
     }
 
-/**
+    /**
      * Handles user login. Prompts for username and password, and authenticates against existing users.
      */
     private void login() {
-        System.out.print("Enter username: ");
-        String username = scanner.nextLine();
-        System.out.print("Enter password: ");
-        String password = scanner.nextLine();
-
-        for (User user : users) {
-            if (user.getUsername().equals(username) && user.authenticate(password)) {
-                currentUser = user;
-                System.out.println("Login successful!");
-                return;
-            }
+        out().print("Enter username: ");
+        String username = in().nextLine();
+        out().print("Enter password: ");
+        String password = in().nextLine();
+
+        User user = users.get(username);
+        if (user != null && user.authenticate(password)) {
+            sessions.get().setUser(user);
+            out().println("Login successful!");
+            return;
         }
-        System.out.println("Invalid username or password. Please try again.");
+        out().println("Invalid username or password. Please try again.");
     }
 
     /**
-     * Handles user logout. Sets the current user to null and saves data.
+     * Handles user logout. Sets the current user to null, makes sure the journal is on disk and dumps the metrics.
      */
     private void logout() {
-        currentUser = null;
-        System.out.println("Logged out successfully.");
-        saveData();
+        sessions.get().setUser(null);
+        out().println("Logged out successfully.");
+        journal.sync();
+        archive.sync();
+        Metrics.dump(FileHandler.METRICS_FILE);
     }
 
     /**
@@ -122,34 +719,43 @@ public class PortManagementSystem {
      */
     public void addManager() {
         // Check if the current user is a SystemAdmin
-        if (!(currentUser instanceof SystemAdmin)) {
-            System.out.println("You don't have permission to add managers.");
+        if (!(user() instanceof SystemAdmin)) {
+            out().println("You don't have permission to add managers.");
             return;
         }
 
-        System.out.print("Enter manager username: ");
-        String username = scanner.nextLine();
-        System.out.print("Enter manager password: ");
-        String password = scanner.nextLine();
-        System.out.print("Enter port ID for the manager: ");
-        String portId = scanner.nextLine();
+        out().print("Enter manager username: ");
+        String username = in().nextLine();
+        try (PortLocks.Held held = locks.shared()) {
+            if (users.contains(username)) {
+                out().println("A user with this username already exists.");
+                return;
+            }
+        }
+        out().print("Enter manager password: ");
+        String password = in().nextLine();
+        out().print("Enter port ID for the manager: ");
+        String portId = in().nextLine();
 
-        // Find the port by ID
-        Port managedPort = ports.stream()
-                .filter(p -> p.getId().equals(portId))
-                .findFirst()
-                .orElse(null);
+        try (PortLocks.Held held = locks.exclusive()) {
+            // Find the port by ID
+            Port managedPort = ports.get(portId);
 
-        if (managedPort == null) {
-            System.out.println("Port not found.");
-            return;
-        }
+            if (managedPort == null) {
+                out().println("Port not found.");
+                return;
+            }
+            if (users.contains(username)) {
+                out().println("A user with this username already exists.");
+                return;
+            }
 
-        // Create and add the new PortManager
-        PortManager newManager = new PortManager(username, password, managedPort);
-        users.add(newManager);
-        System.out.println("Port manager added successfully.");
-        saveData();
+            // Create and add the new PortManager
+            PortManager newManager = new PortManager(username, password, managedPort);
+            users.add(newManager);
+            out().println("Port manager added successfully.");
+            record(JournalEntry.Operation.ADD_MANAGER, username, password, portId);
+        }
     }
 
     /**
@@ -157,83 +763,88 @@ public class PortManagementSystem {
      */
     public void removeManager() {
         // Check if the current user is a SystemAdmin
-        if (!(currentUser instanceof SystemAdmin)) {
-            System.out.println("You don't have permission to remove managers.");
+        if (!(user() instanceof SystemAdmin)) {
+            out().println("You don't have permission to remove managers.");
             return;
         }
 
-        System.out.print("Enter manager username to remove: ");
-        String username = scanner.nextLine();
+        out().print("Enter manager username to remove: ");
+        String username = in().nextLine();
 
-        // Find the manager to remove
-        User managerToRemove = users.stream()
-                .filter(u -> u instanceof PortManager && u.getUsername().equals(username))
-                .findFirst()
-                .orElse(null);
+        try (PortLocks.Held held = locks.exclusive()) {
+            // Find the manager to remove
+            User managerToRemove = users.get(username);
 
-        if (managerToRemove != null) {
-            users.remove(managerToRemove);
-            System.out.println("Port manager removed successfully.");
-            saveData();
-        } else {
-            System.out.println("Port manager not found.");
+            if (managerToRemove instanceof PortManager) {
+                users.remove(username);
+                out().println("Port manager removed successfully.");
+                record(JournalEntry.Operation.REMOVE_MANAGER, username);
+            } else {
+                out().println("Port manager not found.");
+            }
         }
     }
 
     /**
-     * Calculates the total fuel usage for a given date.
+     * Calculates the total fuel usage for a given date: the fuel burned by the trips that departed or arrived
+     * that day and by the vehicles moved that day, read from the daily rollup.
      */
     public void calculateFuelUsage() {
-        System.out.print("Enter date (YYYY-MM-DD): ");
-        LocalDate date = LocalDate.parse(scanner.nextLine());
-
-        double totalFuelUsed = trips.stream()
-                .filter(trip -> trip.getDepartureDate().equals(date) ||
-                                (trip.getArrivalDate() != null && trip.getArrivalDate().equals(date)))
-                .mapToDouble(trip -> {
-                    Vehicle vehicle = trip.getVehicle();
-                    Port arrivalPort = trip.getArrivalPort();
-                    return vehicle.calculateRequiredFuel(arrivalPort); // Calculate fuel used for each trip
-                })
-                .sum(); // Sum the fuel usage for all trips on the specified date
-
-        System.out.printf("Total fuel used on %s: %.2f gallons\n", date, totalFuelUsed);
+        out().print("Enter date (YYYY-MM-DD): ");
+        LocalDate date = LocalDate.parse(in().nextLine());
+
+        try (PortLocks.Held held = locks.shared()) {
+            out().printf("Total fuel used on %s: %.2f gallons\n", date, fuelRollup.getFuel(date));
+            out().printf("  Ships: %.2f gallons\n", fuelRollup.getShipFuel(date));
+            for (Truck.TruckType type : Truck.TruckType.values()) {
+                out().printf("  %s trucks: %.2f gallons\n", type, fuelRollup.getTruckFuel(date, type));
+            }
+            Map<String, Double> byPort = fuelRollup.getFuelByPort(date);
+            if (!byPort.isEmpty()) {
+                out().println("By departure port:");
+                byPort.forEach((portId, fuel) -> out().printf("  %s: %.2f gallons\n", portId, fuel));
+            }
+        }
     }
 
     public void calculateContainerWeights() {
-        Map<Container.ContainerType, Double> weights = new EnumMap<>(Container.ContainerType.class);
-
-        for (Container.ContainerType type : Container.ContainerType.values()) {
-            weights.put(type, 0.0);
-        }
-
-        for (Container container : containers) {
-            weights.put(container.getType(), weights.get(container.getType()) + container.getWeight());
+        // Totals kept as containers change, so no pass over the containers
+        double[] weights;
+        try (PortLocks.Held held = locks.shared()) {
+            synchronized (containers) {
+                weights = containerWeights.clone();
+            }
         }
 
-        System.out.println("Total weight of containers by type:");
-        for (Map.Entry<Container.ContainerType, Double> entry : weights.entrySet()) {
-            System.out.printf("%s: %.2f tons\n", entry.getKey(), entry.getValue());
+        out().println("Total weight of containers by type:");
+        for (Container.ContainerType type : Container.ContainerType.values()) {
+            out().printf("%s: %.2f tons\n", type, weights[type.ordinal()]);
         }
     }
 
 
 
     public void listTripsOnDate() {
-        System.out.print("Enter date (YYYY-MM-DD): ");
-        LocalDate date = LocalDate.parse(scanner.nextLine());
-
-        List<Trip> tripsOnDate = trips.stream()
-                .filter(trip -> trip.getDepartureDate().equals(date) || 
-                                (trip.getArrivalDate() != null && trip.getArrivalDate().equals(date)))
-                .collect(Collectors.toList());
+        out().print("Enter date (YYYY-MM-DD): ");
+        LocalDate date = LocalDate.parse(in().nextLine());
+
+        List<String> tripsOnDate = new ArrayList<>();
+        try (PortLocks.Held held = locks.shared()) {
+            TripLog log = tripLog;
+            if (log != null) {
+                log.forEachOnDate(date, row -> tripsOnDate.add(log.describe(row)));
+            }
+            for (Trip trip : unloggedTrips.onDate(date)) {
+                tripsOnDate.add(trip.toString());
+            }
+        }
 
         if (tripsOnDate.isEmpty()) {
-            System.out.println("No trips on the specified date.");
+            out().println("No trips on the specified date.");
         } else {
-            System.out.println("Trips on " + date + ":");
-            for (Trip trip : tripsOnDate) {
-                System.out.println(trip);
+            out().println("Trips on " + date + ":");
+            for (String trip : tripsOnDate) {
+                out().println(trip);
             }
         }
     }
@@ -242,300 +853,601 @@ public class PortManagementSystem {
 
 
     public void addVehicle() {
-        if (!(currentUser instanceof SystemAdmin)) {
-            System.out.println("You don't have permission to add vehicles.");
+        if (!(user() instanceof SystemAdmin)) {
+            out().println("You don't have permission to add vehicles.");
             return;
         }
 
-        System.out.print("Enter vehicle type (ship/truck): ");
-        String type = scanner.nextLine().toLowerCase();
-        System.out.print("Enter vehicle ID: ");
-        String id = scanner.nextLine();
-        System.out.print("Enter vehicle name: ");
-        String name = scanner.nextLine();
-        System.out.print("Enter fuel capacity: ");
-        double fuelCapacity = Double.parseDouble(scanner.nextLine());
-        System.out.print("Enter carrying capacity: ");
-        int carryingCapacity = Integer.parseInt(scanner.nextLine());
+        out().print("Enter vehicle type (ship/truck): ");
+        String type = in().nextLine().toLowerCase();
+        out().print("Enter vehicle ID: ");
+        String id = in().nextLine();
+        try (PortLocks.Held held = locks.shared()) {
+            if (vehicles.contains(id)) {
+                out().println("A vehicle with this ID already exists.");
+                return;
+            }
+        }
+        out().print("Enter vehicle name: ");
+        String name = in().nextLine();
+        out().print("Enter fuel capacity: ");
+        double fuelCapacity = Double.parseDouble(in().nextLine());
+        out().print("Enter carrying capacity: ");
+        int carryingCapacity = Integer.parseInt(in().nextLine());
 
         Vehicle vehicle;
         if (type.equals("ship")) {
             vehicle = new Ship(id, name, fuelCapacity, carryingCapacity);
         } else if (type.equals("truck")) {
-            System.out.print("Enter truck type (BASIC/REEFER/TANKER): ");
-            Truck.TruckType truckType = Truck.TruckType.valueOf(scanner.nextLine().toUpperCase());
+            out().print("Enter truck type (BASIC/REEFER/TANKER): ");
+            Truck.TruckType truckType = Truck.TruckType.valueOf(in().nextLine().toUpperCase());
             vehicle = new Truck(id, name, fuelCapacity, carryingCapacity, truckType);
         } else {
-            System.out.println("Invalid vehicle type.");
+            out().println("Invalid vehicle type.");
             return;
         }
 
-        vehicles.add(vehicle);
-        System.out.println("Vehicle added successfully.");
-        saveData();
+        try (PortLocks.Held held = locks.exclusive()) {
+            if (vehicles.contains(id)) {
+                out().println("A vehicle with this ID already exists.");
+                return;
+            }
+            vehicles.add(vehicle);
+            out().println("Vehicle added successfully.");
+            record(JournalEntry.Operation.ADD_VEHICLE, type, id, name, Double.toString(fuelCapacity),
+                    Integer.toString(carryingCapacity),
+                    vehicle instanceof Truck ? ((Truck) vehicle).getType().name() : "");
+        }
     }
 
     public void removeVehicle() {
-        if (!(currentUser instanceof SystemAdmin)) {
-            System.out.println("You don't have permission to remove vehicles.");
+        if (!(user() instanceof SystemAdmin)) {
+            out().println("You don't have permission to remove vehicles.");
             return;
         }
 
-        System.out.print("Enter vehicle ID to remove: ");
-        String id = scanner.nextLine();
+        out().print("Enter vehicle ID to remove: ");
+        String id = in().nextLine();
 
-        Vehicle vehicleToRemove = vehicles.stream()
-                .filter(v -> v.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        try (PortLocks.Held held = locks.exclusive()) {
+            Vehicle vehicleToRemove = vehicles.remove(id);
 
-        if (vehicleToRemove != null) {
-            vehicles.remove(vehicleToRemove);
-            System.out.println("Vehicle removed successfully.");
-            saveData();
-        } else {
-            System.out.println("Vehicle not found.");
+            if (vehicleToRemove != null) {
+                out().println("Vehicle removed successfully.");
+                record(JournalEntry.Operation.REMOVE_VEHICLE, id);
+            } else {
+                out().println("Vehicle not found.");
+            }
         }
     }
 
     public void addPort() {
-        if (!(currentUser instanceof SystemAdmin)) {
-            System.out.println("You don't have permission to add ports.");
+        if (!(user() instanceof SystemAdmin)) {
+            out().println("You don't have permission to add ports.");
             return;
         }
 
-        System.out.print("Enter port ID: ");
-        String id = scanner.nextLine();
-        System.out.print("Enter port name: ");
-        String name = scanner.nextLine();
-        System.out.print("Enter latitude: ");
-        double latitude = Double.parseDouble(scanner.nextLine());
-        System.out.print("Enter longitude: ");
-        double longitude = Double.parseDouble(scanner.nextLine());
-        System.out.print("Enter storing capacity: ");
-        int storingCapacity = Integer.parseInt(scanner.nextLine());
-        System.out.print("Does the port have landing ability? (true/false): ");
-        boolean landingAbility = Boolean.parseBoolean(scanner.nextLine());
+        out().print("Enter port ID: ");
+        String id = in().nextLine();
+        try (PortLocks.Held held = locks.shared()) {
+            if (ports.contains(id)) {
+                out().println("A port with this ID already exists.");
+                return;
+            }
+        }
+        out().print("Enter port name: ");
+        String name = in().nextLine();
+        out().print("Enter latitude: ");
+        double latitude = Double.parseDouble(in().nextLine());
+        out().print("Enter longitude: ");
+        double longitude = Double.parseDouble(in().nextLine());
+        out().print("Enter storing capacity: ");
+        int storingCapacity = Integer.parseInt(in().nextLine());
+        out().print("Does the port have landing ability? (true/false): ");
+        boolean landingAbility = Boolean.parseBoolean(in().nextLine());
 
         Port port = new Port(id, name, latitude, longitude, storingCapacity, landingAbility);
-        ports.add(port);
-        System.out.println("Port added successfully.");
-        saveData();
+        try (PortLocks.Held held = locks.exclusive()) {
+            if (ports.contains(id)) {
+                out().println("A port with this ID already exists.");
+                return;
+            }
+            ports.add(port);
+            out().println("Port added successfully.");
+            record(JournalEntry.Operation.ADD_PORT, id, name, Double.toString(latitude), Double.toString(longitude),
+                    Integer.toString(storingCapacity), Boolean.toString(landingAbility));
+        }
     }
 
     public void removePort() {
-        if (!(currentUser instanceof SystemAdmin)) {
-            System.out.println("You don't have permission to remove ports.");
+        if (!(user() instanceof SystemAdmin)) {
+            out().println("You don't have permission to remove ports.");
             return;
         }
 
-        System.out.print("Enter port ID to remove: ");
-        String id = scanner.nextLine();
+        out().print("Enter port ID to remove: ");
+        String id = in().nextLine();
 
-        Port portToRemove = ports.stream()
-                .filter(p -> p.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        try (PortLocks.Held held = locks.exclusive()) {
+            Port portToRemove = ports.remove(id);
 
-        if (portToRemove != null) {
-            ports.remove(portToRemove);
-            System.out.println("Port removed successfully.");
-            saveData();
-        } else {
-            System.out.println("Port not found.");
+            if (portToRemove != null) {
+                out().println("Port removed successfully.");
+                record(JournalEntry.Operation.REMOVE_PORT, id);
+            } else {
+                out().println("Port not found.");
+            }
         }
     }
 
     public void addContainer() {
-        if (!(currentUser instanceof SystemAdmin) && !(currentUser instanceof PortManager)) {
-            System.out.println("You don't have permission to add containers.");
+        if (!(user() instanceof SystemAdmin) && !(user() instanceof PortManager)) {
+            out().println("You don't have permission to add containers.");
             return;
         }
 
-        System.out.print("Enter container ID: ");
-        String id = scanner.nextLine();
-        System.out.print("Enter container weight: ");
-        double weight = Double.parseDouble(scanner.nextLine());
-        System.out.print("Enter container type (DRY_STORAGE/OPEN_TOP/OPEN_SIDE/REFRIGERATED/LIQUID): ");
-        Container.ContainerType type = Container.ContainerType.valueOf(scanner.nextLine().toUpperCase());
+        out().print("Enter container ID: ");
+        String id = in().nextLine();
+        try (PortLocks.Held held = locks.shared()) {
+            synchronized (containers) {
+                if (containers.contains(id)) {
+                    out().println("A container with this ID already exists.");
+                    return;
+                }
+            }
+        }
+        out().print("Enter container weight: ");
+        double weight = Double.parseDouble(in().nextLine());
+        out().print("Enter container type (DRY_STORAGE/OPEN_TOP/OPEN_SIDE/REFRIGERATED/LIQUID): ");
+        Container.ContainerType type = Container.ContainerType.valueOf(in().nextLine().toUpperCase());
 
         Container container = new Container(id, weight, type);
-        containers.add(container);
+        // A port manager's container goes straight into their port, so only that port needs locking
+        Port port = user() instanceof PortManager ? ((PortManager) user()).getManagedPort() : null;
+        try (PortLocks.Held held = locks.port(port)) {
+            String portId = "";
+            synchronized (containers) {
+                if (containers.contains(id)) {
+                    out().println("A container with this ID already exists.");
+                    return;
+                }
+                if (port != null) {
+                    try {
+                        // Checks the storing capacity before anything is registered
+                        port.addContainer(container);
+                    } catch (IllegalStateException e) {
+                        out().println("Error adding container: " + e.getMessage());
+                        return;
+                    }
+                    portId = port.getId();
+                }
+                containers.add(container);
+            }
 
-        if (currentUser instanceof PortManager) {
-            PortManager portManager = (PortManager) currentUser;
-            portManager.getManagedPort().addContainer(container);
+            out().println("Container added successfully.");
+            record(JournalEntry.Operation.ADD_CONTAINER, id, Double.toString(weight), type.name(), portId);
         }
-
-        System.out.println("Container added successfully.");
-        saveData();
     }
 
     public void removeContainer() {
-        if (!(currentUser instanceof SystemAdmin) && !(currentUser instanceof PortManager)) {
-            System.out.println("You don't have permission to remove containers.");
+        if (!(user() instanceof SystemAdmin) && !(user() instanceof PortManager)) {
+            out().println("You don't have permission to remove containers.");
             return;
         }
 
-        System.out.print("Enter container ID to remove: ");
-        String id = scanner.nextLine();
+        out().print("Enter container ID to remove: ");
+        String id = in().nextLine();
 
-        Container containerToRemove = containers.stream()
-                .filter(c -> c.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        // The container may be at any port or on any vehicle
+        try (PortLocks.Held held = locks.exclusive()) {
+            Container containerToRemove = containers.get(id);
 
-        if (containerToRemove != null) {
-            containers.remove(containerToRemove);
-            if (currentUser instanceof PortManager) {
-                PortManager portManager = (PortManager) currentUser;
-                portManager.getManagedPort().removeContainer(containerToRemove);
+            if (containerToRemove != null) {
+                Port port = containerToRemove.getStoringPort();
+                String portId = port == null ? "" : port.getId();
+                containers.remove(id); // Also frees its place at the port or on the vehicle
+                out().println("Container removed successfully.");
+                record(JournalEntry.Operation.REMOVE_CONTAINER, id, portId);
+            } else {
+                out().println("Container not found.");
             }
-            System.out.println("Container removed successfully.");
-            saveData();
-        } else {
-            System.out.println("Container not found.");
         }
     }
 
     public void loadContainer() {
-        if (!(currentUser instanceof SystemAdmin) && !(currentUser instanceof PortManager)) {
-            System.out.println("You don't have permission to load containers.");
+        if (!(user() instanceof SystemAdmin) && !(user() instanceof PortManager)) {
+            out().println("You don't have permission to load containers.");
             return;
         }
 
-        System.out.print("Enter vehicle ID: ");
-        String vehicleId = scanner.nextLine();
-        System.out.print("Enter container ID: ");
-        String containerId = scanner.nextLine();
+        out().print("Enter vehicle ID: ");
+        String vehicleId = in().nextLine();
+        out().print("Enter container ID: ");
+        String containerId = in().nextLine();
 
-        Vehicle vehicle = vehicles.stream()
-                .filter(v -> v.getId().equals(vehicleId))
-                .findFirst()
-                .orElse(null);
+        try (PortLocks.Held held = locks.exclusive()) {
+            loadContainer(vehicleId, containerId);
+        }
+    }
 
-        Container container = containers.stream()
-                .filter(c -> c.getId().equals(containerId))
-                .findFirst()
-                .orElse(null);
+    private void loadContainer(String vehicleId, String containerId) {
+        Vehicle vehicle = vehicles.get(vehicleId);
+
+        Container container = containers.get(containerId);
 
         if (vehicle == null || container == null) {
-            System.out.println("Vehicle or container not found.");
+            out().println("Vehicle or container not found.");
             return;
         }
 
         try {
             vehicle.addContainer(container);
-            if (currentUser instanceof PortManager) {
-                PortManager portManager = (PortManager) currentUser;
-                portManager.getManagedPort().removeContainer(container);
+            // Take the container from the port it was actually stored at
+            Port port = container.getStoringPort();
+            String portId = "";
+            if (port != null) {
+                port.removeContainer(container);
+                portId = port.getId();
             }
-            System.out.println("Container loaded successfully.");
-            saveData();
+            out().println("Container loaded successfully.");
+            record(JournalEntry.Operation.LOAD_CONTAINER, vehicleId, containerId, portId);
         } catch (IllegalArgumentException | IllegalStateException e) {
-            System.out.println("Error loading container: " + e.getMessage());
+            out().println("Error loading container: " + e.getMessage());
         }
     }
 
     public void unloadContainer() {
-        if (!(currentUser instanceof SystemAdmin) && !(currentUser instanceof PortManager)) {
-            System.out.println("You don't have permission to unload containers.");
+        if (!(user() instanceof SystemAdmin) && !(user() instanceof PortManager)) {
+            out().println("You don't have permission to unload containers.");
             return;
         }
 
-        System.out.print("Enter vehicle ID: ");
-        String vehicleId = scanner.nextLine();
-        System.out.print("Enter container ID: ");
-        String containerId = scanner.nextLine();
+        out().print("Enter vehicle ID: ");
+        String vehicleId = in().nextLine();
+        out().print("Enter container ID: ");
+        String containerId = in().nextLine();
+
+        try (PortLocks.Held held = locks.exclusive()) {
+            unloadContainer(vehicleId, containerId);
+        }
+    }
 
-        Vehicle vehicle = vehicles.stream()
-                .filter(v -> v.getId().equals(vehicleId))
-                .findFirst()
-                .orElse(null);
+    private void unloadContainer(String vehicleId, String containerId) {
+        Vehicle vehicle = vehicles.get(vehicleId);
 
         if (vehicle == null) {
-            System.out.println("Vehicle not found.");
+            out().println("Vehicle not found.");
             return;
         }
 
-        Container container = vehicle.getContainers().stream()
-                .filter(c -> c.getId().equals(containerId))
-                .findFirst()
-                .orElse(null);
+        Container container = containers.get(containerId);
 
-        if (container == null) {
-            System.out.println("Container not found on the vehicle.");
+        if (container == null || container.getCarryingVehicle() != vehicle) {
+            out().println("Container not found on the vehicle.");
             return;
         }
 
-        vehicle.removeContainer(container);
-        if (currentUser instanceof PortManager) {
-            PortManager portManager = (PortManager) currentUser;
-            portManager.getManagedPort().addContainer(container);
+        String portId = "";
+        if (user() instanceof PortManager) {
+            PortManager portManager = (PortManager) user();
+            try {
+                // Checks the storing capacity before the vehicle lets go
+                portManager.getManagedPort().addContainer(container);
+            } catch (IllegalStateException e) {
+                out().println("Error unloading container: " + e.getMessage());
+                return;
+            }
+            portId = portManager.getManagedPort().getId();
         }
-        System.out.println("Container unloaded successfully.");
-        saveData();
+        vehicle.removeContainer(container);
+        out().println("Container unloaded successfully.");
+        record(JournalEntry.Operation.UNLOAD_CONTAINER, vehicleId, containerId, portId);
     }
 
     public void moveVehicle() {
-        if (!(currentUser instanceof SystemAdmin)) {
-            System.out.println("You don't have permission to move vehicles.");
+        if (!(user() instanceof SystemAdmin)) {
+            out().println("You don't have permission to move vehicles.");
             return;
         }
 
-        System.out.print("Enter vehicle ID: ");
-        String vehicleId = scanner.nextLine();
-        System.out.print("Enter destination port ID: ");
-        String portId = scanner.nextLine();
+        out().print("Enter vehicle ID: ");
+        String vehicleId = in().nextLine();
+        out().print("Enter destination port ID: ");
+        String portId = in().nextLine();
+
+        // A move changes two ports and the fuel rollup
+        try (PortLocks.Held held = locks.exclusive()) {
+            Vehicle vehicle = vehicles.get(vehicleId);
 
-        Vehicle vehicle = vehicles.stream()
-                .filter(v -> v.getId().equals(vehicleId))
-                .findFirst()
-                .orElse(null);
+            Port destinationPort = ports.get(portId);
 
-        Port destinationPort = ports.stream()
-                .filter(p -> p.getId().equals(portId))
-                .findFirst()
-                .orElse(null);
+            if (vehicle == null || destinationPort == null) {
+                out().println("Vehicle or port not found.");
+                return;
+            }
+
+            if (vehicle.canMove(destinationPort)) {
+                LocalDate today = LocalDate.now();
+                travel(vehicle, destinationPort, today);
+                out().println("Vehicle moved successfully.");
+                record(JournalEntry.Operation.MOVE_VEHICLE, vehicleId, portId, today.toString());
+            } else {
+                out().println("Vehicle cannot move to the specified port.");
+            }
+        }
+    }
 
-        if (vehicle == null || destinationPort == null) {
-            System.out.println("Vehicle or port not found.");
+    /**
+     * Runs a traffic simulation on a copy of the current ports, vehicles and containers, optionally with one
+     * port's storing capacity changed first, and prints the results. The system itself is left unchanged.
+     */
+    public void runSimulation() {
+        if (!(user() instanceof SystemAdmin)) {
+            out().println("You don't have permission to run simulations.");
             return;
         }
 
-        if (vehicle.canMove(destinationPort)) {
-            vehicle.move(destinationPort);
-            System.out.println("Vehicle moved successfully.");
-            saveData();
+        out().print("Enter number of days to simulate: ");
+        int days = Integer.parseInt(in().nextLine().trim());
+        out().print("Enter random seed: ");
+        long seed = Long.parseLong(in().nextLine().trim());
+        out().print("Enter port ID to change storing capacity of (blank for none): ");
+        String portId = in().nextLine().trim();
+        int storingCapacity = 0;
+        if (!portId.isEmpty()) {
+            out().print("Enter simulated storing capacity: ");
+            storingCapacity = Integer.parseInt(in().nextLine().trim());
+        }
+
+        DataStore world = DataStore.decode(encodeWorld());
+        if (!portId.isEmpty()) {
+            Port port = null;
+            for (Port candidate : world.getPorts()) {
+                if (candidate.getId().equals(portId)) {
+                    port = candidate;
+                }
+            }
+            if (port == null) {
+                out().println("Port not found.");
+                return;
+            }
+            port.setStoringCapacity(storingCapacity);
+        }
+        Simulation simulation = new Simulation(world.getPorts(), world.getVehicles(), LocalDate.now(), seed);
+        simulation.run(days).print(out(), 10);
+    }
+
+    /**
+     * Runs many randomized simulations in parallel, first as things are and then with one port's storing
+     * capacity changed by a percentage, and prints the distributions of both. Both runs use the same
+     * scenario seeds, so the differences come from the change alone.
+     */
+    public void runWhatIf() {
+        if (!(user() instanceof SystemAdmin)) {
+            out().println("You don't have permission to run simulations.");
+            return;
+        }
+
+        out().print("Enter number of scenarios: ");
+        int scenarios = Integer.parseInt(in().nextLine().trim());
+        out().print("Enter number of days per scenario: ");
+        int days = Integer.parseInt(in().nextLine().trim());
+        out().print("Enter random seed: ");
+        long seed = Long.parseLong(in().nextLine().trim());
+        out().print("Enter port ID: ");
+        String portId = in().nextLine().trim();
+        out().print("Enter storing capacity change in percent (e.g. -20): ");
+        double percent = Double.parseDouble(in().nextLine().trim());
+        if (!ports.contains(portId)) {
+            out().println("Port not found.");
+            return;
+        }
+
+        MonteCarlo monteCarlo = new MonteCarlo(encodeWorld(), LocalDate.now());
+        monteCarlo.setDays(days);
+        monteCarlo.run(scenarios, seed, portId, 1).print(out(), "As is");
+        monteCarlo.run(scenarios, seed, portId, 1 + percent / 100)
+                .print(out(), String.format("%s storing capacity %+.0f%%", portId, percent));
+    }
+
+    /**
+     * Prints the counts and latencies of the operations run since startup and writes them to the metrics dump.
+     */
+    public void viewMetrics() {
+        if (!(user() instanceof SystemAdmin)) {
+            out().println("You don't have permission to view metrics.");
+            return;
+        }
+        Metrics.print(out());
+        if (Metrics.dump(FileHandler.METRICS_FILE)) {
+            out().println("Metrics written to data/" + FileHandler.METRICS_FILE);
+        }
+    }
+
+    /**
+     * Encodes the ports, vehicles and containers, so simulations can run on independent copies.
+     */
+    private byte[] encodeWorld() {
+        // Ports change under their own locks, so copying them all takes every lock
+        try (PortLocks.Held held = locks.exclusive()) {
+            return new DataStore(new ArrayList<>(), new ArrayList<>(ports.values()),
+                    new ArrayList<>(vehicles.values()), new ArrayList<>(containers.values()), new ArrayList<>())
+                    .encode();
+        }
+    }
+
+    /**
+     * Plans how to load the containers stored at a port onto the vehicles docked there for a trip to another
+     * port, prints the plan and, if confirmed, applies it as one batch. A port manager plans for their own port.
+     */
+    public void planLoad() {
+        if (!(user() instanceof SystemAdmin) && !(user() instanceof PortManager)) {
+            out().println("You don't have permission to load containers.");
+            return;
+        }
+
+        String portId;
+        if (user() instanceof PortManager) {
+            portId = ((PortManager) user()).getManagedPort().getId();
         } else {
-            System.out.println("Vehicle cannot move to the specified port.");
+            out().print("Enter port ID: ");
+            portId = in().nextLine();
+        }
+        out().print("Enter destination port ID: ");
+        String destinationId = in().nextLine();
+        out().print("Minimize (1) vehicles used or (2) fuel burned: ");
+        LoadPlanner.Objective objective = in().nextLine().trim().equals("2")
+                ? LoadPlanner.Objective.LEAST_FUEL : LoadPlanner.Objective.FEWEST_VEHICLES;
+
+        Port port;
+        Port destination;
+        try (PortLocks.Held held = locks.shared()) {
+            port = ports.get(portId);
+            destination = ports.get(destinationId);
+        }
+        if (port == null || destination == null) {
+            out().println("Port not found.");
+            return;
+        }
+
+        LoadPlanner.Plan plan;
+        long started = System.nanoTime();
+        // Planning only reads the port's containers, which change under its lock, and its vehicles' loads,
+        // which change under the exclusive lock; applying the plan goes through runBatch
+        try (PortLocks.Held held = locks.port(port)) {
+            plan = LoadPlanner.plan(port, destination, objective);
+        }
+        long elapsed = System.nanoTime() - started;
+
+        out().printf("Plan for %d containers at %s to %s in %.1f ms: %d placed on %d vehicles, %d unplaced,"
+                        + " %.2f gallons of fuel%n",
+                plan.getPlacedCount() + plan.getUnplaced().size(), plan.getPort().getId(),
+                plan.getDestination().getId(), elapsed / 1e6, plan.getPlacedCount(), plan.getLoads().size(),
+                plan.getUnplaced().size(), plan.getTotalFuel());
+        for (LoadPlanner.Load load : plan.getLoads()) {
+            out().printf("  %s: %d containers, load %.2f of %d, %.2f gallons to the destination",
+                    load.getVehicle().getId(), load.getContainers().size(), load.getWeight(),
+                    load.getVehicle().getCarryingCapacity(), load.getRequiredFuel());
+            if (load.getRefuelAmount() > 0) {
+                out().printf(", refuel %.2f", load.getRefuelAmount());
+            }
+            out().println();
+        }
+        if (plan.getLoads().isEmpty()) {
+            return;
+        }
+
+        out().print("Apply the plan? (y/n): ");
+        if (in().nextLine().trim().equalsIgnoreCase("y")) {
+            // The plan is checked again command by command, in case anything changed in between
+            runBatch(LoadPlanner.toCommands(plan)).print(out());
         }
     }
 
-    public void refuelVehicle() {
-        if (!(currentUser instanceof SystemAdmin)) {
-            System.out.println("You don't have permission to refuel vehicles.");
+    /**
+     * Plans the route needing the least fuel for a vehicle to reach a port with its current load, over as many
+     * ports as it takes, and prints the legs and where to refuel.
+     */
+    public void planRoute() {
+        out().print("Enter vehicle ID: ");
+        String vehicleId = in().nextLine();
+        out().print("Enter destination port ID: ");
+        String portId = in().nextLine();
+
+        RoutePlanner planner = routePlanner();
+        RoutePlanner.Route route;
+        double currentFuel;
+        // Vehicles only move and change load under the exclusive lock
+        try (PortLocks.Held held = locks.shared()) {
+            Vehicle vehicle = vehicles.get(vehicleId);
+            Port destinationPort = ports.get(portId);
+            if (vehicle == null || destinationPort == null) {
+                out().println("Vehicle or port not found.");
+                return;
+            }
+            if (vehicle.getCurrentPort() == null) {
+                out().println("Vehicle is not at any port.");
+                return;
+            }
+            route = planner.plan(vehicle, destinationPort);
+            currentFuel = vehicle.getCurrentFuel();
+        }
+
+        if (route == null) {
+            out().println("No route: the destination is out of the vehicle's range"
+                    + " or can't be reached through ports it can land at.");
+            return;
+        }
+        if (route.getLegCount() == 0) {
+            out().println("Vehicle is already at the destination.");
             return;
         }
+        List<Port> stops = route.getStops();
+        out().printf("Route of %d legs, %.2f km, %.2f gallons of fuel, %d refuel stops (%.2f gallons on board):%n",
+                route.getLegCount(), route.getTotalDistance(), route.getTotalFuel(), route.getRefuelStopCount(),
+                currentFuel);
+        for (int leg = 0; leg < route.getLegCount(); leg++) {
+            if (route.getRefuelAmount(leg) > 0) {
+                out().printf("  refuel %.2f gallons at %s%n", route.getRefuelAmount(leg), stops.get(leg).getId());
+            }
+            out().printf("  %s -> %s: %.2f km, %.2f gallons%n", stops.get(leg).getId(), stops.get(leg + 1).getId(),
+                    route.getLegDistance(leg), route.getLegFuel(leg));
+        }
+    }
 
-        System.out.print("Enter vehicle ID: ");
-        String vehicleId = scanner.nextLine();
-        System.out.print("Enter amount of fuel to add: ");
-        double fuelAmount = Double.parseDouble(scanner.nextLine());
+    /**
+     * Gets the route planner, building it over the current ports if they changed since it was last built.
+     * Must not be called while holding a port or shared lock.
+     */
+    private RoutePlanner routePlanner() {
+        RoutePlanner planner = routes;
+        if (planner == null) {
+            // Ports change under their own locks, so snapshotting them all takes every lock
+            try (PortLocks.Held held = locks.exclusive()) {
+                planner = routes;
+                if (planner == null) {
+                    planner = new RoutePlanner(ports.values());
+                    routes = planner;
+                }
+            }
+        }
+        return planner;
+    }
 
-        Vehicle vehicle = vehicles.stream()
-                .filter(v -> v.getId().equals(vehicleId))
-                .findFirst()
-                .orElse(null);
+    /**
+     * Moves a vehicle to another port on the given day and adds the fuel it burned to the fuel rollup.
+     * A move is not a trip, so the trip history and port traffic don't change.
+     */
+    private void travel(Vehicle vehicle, Port destination, LocalDate date) {
+        Port origin = vehicle.getCurrentPort();
+        double fuel = vehicle.getCurrentFuel();
+        vehicle.move(destination);
+        fuelRollup.addMove(vehicle, origin, date, fuel - vehicle.getCurrentFuel());
+    }
 
-        if (vehicle == null) {
-            System.out.println("Vehicle not found.");
+    public void refuelVehicle() {
+        if (!(user() instanceof SystemAdmin)) {
+            out().println("You don't have permission to refuel vehicles.");
             return;
         }
 
-        vehicle.refuel(fuelAmount);
-        System.out.println("Vehicle refueled successfully.");
-        saveData();
+        out().print("Enter vehicle ID: ");
+        String vehicleId = in().nextLine();
+        out().print("Enter amount of fuel to add: ");
+        double fuelAmount = Double.parseDouble(in().nextLine());
+
+        try (PortLocks.Held held = locks.exclusive()) {
+            Vehicle vehicle = vehicles.get(vehicleId);
+
+            if (vehicle == null) {
+                out().println("Vehicle not found.");
+                return;
+            }
+
+            vehicle.refuel(fuelAmount);
+            out().println("Vehicle refueled successfully.");
+            record(JournalEntry.Operation.REFUEL_VEHICLE, vehicleId, Double.toString(fuelAmount));
+        }
     }
 
 
@@ -543,270 +1455,471 @@ public class PortManagementSystem {
 
 
     public void listShipsInPort() {
-        System.out.print("Enter port ID: ");
-        String portId = scanner.nextLine();
+        out().print("Enter port ID: ");
+        String portId = in().nextLine();
 
-        Port port = ports.stream()
-                .filter(p -> p.getId().equals(portId))
-                .findFirst()
-                .orElse(null);
+        Port port;
+        try (PortLocks.Held held = locks.shared()) {
+            port = ports.get(portId);
+        }
 
         if (port == null) {
-            System.out.println("Port not found.");
+            out().println("Port not found.");
             return;
         }
 
-        List<Vehicle> shipsInPort = vehicles.stream()
-                .filter(v -> v instanceof Ship && v.getCurrentPort() != null && v.getCurrentPort().equals(port))
-                .collect(Collectors.toList());
+        List<Ship> shipsInPort;
+        try (PortLocks.Held held = locks.port(port)) {
+            shipsInPort = port.getShips();
+        }
 
         if (shipsInPort.isEmpty()) {
-            System.out.println("No ships in the port.");
+            out().println("No ships in the port.");
         } else {
-            System.out.println("Ships in the port:");
-            for (Vehicle ship : shipsInPort) {
-                System.out.println(ship.getId() + " - " + ship.getName());
+            out().println("Ships in the port:");
+            for (Ship ship : shipsInPort) {
+                out().println(ship.getId() + " - " + ship.getName());
             }
         }
     }
 
 
     public void listTripsBetweenDates() {
-        System.out.print("Enter start date (YYYY-MM-DD): ");
-        LocalDate startDate = LocalDate.parse(scanner.nextLine());
-        System.out.print("Enter end date (YYYY-MM-DD): ");
-        LocalDate endDate = LocalDate.parse(scanner.nextLine());
-
-        List<Trip> tripsBetweenDates = trips.stream()
-                .filter(trip -> (trip.getDepartureDate().isEqual(startDate) || trip.getDepartureDate().isAfter(startDate)) &&
-                                (trip.getArrivalDate() == null || trip.getArrivalDate().isEqual(endDate) || trip.getArrivalDate().isBefore(endDate)))
-                .collect(Collectors.toList());
+        out().print("Enter start date (YYYY-MM-DD): ");
+        LocalDate startDate = LocalDate.parse(in().nextLine());
+        out().print("Enter end date (YYYY-MM-DD): ");
+        LocalDate endDate = LocalDate.parse(in().nextLine());
+
+        List<String> tripsBetweenDates = new ArrayList<>();
+        List<String> underWay = new ArrayList<>();
+        try (PortLocks.Held held = locks.shared()) {
+            TripLog log = tripLog;
+            if (log != null) {
+                BitSet listed = new BitSet(log.size());
+                log.forEachBetween(startDate, endDate, row -> {
+                    listed.set(row);
+                    tripsBetweenDates.add(log.describe(row));
+                });
+                // Trips that overlap the period without falling entirely inside it
+                log.forEachInProgressDuring(startDate, endDate, row -> {
+                    if (!listed.get(row)) {
+                        underWay.add(log.describe(row));
+                    }
+                });
+            }
+            List<Trip> between = unloggedTrips.between(startDate, endDate);
+            Set<Trip> listed = Collections.newSetFromMap(new IdentityHashMap<>());
+            listed.addAll(between);
+            between.forEach(trip -> tripsBetweenDates.add(trip.toString()));
+            for (Trip trip : unloggedTrips.inProgressDuring(startDate, endDate)) {
+                if (!listed.contains(trip)) {
+                    underWay.add(trip.toString());
+                }
+            }
+        }
 
         if (tripsBetweenDates.isEmpty()) {
-            System.out.println("No trips between the specified dates.");
+            out().println("No trips between the specified dates.");
         } else {
-            System.out.println("Trips between " + startDate + " and " + endDate + ":");
-            for (Trip trip : tripsBetweenDates) {
-                System.out.println(trip);
+            out().println("Trips between " + startDate + " and " + endDate + ":");
+            for (String trip : tripsBetweenDates) {
+                out().println(trip);
+            }
+        }
+
+        if (!underWay.isEmpty()) {
+            out().println("Also under way during this period:");
+            for (String trip : underWay) {
+                out().println(trip);
             }
         }
     }
     
-    public void updatePort(Port updatedPort) {
-        // Find the port in the list and update it
-        for (int i = 0; i < ports.size(); i++) {
-            if (ports.get(i).getId().equals(updatedPort.getId())) {
-                ports.set(i, updatedPort);
-                break;
-            }
+    /**
+     * Applies a change to a port under the port's lock and journals the port's new details.
+     *
+     * @param port   The port to change.
+     * @param change The change to apply.
+     */
+    public void updatePort(Port port, Consumer<Port> change) {
+        try (PortLocks.Held held = locks.port(port)) {
+            change.accept(port);
+            recordPortModification(port);
+        }
+    }
+
+    /**
+     * Runs an action that reads a port under the port's lock.
+     *
+     * @param port   The port to read.
+     * @param action The action to run.
+     */
+    public void withPort(Port port, Runnable action) {
+        try (PortLocks.Held held = locks.port(port)) {
+            action.run();
         }
-        saveData();
     }
 
     public void listAllPorts() {
-        System.out.println("All Ports:");
-        for (Port port : ports) {
-            System.out.println(port);
+        // Ports change under their own locks, so listing them all takes every lock
+        try (PortLocks.Held held = locks.exclusive()) {
+            out().println("All Ports:");
+            for (Port port : ports) {
+                out().println(port);
+            }
         }
     }
 
     public void listAllVehicles() {
-        System.out.println("All Vehicles:");
-        for (Vehicle vehicle : vehicles) {
-            System.out.println(vehicle);
+        try (PortLocks.Held held = locks.shared()) {
+            out().println("All Vehicles:");
+            for (Vehicle vehicle : vehicles) {
+                out().println(vehicle);
+            }
         }
     }
 
     public void listAllContainers() {
-        System.out.println("All Containers:");
-        for (Container container : containers) {
-            System.out.println(container);
+        try (PortLocks.Held held = locks.shared()) {
+            synchronized (containers) {
+                out().println("All Containers:");
+                for (Container container : containers) {
+                    out().println(container);
+                }
+            }
+        }
+    }
+
+    public void findContainer() {
+        out().print("Enter container ID: ");
+        String containerId = in().nextLine();
+
+        try (PortLocks.Held held = locks.shared()) {
+            Container container;
+            synchronized (containers) {
+                container = containers.get(containerId);
+            }
+
+            if (container == null) {
+                out().println("Container not found.");
+            } else if (container.getCarryingVehicle() != null) {
+                Vehicle vehicle = container.getCarryingVehicle();
+                out().println("Container " + containerId + " is on vehicle " + vehicle.getId() + " - " + vehicle.getName());
+            } else if (container.getStoringPort() != null) {
+                Port port = container.getStoringPort();
+                out().println("Container " + containerId + " is at port " + port.getId() + " - " + port.getName());
+            } else {
+                out().println("Container " + containerId + " is not at any port or on any vehicle.");
+            }
+        }
+    }
+
+    public void listContainersAtLocation() {
+        out().print("Enter port or vehicle ID (leave empty for containers without a location): ");
+        String locationId = in().nextLine();
+
+        List<Container> containersHere = null;
+        Port port;
+        try (PortLocks.Held held = locks.shared()) {
+            port = ports.get(locationId);
+            if (locationId.isEmpty()) {
+                synchronized (containers) {
+                    containersHere = containers.values().stream()
+                            .filter(c -> !c.isPlaced())
+                            .collect(Collectors.toList());
+                }
+            } else if (port == null && vehicles.contains(locationId)) {
+                containersHere = new ArrayList<>(vehicles.get(locationId).getContainerView());
+            } else if (port == null) {
+                out().println("Port or vehicle not found.");
+                return;
+            }
+        }
+        if (port != null) {
+            // A port's containers change under the port's own lock
+            try (PortLocks.Held held = locks.port(port)) {
+                containersHere = new ArrayList<>(port.getContainerView());
+            }
+        }
+
+        if (containersHere.isEmpty()) {
+            out().println("No containers found.");
+        } else {
+            for (Container container : containersHere) {
+                out().println(container.getId() + " - " + container.getType() + " - " + container.getWeight());
+            }
+        }
+    }
+
+    /**
+     * Lists the archived trips of a port between two dates. Only trips that have dropped out of the
+     * port's recent traffic are in the archive; recent ones are shown by View All Data.
+     */
+    public void listArchivedTraffic() {
+        out().print("Enter port ID: ");
+        String portId = in().nextLine();
+        out().print("Enter start date (YYYY-MM-DD): ");
+        LocalDate startDate = LocalDate.parse(in().nextLine());
+        out().print("Enter end date (YYYY-MM-DD): ");
+        LocalDate endDate = LocalDate.parse(in().nextLine());
+
+        List<TrafficArchive.ArchivedTrip> archived = archive.query(portId, startDate, endDate);
+        if (archived.isEmpty()) {
+            out().println("No archived trips for this port between the specified dates.");
+        } else {
+            out().println("Archived trips of port " + portId + " between " + startDate + " and " + endDate + ":");
+            for (TrafficArchive.ArchivedTrip trip : archived) {
+                out().println(trip);
+            }
         }
     }
 
     public void listAllUsers() {
-        System.out.println("All Users:");
-        for (User user : users) {
-            System.out.println(user.getUsername() + " - " + user.getClass().getSimpleName());
+        try (PortLocks.Held held = locks.shared()) {
+            out().println("All Users:");
+            for (User user : users) {
+                out().println(user.getUsername() + " - " + user.getClass().getSimpleName());
+            }
         }
     }
 
     public void modifyPort() {
-        System.out.print("Enter port ID to modify: ");
-        String portId = scanner.nextLine();
-        Port port = ports.stream().filter(p -> p.getId().equals(portId)).findFirst().orElse(null);
+        out().print("Enter port ID to modify: ");
+        String portId = in().nextLine();
+        Port port;
+        try (PortLocks.Held held = locks.shared()) {
+            port = ports.get(portId);
+        }
         if (port == null) {
-            System.out.println("Port not found.");
+            out().println("Port not found.");
             return;
         }
     
-        System.out.println("Current port details:");
-        System.out.println(port);
-    
-        System.out.println("Enter new details (press Enter to keep current value):");
-    
-        System.out.print("Name [" + port.getName() + "]: ");
-        String name = scanner.nextLine();
-        if (!name.isEmpty()) {
-            port.setName(name);
+        try (PortLocks.Held held = locks.port(port)) {
+            out().println("Current port details:");
+            out().println(port);
         }
     
-        System.out.print("Latitude [" + port.getLatitude() + "]: ");
-        String latitudeStr = scanner.nextLine();
-        if (!latitudeStr.isEmpty()) {
-            double latitude = Double.parseDouble(latitudeStr);
-            port.setLatitude(latitude);
-        }
+        out().println("Enter new details (press Enter to keep current value):");
     
-        System.out.print("Longitude [" + port.getLongitude() + "]: ");
-        String longitudeStr = scanner.nextLine();
-        if (!longitudeStr.isEmpty()) {
-            double longitude = Double.parseDouble(longitudeStr);
-            port.setLongitude(longitude);
-        }
+        out().print("Name [" + port.getName() + "]: ");
+        String name = in().nextLine();
+        out().print("Latitude [" + port.getLatitude() + "]: ");
+        String latitudeStr = in().nextLine();
+        out().print("Longitude [" + port.getLongitude() + "]: ");
+        String longitudeStr = in().nextLine();
+        out().print("Storing Capacity [" + port.getStoringCapacity() + "]: ");
+        String capacityStr = in().nextLine();
+        out().print("Landing Ability [" + port.hasLandingAbility() + "]: ");
+        String landingStr = in().nextLine();
     
-        System.out.print("Storing Capacity [" + port.getStoringCapacity() + "]: ");
-        String capacityStr = scanner.nextLine();
-        if (!capacityStr.isEmpty()) {
-            int capacity = Integer.parseInt(capacityStr);
-            port.setStoringCapacity(capacity);
-        }
+        // Moving a port changes its distance to every other port
+        try (PortLocks.Held held = locks.exclusive()) {
+            if (!name.isEmpty()) {
+                port.setName(name);
+            }
+            if (!latitudeStr.isEmpty()) {
+                double latitude = Double.parseDouble(latitudeStr);
+                port.setLatitude(latitude);
+            }
+            if (!longitudeStr.isEmpty()) {
+                double longitude = Double.parseDouble(longitudeStr);
+                port.setLongitude(longitude);
+            }
+            if (!capacityStr.isEmpty()) {
+                int capacity = Integer.parseInt(capacityStr);
+                port.setStoringCapacity(capacity);
+            }
+            if (!landingStr.isEmpty()) {
+                boolean landingAbility = Boolean.parseBoolean(landingStr);
+                port.setLandingAbility(landingAbility);
+            }
     
-        System.out.print("Landing Ability [" + port.hasLandingAbility() + "]: ");
-        String landingStr = scanner.nextLine();
-        if (!landingStr.isEmpty()) {
-            boolean landingAbility = Boolean.parseBoolean(landingStr);
-            port.setLandingAbility(landingAbility);
+            out().println("Port modified successfully.");
+            recordPortModification(port);
         }
-    
-        System.out.println("Port modified successfully.");
-        saveData();
+    }
+
+    private void recordPortModification(Port port) {
+        routes = null; // The port may have moved or lost its landing ability
+        record(JournalEntry.Operation.MODIFY_PORT, port.getId(), port.getName(),
+                Double.toString(port.getLatitude()), Double.toString(port.getLongitude()),
+                Integer.toString(port.getStoringCapacity()), Boolean.toString(port.hasLandingAbility()));
     }
     
     public void modifyVehicle() {
-        System.out.print("Enter vehicle ID to modify: ");
-        String vehicleId = scanner.nextLine();
-        Vehicle vehicle = vehicles.stream().filter(v -> v.getId().equals(vehicleId)).findFirst().orElse(null);
-        if (vehicle == null) {
-            System.out.println("Vehicle not found.");
-            return;
-        }
-    
-        System.out.println("Current vehicle details:");
-        System.out.println(vehicle);
-    
-        System.out.println("Enter new details (press Enter to keep current value):");
+        out().print("Enter vehicle ID to modify: ");
+        String vehicleId = in().nextLine();
+        Vehicle vehicle;
+        try (PortLocks.Held held = locks.shared()) {
+            vehicle = vehicles.get(vehicleId);
+            if (vehicle == null) {
+                out().println("Vehicle not found.");
+                return;
+            }
     
-        System.out.print("Name [" + vehicle.getName() + "]: ");
-        String name = scanner.nextLine();
-        if (!name.isEmpty()) {
-            vehicle.setName(name);
+            out().println("Current vehicle details:");
+            out().println(vehicle);
         }
     
-        System.out.print("Fuel Capacity [" + vehicle.getFuelCapacity() + "]: ");
-        String fuelCapacityStr = scanner.nextLine();
-        if (!fuelCapacityStr.isEmpty()) {
-            double fuelCapacity = Double.parseDouble(fuelCapacityStr);
-            vehicle.setFuelCapacity(fuelCapacity);
-        }
+        out().println("Enter new details (press Enter to keep current value):");
     
-        System.out.print("Carrying Capacity [" + vehicle.getCarryingCapacity() + "]: ");
-        String carryingCapacityStr = scanner.nextLine();
-        if (!carryingCapacityStr.isEmpty()) {
-            int carryingCapacity = Integer.parseInt(carryingCapacityStr);
-            vehicle.setCarryingCapacity(carryingCapacity);
+        out().print("Name [" + vehicle.getName() + "]: ");
+        String name = in().nextLine();
+        out().print("Fuel Capacity [" + vehicle.getFuelCapacity() + "]: ");
+        String fuelCapacityStr = in().nextLine();
+        out().print("Carrying Capacity [" + vehicle.getCarryingCapacity() + "]: ");
+        String carryingCapacityStr = in().nextLine();
+        String truckTypeStr = "";
+        if (vehicle instanceof Truck) {
+            out().print("Truck Type [" + ((Truck) vehicle).getType() + "]: ");
+            truckTypeStr = in().nextLine();
         }
     
-        if (vehicle instanceof Truck) {
-            Truck truck = (Truck) vehicle;
-            System.out.print("Truck Type [" + truck.getType() + "]: ");
-            String truckTypeStr = scanner.nextLine();
+        try (PortLocks.Held held = locks.exclusive()) {
+            if (!name.isEmpty()) {
+                vehicle.setName(name);
+            }
+            if (!fuelCapacityStr.isEmpty()) {
+                double fuelCapacity = Double.parseDouble(fuelCapacityStr);
+                vehicle.setFuelCapacity(fuelCapacity);
+            }
+            if (!carryingCapacityStr.isEmpty()) {
+                int carryingCapacity = Integer.parseInt(carryingCapacityStr);
+                vehicle.setCarryingCapacity(carryingCapacity);
+            }
             if (!truckTypeStr.isEmpty()) {
                 Truck.TruckType truckType = Truck.TruckType.valueOf(truckTypeStr.toUpperCase());
-                truck.setType(truckType);
+                ((Truck) vehicle).setType(truckType);
             }
-        }
     
-        System.out.println("Vehicle modified successfully.");
-        saveData();
+            out().println("Vehicle modified successfully.");
+            record(JournalEntry.Operation.MODIFY_VEHICLE, vehicle.getId(), vehicle.getName(),
+                    Double.toString(vehicle.getFuelCapacity()), Integer.toString(vehicle.getCarryingCapacity()),
+                    vehicle instanceof Truck ? ((Truck) vehicle).getType().name() : "");
+        }
     }
     
     public void modifyContainer() {
-        System.out.print("Enter container ID to modify: ");
-        String containerId = scanner.nextLine();
-        Container container = containers.stream().filter(c -> c.getId().equals(containerId)).findFirst().orElse(null);
-        if (container == null) {
-            System.out.println("Container not found.");
-            return;
+        out().print("Enter container ID to modify: ");
+        String containerId = in().nextLine();
+        Container container;
+        try (PortLocks.Held held = locks.shared()) {
+            synchronized (containers) {
+                container = containers.get(containerId);
+            }
+            if (container == null) {
+                out().println("Container not found.");
+                return;
+            }
+    
+            out().println("Current container details:");
+            out().println(container);
         }
     
-        System.out.println("Current container details:");
-        System.out.println(container);
+        out().println("Enter new details (press Enter to keep current value):");
     
-        System.out.println("Enter new details (press Enter to keep current value):");
+        out().print("Weight [" + container.getWeight() + "]: ");
+        String weightStr = in().nextLine();
+        out().print("Type [" + container.getType() + "]: ");
+        String typeStr = in().nextLine();
     
-        System.out.print("Weight [" + container.getWeight() + "]: ");
-        String weightStr = scanner.nextLine();
-        if (!weightStr.isEmpty()) {
-            double weight = Double.parseDouble(weightStr);
-            container.setWeight(weight);
-        }
+        // The port or vehicle holding the container keeps totals of its weight and type
+        try (PortLocks.Held held = locks.exclusive()) {
+            containerWeights[container.getType().ordinal()] -= container.getWeight();
+            if (!weightStr.isEmpty()) {
+                double weight = Double.parseDouble(weightStr);
+                container.setWeight(weight);
+            }
+            if (!typeStr.isEmpty()) {
+                Container.ContainerType type = Container.ContainerType.valueOf(typeStr.toUpperCase());
+                container.setType(type);
+            }
+            containerWeights[container.getType().ordinal()] += container.getWeight();
     
-        System.out.print("Type [" + container.getType() + "]: ");
-        String typeStr = scanner.nextLine();
-        if (!typeStr.isEmpty()) {
-            Container.ContainerType type = Container.ContainerType.valueOf(typeStr.toUpperCase());
-            container.setType(type);
+            out().println("Container modified successfully.");
+            record(JournalEntry.Operation.MODIFY_CONTAINER, container.getId(),
+                    Double.toString(container.getWeight()), container.getType().name());
         }
-    
-        System.out.println("Container modified successfully.");
-        saveData();
     }
     
     public void modifyUser() {
-        System.out.print("Enter username to modify: ");
-        String username = scanner.nextLine();
-        User user = users.stream().filter(u -> u.getUsername().equals(username)).findFirst().orElse(null);
+        out().print("Enter username to modify: ");
+        String username = in().nextLine();
+        User user;
+        try (PortLocks.Held held = locks.shared()) {
+            user = users.get(username);
+        }
         if (user == null) {
-            System.out.println("User not found.");
+            out().println("User not found.");
             return;
         }
     
-        System.out.println("Current user details:");
-        System.out.println("Username: " + user.getUsername());
-        System.out.println("User Type: " + user.getClass().getSimpleName());
+        out().println("Current user details:");
+        out().println("Username: " + user.getUsername());
+        out().println("User Type: " + user.getClass().getSimpleName());
     
-        System.out.println("Enter new details (press Enter to keep current value):");
+        out().println("Enter new details (press Enter to keep current value):");
     
-        System.out.print("New Password: ");
-        String password = scanner.nextLine();
-        if (!password.isEmpty()) {
-            user.setPassword(password);
+        out().print("New Password: ");
+        String password = in().nextLine();
+        String portId = "";
+        if (user instanceof PortManager) {
+            out().print("Managed Port ID [" + ((PortManager) user).getManagedPort().getId() + "]: ");
+            portId = in().nextLine();
         }
     
-        if (user instanceof PortManager) {
-            PortManager portManager = (PortManager) user;
-            System.out.print("Managed Port ID [" + portManager.getManagedPort().getId() + "]: ");
-            String portId = scanner.nextLine();
+        try (PortLocks.Held held = locks.exclusive()) {
+            if (!password.isEmpty()) {
+                user.setPassword(password);
+            }
             if (!portId.isEmpty()) {
-                Port newPort = ports.stream().filter(p -> p.getId().equals(portId)).findFirst().orElse(null);
+                Port newPort = ports.get(portId);
                 if (newPort != null) {
-                    portManager.setManagedPort(newPort);
+                    ((PortManager) user).setManagedPort(newPort);
                 } else {
-                    System.out.println("Port not found. Managed port remains unchanged.");
+                    out().println("Port not found. Managed port remains unchanged.");
                 }
             }
-        }
     
-        System.out.println("User modified successfully.");
-        saveData();
+            out().println("User modified successfully.");
+            record(JournalEntry.Operation.MODIFY_USER, user.getUsername(), password,
+                    user instanceof PortManager ? ((PortManager) user).getManagedPort().getId() : "");
+        }
     }
 
+    /**
+     * Gets the input of the calling thread's session.
+     */
     public Scanner getScanner() {
-        return this.scanner;
+        return in();
+    }
+
+    /**
+     * Gets the output of the calling thread's session.
+     */
+    public PrintStream getOut() {
+        return out();
+    }
+
+    private Scanner in() {
+        return sessions.get().getScanner();
+    }
+
+    private PrintStream out() {
+        return sessions.get().getOut();
+    }
+
+    private User user() {
+        return sessions.get().getUser();
     }
 
     public void createSampleData() {
+        // IDs must be unique, so only seed an empty system
+        if (!ports.isEmpty() || !vehicles.isEmpty() || !containers.isEmpty()) {
+            return;
+        }
+
         // Create 5 Ports
         Port port1 = new Port("P1", "New York Port", 40.7128, -74.0060, 1000000, true);
         Port port2 = new Port("P2", "Los Angeles Port", 34.0522, -118.2437, 1200000, true);
@@ -814,7 +1927,8 @@ public class PortManagementSystem {
         Port port4 = new Port("P4", "Seattle Port", 47.6062, -122.3321, 900000, true);
         Port port5 = new Port("P5", "Houston Port", 29.7604, -95.3698, 1100000, true);
     
-        ports.addAll(Arrays.asList(port1, port2, port3, port4, port5));
+        List<Port> samplePorts = Arrays.asList(port1, port2, port3, port4, port5);
+        samplePorts.forEach(ports::add);
     
         // Create 20 Vehicles (10 Ships and 10 Trucks)
         Ship ship1 = new Ship("S1", "Maersk Sealand", 500000, 150000);
@@ -839,41 +1953,46 @@ public class PortManagementSystem {
         Truck truck9 = new Truck("T9", "Peterbilt 579", 1100, 32500, Truck.TruckType.TANKER);
         Truck truck10 = new Truck("T10", "Freightliner Cascadia", 1080, 31500, Truck.TruckType.BASIC);
     
-        vehicles.addAll(Arrays.asList(ship1, ship2, ship3, ship4, ship5, ship6, ship7, ship8, ship9, ship10,
-                truck1, truck2, truck3, truck4, truck5, truck6, truck7, truck8, truck9, truck10));
+        List<Vehicle> sampleVehicles = Arrays.asList(ship1, ship2, ship3, ship4, ship5, ship6, ship7, ship8, ship9, ship10,
+                truck1, truck2, truck3, truck4, truck5, truck6, truck7, truck8, truck9, truck10);
+        sampleVehicles.forEach(vehicles::add);
     
         // Assign vehicles to ports
-        for (int i = 0; i < vehicles.size(); i++) {
-            Port port = ports.get(i % ports.size());
-            vehicles.get(i).setCurrentPort(port);
-            port.addVehicle(vehicles.get(i));
+        for (int i = 0; i < sampleVehicles.size(); i++) {
+            Port port = samplePorts.get(i % samplePorts.size());
+            sampleVehicles.get(i).setCurrentPort(port);
         }
     
+        // Fixed seed so the sample data is the same on every run
+        Random random = new Random(42);
+
         // Create 30 Containers
         for (int i = 1; i <= 30; i++) {
             Container.ContainerType type = Container.ContainerType.values()[i % Container.ContainerType.values().length];
-            double weight = 5000 + (Math.random() * 20000); // Random weight between 5000 and 25000
+            double weight = 5000 + (random.nextDouble() * 20000); // Random weight between 5000 and 25000
             Container container = new Container("C" + i, weight, type);
             containers.add(container);
     
             // Assign containers to ports
-            Port port = ports.get(i % ports.size());
+            Port port = samplePorts.get(i % samplePorts.size());
             port.addContainer(container);
         }
     
         // Create 25 Trips
         LocalDate startDate = LocalDate.now().minusDays(30);
         for (int i = 1; i <= 25; i++) {
-            Vehicle vehicle = vehicles.get(i % vehicles.size());
-            Port departurePort = ports.get(i % ports.size());
-            Port arrivalPort = ports.get((i + 1) % ports.size());
+            Vehicle vehicle = sampleVehicles.get(i % sampleVehicles.size());
+            Port departurePort = samplePorts.get(i % samplePorts.size());
+            Port arrivalPort = samplePorts.get((i + 1) % samplePorts.size());
             LocalDate departureDate = startDate.plusDays(i);
-            LocalDate arrivalDate = departureDate.plusDays(2 + (int)(Math.random() * 5)); // Trip duration 2-7 days
+            LocalDate arrivalDate = departureDate.plusDays(2 + random.nextInt(5)); // Trip duration 2-7 days
     
             Trip trip = new Trip(vehicle, departureDate, departurePort, arrivalPort);
             trip.start();
             trip.complete(arrivalDate);
             trips.add(trip);
+            unloggedTrips.add(trip);
+            fuelRollup.add(trip);
     
             // Update vehicle location
             vehicle.setCurrentPort(arrivalPort);
@@ -881,6 +2000,6 @@ public class PortManagementSystem {
 
         // Save all data
         saveData();
-        System.out.println("Sample data created successfully.");
+        out().println("Sample data created successfully.");
     }
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the Port Management System to many sessions at once over a local TCP socket.
+ * Each connection gets its own {@link Session} running on a virtual thread, with the same menus as the
+ * console (e.g. connect with {@code nc localhost 5050}).
+ */
+public class PortServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = 5050;
+
+    private final PortManagementSystem system;
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessions =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("session-", 1).factory());
+
+    /**
+     * Constructs a new PortServer listening on the loopback address.
+     *
+     * @param system The system to serve.
+     * @param port   The TCP port to listen on, or 0 for any free port.
+     * @throws IOException If the port can't be bound.
+     */
+    public PortServer(PortManagementSystem system, int port) throws IOException {
+        this.system = system;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Gets the TCP port the server listens on.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections until the server is closed, starting a session for each.
+     */
+    public void serve() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                sessions.execute(() -> handle(socket));
+            } catch (SocketException e) {
+                // Closed while waiting for a connection
+            } catch (IOException e) {
+                System.err.println("Error accepting connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket) {
+            // Output is buffered and flushed whenever the session waits for input
+            PrintStream out = new PrintStream(new BufferedOutputStream(socket.getOutputStream()), false,
+                    StandardCharsets.UTF_8);
+            system.run(new Session(socket.getInputStream(), out));
+        } catch (IOException e) {
+            System.err.println("Error in session with " + socket.getRemoteSocketAddress() + ": " + e.getMessage());
+        } catch (RuntimeException e) {
+            // Invalid input ends the session, as it would end the console
+            System.err.println("Session with " + socket.getRemoteSocketAddress() + " ended: " + e);
+        }
+    }
+
+    /**
+     * Stops accepting connections and waits for the open sessions to end.
+     */
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.err.println("Error closing server socket: " + e.getMessage());
+        }
+        sessions.close();
+    }
+}
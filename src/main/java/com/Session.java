@@ -0,0 +1,52 @@
+package com;
+
+import com.models.User;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Scanner;
+
+/**
+ * The state of one interactive session with the Port Management System: where its input comes from,
+ * where its output goes and which user is logged in. The console is one session; in server mode each
+ * client connection is another.
+ */
+public class Session {
+    private final Scanner scanner;
+    private final PrintStream out;
+
+    // The user logged in to this session, or null
+    private User user;
+
+    /**
+     * Constructs a new Session.
+     *
+     * @param in  The input the session reads commands from.
+     * @param out The output the session writes to.
+     */
+    public Session(InputStream in, PrintStream out) {
+        this.scanner = new Scanner(in);
+        this.out = out;
+    }
+
+    /**
+     * Gets the session's input. Pending output is flushed first, so any prompt is visible before reading.
+     *
+     * @return The scanner to read input from.
+     */
+    public Scanner getScanner() {
+        out.flush();
+        return scanner;
+    }
+
+    public PrintStream getOut() {
+        return out;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+}
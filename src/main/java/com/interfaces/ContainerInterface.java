@@ -1,6 +1,8 @@
 package com.interfaces;
 
 import com.models.Container;
+import com.models.Port;
+import com.models.Vehicle;
 
 /**
  * Interface defining the common methods for Container objects.
@@ -25,6 +27,24 @@ public interface ContainerInterface {
      */
     Container.ContainerType getType();
 
+    /**
+     * Gets the port the container is stored at, found in constant time.
+     * @return The port, or null if the container isn't stored at any port.
+     */
+    Port getStoringPort();
+
+    /**
+     * Gets the vehicle carrying the container, found in constant time.
+     * @return The vehicle, or null if the container isn't on any vehicle.
+     */
+    Vehicle getCarryingVehicle();
+
+    /**
+     * Checks if the container is stored at a port or carried by a vehicle.
+     * @return True if the container has a location, false otherwise.
+     */
+    boolean isPlaced();
+
     /**
      * Calculates the fuel consumption for transporting the container.
      *
@@ -4,7 +4,11 @@ import com.models.Container;
 import com.models.Vehicle;
 import com.models.Trip;
 import com.models.Port;
+import com.models.Ship;
+import com.models.Truck;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Interface defining the common methods for Port objects.
@@ -53,12 +57,70 @@ public interface PortInterface {
      */
     int getContainerCount();
 
+    /**
+     * Gets the current number of containers of a given type in the port.
+     * @param type The container type.
+     * @return The container count for that type.
+     */
+    int getContainerCount(Container.ContainerType type);
+
+    /**
+     * Gets the total weight of the containers in the port.
+     * @return The total container weight.
+     */
+    double getTotalContainerWeight();
+
+    /**
+     * Gets the total weight of the containers of a given type in the port.
+     * @param type The container type.
+     * @return The total weight for that type.
+     */
+    double getContainerWeight(Container.ContainerType type);
+
     /**
      * Gets the current number of vehicles in the port.
      * @return The vehicle count.
      */
     int getVehicleCount();
 
+    /**
+     * Gets the number of ships docked at the port.
+     * @return The ship count.
+     */
+    int getShipCount();
+
+    /**
+     * Gets the number of trucks docked at the port.
+     * @return The truck count.
+     */
+    int getTruckCount();
+
+    /**
+     * Gets the number of trucks of a given type docked at the port.
+     * @param type The truck type.
+     * @return The truck count for that type.
+     */
+    int getTruckCount(Truck.TruckType type);
+
+    /**
+     * Gets the ships docked at the port.
+     * @return The list of ships.
+     */
+    List<Ship> getShips();
+
+    /**
+     * Gets the trucks docked at the port.
+     * @return The list of trucks.
+     */
+    List<Truck> getTrucks();
+
+    /**
+     * Gets the trucks of a given type docked at the port.
+     * @param type The truck type.
+     * @return The list of trucks of that type.
+     */
+    List<Truck> getTrucks(Truck.TruckType type);
+
     /**
      * Gets the list of current trips associated with the port.
      * @return The list of current trips.
@@ -71,6 +133,52 @@ public interface PortInterface {
      */
     List<Trip> getPastTraffic();
 
+    /**
+     * Gets a read-only view of the current trips associated with the port.
+     * Unlike {@link #getCurrentTraffic()} nothing is copied; the view follows later changes to the port.
+     * @return The current trips.
+     */
+    List<Trip> getCurrentTrafficView();
+
+    /**
+     * Gets a read-only view of the past trips associated with the port, oldest first.
+     * Unlike {@link #getPastTraffic()} nothing is copied; the view follows later changes to the port.
+     * @return The past trips.
+     */
+    List<Trip> getPastTrafficView();
+
+    /**
+     * Gets a read-only view of the containers stored in the port, without copying them.
+     * @return The containers.
+     */
+    List<Container> getContainerView();
+
+    /**
+     * Performs an action for each container stored in the port.
+     * @param action The action to perform.
+     */
+    void forEachContainer(Consumer<? super Container> action);
+
+    /**
+     * Performs an action for each vehicle docked at the port, in docking order.
+     * @param action The action to perform.
+     */
+    void forEachVehicle(Consumer<? super Vehicle> action);
+
+    /**
+     * Finds a container stored in the port by its ID.
+     * @param id The container ID.
+     * @return The container, or null if the port doesn't store it.
+     */
+    Container findContainer(String id);
+
+    /**
+     * Finds a vehicle docked at the port by its ID.
+     * @param id The vehicle ID.
+     * @return The vehicle, or null if it isn't docked at the port.
+     */
+    Vehicle findVehicle(String id);
+
     /**
      * Adds a container to the port.
      * @param container The container to add.
@@ -83,6 +191,13 @@ public interface PortInterface {
      */
     void removeContainer(Container container);
 
+    /**
+     * Removes all the containers matching a condition in one pass, keeping the order of the others.
+     * @param filter The condition of the containers to remove.
+     * @return The number of containers removed.
+     */
+    int removeContainers(Predicate<? super Container> filter);
+
     /**
      * Adds a vehicle to the port.
      * @param vehicle The vehicle to add.
@@ -95,6 +210,13 @@ public interface PortInterface {
      */
     void removeVehicle(Vehicle vehicle);
 
+    /**
+     * Checks if a vehicle is docked at the port.
+     * @param vehicle The vehicle to check.
+     * @return True if the vehicle is docked at the port, false otherwise.
+     */
+    boolean hasVehicle(Vehicle vehicle);
+
     /**
      * Calculates the distance between this port and another port.
      * @param otherPort The other port.
@@ -3,6 +3,7 @@ package com.interfaces;
 import com.models.Container;
 import com.models.Port;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Interface defining the common methods for Vehicle objects.
@@ -46,8 +47,8 @@ public interface VehicleInterface {
     Port getCurrentPort();
 
     /**
-     * Sets the current port of the vehicle.
-     * @param port The new current port.
+     * Sets the current port of the vehicle, undocking it from its previous port and docking it at the new one.
+     * @param port The new current port, or null to undock the vehicle.
      */
     void setCurrentPort(Port port);
 
@@ -57,6 +58,52 @@ public interface VehicleInterface {
      */
     List<Container> getContainers();
 
+    /**
+     * Gets a read-only view of the containers carried by the vehicle.
+     * Unlike {@link #getContainers()} nothing is copied; the view follows later changes to the vehicle.
+     * @return The containers.
+     */
+    List<Container> getContainerView();
+
+    /**
+     * Performs an action for each container carried by the vehicle.
+     * @param action The action to perform.
+     */
+    void forEachContainer(Consumer<? super Container> action);
+
+    /**
+     * Finds a container carried by the vehicle by its ID.
+     * @param id The container ID.
+     * @return The container, or null if the vehicle doesn't carry it.
+     */
+    Container findContainer(String id);
+
+    /**
+     * Gets the number of containers currently carried by the vehicle.
+     * @return The container count.
+     */
+    int getContainerCount();
+
+    /**
+     * Gets the number of containers of a given type carried by the vehicle.
+     * @param type The container type.
+     * @return The container count for that type.
+     */
+    int getContainerCount(Container.ContainerType type);
+
+    /**
+     * Gets the total weight of the containers carried by the vehicle.
+     * @return The total container weight.
+     */
+    double getTotalContainerWeight();
+
+    /**
+     * Gets the total weight of the containers of a given type carried by the vehicle.
+     * @param type The container type.
+     * @return The total weight for that type.
+     */
+    double getContainerWeight(Container.ContainerType type);
+
     /**
      * Adds a container to the vehicle.
      * @param container The container to add.
@@ -95,4 +142,48 @@ public interface VehicleInterface {
      * @return The required fuel.
      */
     double calculateRequiredFuel(Port destination);
+
+    /**
+     * Calculates the fuel needed to carry the current load between two ports, wherever the vehicle is.
+     * @param origin      The port the trip starts from.
+     * @param destination The destination port.
+     * @return The required fuel.
+     */
+    double calculateRequiredFuel(Port origin, Port destination);
+
+    /**
+     * Calculates the fuel needed to carry a load over a distance: distance * weight in tons * the consumption rate.
+     * @param weight   The weight of the load.
+     * @param distance The distance in kilometers.
+     * @return The required fuel.
+     */
+    double calculateRequiredFuel(double weight, double distance);
+
+    /**
+     * Calculates the heaviest load a given amount of fuel carries over a distance, the inverse of
+     * {@link #calculateRequiredFuel(double, double)}.
+     * @param fuel     The fuel available.
+     * @param distance The distance in kilometers.
+     * @return The maximum weight, or positive infinity if the distance is 0.
+     */
+    double calculateMaxWeight(double fuel, double distance);
+
+    /**
+     * Gets the fuel needed per kilometer to carry the current load, the rate behind {@link #calculateRequiredFuel}.
+     * @return The fuel per kilometer.
+     */
+    double getFuelPerKilometer();
+
+    /**
+     * Gets the fuel the vehicle burns per ton of load and kilometer.
+     * @return The fuel consumption rate in gallons per ton per kilometer.
+     */
+    double getFuelConsumptionRate();
+
+    /**
+     * Checks if the vehicle may carry a type of container, regardless of its current load.
+     * @param container The container to check.
+     * @return True if the vehicle can carry the container's type, false otherwise.
+     */
+    boolean canCarryContainerType(Container container);
 }
\ No newline at end of file
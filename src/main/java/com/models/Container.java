@@ -2,6 +2,8 @@ package com.models;
 
 import com.interfaces.ContainerInterface;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Container implements ContainerInterface, Serializable {
     private static final long serialVersionUID = 1L;
@@ -10,6 +12,9 @@ public class Container implements ContainerInterface, Serializable {
     private double weight;
     private ContainerType type;
 
+    // Aggregates of the ports/vehicles currently holding this container, which also locate it
+    private transient List<ContainerTotals> holders;
+
     public enum ContainerType {
         DRY_STORAGE(3.5, 4.6),
         OPEN_TOP(2.8, 3.2),
@@ -35,11 +40,15 @@ public class Container implements ContainerInterface, Serializable {
     }
 
     public void setWeight(double weight) {
+        double oldWeight = this.weight;
         this.weight = weight;
+        notifyHolders(type, oldWeight);
     }
 
     public void setType(ContainerType type) {
+        ContainerType oldType = this.type;
         this.type = type;
+        notifyHolders(oldType, weight);
     }
 
     public Container(String id, double weight, ContainerType type) {
@@ -68,4 +77,59 @@ public class Container implements ContainerInterface, Serializable {
         double consumptionRate = isShip ? type.getShipConsumption() : type.getTruckConsumption();
         return (weight / 1000) * consumptionRate * distance; // weight in tons
     }
+
+    @Override
+    public Port getStoringPort() {
+        if (holders != null) {
+            for (ContainerTotals totals : holders) {
+                if (totals.getPort() != null) {
+                    return totals.getPort();
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Vehicle getCarryingVehicle() {
+        if (holders != null) {
+            for (ContainerTotals totals : holders) {
+                if (totals.getVehicle() != null) {
+                    return totals.getVehicle();
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean isPlaced() {
+        return holders != null && !holders.isEmpty();
+    }
+
+    void attach(ContainerTotals totals) {
+        if (holders == null) {
+            holders = new ArrayList<>(1);
+        }
+        holders.add(totals);
+    }
+
+    void detach(ContainerTotals totals) {
+        if (holders != null) {
+            for (int i = 0; i < holders.size(); i++) {
+                if (holders.get(i) == totals) {
+                    holders.remove(i);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void notifyHolders(ContainerType oldType, double oldWeight) {
+        if (holders != null) {
+            for (ContainerTotals totals : holders) {
+                totals.containerChanged(oldType, oldWeight, type, weight);
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.models;
+
+/**
+ * Running totals of the containers held by a port or vehicle, overall and per container type.
+ * Kept up to date on every add/remove and whenever a held container's weight or type changes,
+ * so capacity checks and per-type statistics are O(1) instead of a scan over the containers.
+ * Each container also knows the totals it's counted in, which gives its location in O(1).
+ */
+class ContainerTotals {
+    private static final Container.ContainerType[] TYPES = Container.ContainerType.values();
+
+    // The port or vehicle holding the counted containers; exactly one is set
+    private final Port port;
+    private final Vehicle vehicle;
+
+    private final int[] countByType = new int[TYPES.length];
+    private final double[] weightByType = new double[TYPES.length];
+    private int count;
+    private double totalWeight;
+
+    ContainerTotals(Port port) {
+        this.port = port;
+        this.vehicle = null;
+    }
+
+    ContainerTotals(Vehicle vehicle) {
+        this.port = null;
+        this.vehicle = vehicle;
+    }
+
+    Port getPort() {
+        return port;
+    }
+
+    Vehicle getVehicle() {
+        return vehicle;
+    }
+
+    /**
+     * Counts a container and starts following changes to its weight and type.
+     */
+    void add(Container container) {
+        apply(container.getType(), container.getWeight(), 1);
+        container.attach(this);
+    }
+
+    /**
+     * Stops counting a container.
+     */
+    void remove(Container container) {
+        apply(container.getType(), container.getWeight(), -1);
+        container.detach(this);
+    }
+
+    /**
+     * Called by a held container after its weight or type changed.
+     */
+    void containerChanged(Container.ContainerType oldType, double oldWeight,
+                          Container.ContainerType newType, double newWeight) {
+        apply(oldType, oldWeight, -1);
+        apply(newType, newWeight, 1);
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    double getTotalWeight() {
+        return totalWeight;
+    }
+
+    int getCount(Container.ContainerType type) {
+        return countByType[type.ordinal()];
+    }
+
+    double getWeight(Container.ContainerType type) {
+        return weightByType[type.ordinal()];
+    }
+
+    private void apply(Container.ContainerType type, double weight, int sign) {
+        int index = type.ordinal();
+        count += sign;
+        countByType[index] += sign;
+        totalWeight += sign * weight;
+        weightByType[index] += sign * weight;
+        // Reset sums once empty so floating-point drift doesn't accumulate over time
+        if (countByType[index] == 0) {
+            weightByType[index] = 0;
+        }
+        if (count == 0) {
+            totalWeight = 0;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.models;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Symmetric cache of great-circle distances between registered ports.
+ *
+ * <p>Each registered port gets a slot. Distances are kept in a lower-triangular array indexed by slot
+ * pair and filled lazily the first time a pair is asked for, so fuel and routing checks pay for the
+ * trigonometry at most once per pair. Moving a port (via {@link Port#setLatitude}/{@link Port#setLongitude})
+ * invalidates its row; removing a port frees its slot for reuse.</p>
+ */
+public class DistanceMatrix {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private double[] distances = newTriangle(INITIAL_CAPACITY);
+    private int capacity = INITIAL_CAPACITY;
+    private int nextSlot;
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private int size;
+
+    /**
+     * Starts caching distances for a port.
+     * A port can only belong to one matrix at a time.
+     *
+     * @param port The port to register.
+     */
+    public void register(Port port) {
+        if (port.distanceMatrix == this) {
+            return;
+        }
+        if (port.distanceMatrix != null) {
+            port.distanceMatrix.unregister(port);
+        }
+        int slot = freeSlots.isEmpty() ? nextSlot++ : freeSlots.pop();
+        if (slot >= capacity) {
+            grow();
+        }
+        invalidate(slot);
+        port.distanceMatrix = this;
+        port.matrixSlot = slot;
+        size++;
+    }
+
+    /**
+     * Stops caching distances for a port.
+     *
+     * @param port The port to unregister.
+     */
+    public void unregister(Port port) {
+        if (port.distanceMatrix != this) {
+            return;
+        }
+        freeSlots.push(port.matrixSlot);
+        port.distanceMatrix = null;
+        port.matrixSlot = -1;
+        size--;
+    }
+
+    /**
+     * Gets the distance between two ports, computing and caching it on first use.
+     * Falls back to a direct calculation if either port isn't registered with this matrix.
+     *
+     * @param a The first port.
+     * @param b The second port.
+     * @return The distance in kilometers.
+     */
+    public double distance(Port a, Port b) {
+        if (a.distanceMatrix != this || b.distanceMatrix != this) {
+            return Port.haversine(a, b);
+        }
+        if (a.matrixSlot == b.matrixSlot) {
+            return 0;
+        }
+        int index = index(a.matrixSlot, b.matrixSlot);
+        double distance = distances[index];
+        if (Double.isNaN(distance)) {
+            distance = Port.haversine(a, b);
+            distances[index] = distance;
+        }
+        return distance;
+    }
+
+    /**
+     * Gets the number of registered ports.
+     * @return The port count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Called by a registered port after its coordinates changed.
+     */
+    void portMoved(Port port) {
+        invalidate(port.matrixSlot);
+    }
+
+    private void invalidate(int slot) {
+        for (int other = 0; other < nextSlot; other++) {
+            if (other != slot) {
+                distances[index(slot, other)] = Double.NaN;
+            }
+        }
+    }
+
+    private void grow() {
+        int newCapacity = capacity * 2;
+        // The triangular layout keeps existing pairs at the same index when it grows
+        double[] grown = Arrays.copyOf(distances, triangleSize(newCapacity));
+        Arrays.fill(grown, distances.length, grown.length, Double.NaN);
+        distances = grown;
+        capacity = newCapacity;
+    }
+
+    private static int index(int i, int j) {
+        return i > j ? triangleSize(i) + j : triangleSize(j) + i;
+    }
+
+    private static int triangleSize(int n) {
+        return n * (n - 1) / 2;
+    }
+
+    private static double[] newTriangle(int capacity) {
+        double[] triangle = new double[triangleSize(capacity)];
+        Arrays.fill(triangle, Double.NaN);
+        return triangle;
+    }
+}
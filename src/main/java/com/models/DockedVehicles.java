@@ -0,0 +1,121 @@
+package com.models;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * The vehicles docked at a port, indexed by kind: ships, and trucks by truck type.
+ * Docking, undocking and per-kind counts are O(1), and listing the vehicles of one kind costs
+ * O(k) in the number returned. Vehicles of one kind are listed in docking order.
+ * Docked vehicles are also indexed by ID for O(1) lookups.
+ */
+class DockedVehicles {
+    private static final Truck.TruckType[] TRUCK_TYPES = Truck.TruckType.values();
+    private static final int SHIPS = 0;
+
+    private final Map<String, Vehicle> all = new LinkedHashMap<>();
+    // Index 0 holds the ships, index 1 + ordinal the trucks of each type
+    private final List<Set<Vehicle>> byKind = new ArrayList<>(1 + TRUCK_TYPES.length);
+
+    DockedVehicles() {
+        for (int i = 0; i <= TRUCK_TYPES.length; i++) {
+            byKind.add(new LinkedHashSet<>());
+        }
+    }
+
+    /**
+     * Docks a vehicle; does nothing if it's already docked.
+     */
+    void add(Vehicle vehicle) {
+        if (all.putIfAbsent(vehicle.getId(), vehicle) == null) {
+            byKind.get(kindOf(vehicle)).add(vehicle);
+        }
+    }
+
+    /**
+     * Undocks a vehicle; does nothing if it isn't docked.
+     */
+    void remove(Vehicle vehicle) {
+        if (all.remove(vehicle.getId(), vehicle)) {
+            // Search every kind in case a truck's type changed while the index wasn't told
+            for (Set<Vehicle> kind : byKind) {
+                if (kind.remove(vehicle)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Called after a docked truck's type changed, to move it to its new kind.
+     */
+    void kindChanged(Vehicle vehicle) {
+        if (contains(vehicle)) {
+            byKind.forEach(kind -> kind.remove(vehicle));
+            byKind.get(kindOf(vehicle)).add(vehicle);
+        }
+    }
+
+    boolean contains(Vehicle vehicle) {
+        return all.get(vehicle.getId()) == vehicle;
+    }
+
+    Vehicle get(String id) {
+        return all.get(id);
+    }
+
+    void forEach(Consumer<? super Vehicle> action) {
+        all.values().forEach(action);
+    }
+
+    int size() {
+        return all.size();
+    }
+
+    int shipCount() {
+        return byKind.get(SHIPS).size();
+    }
+
+    int truckCount() {
+        return all.size() - shipCount();
+    }
+
+    int truckCount(Truck.TruckType type) {
+        return byKind.get(1 + type.ordinal()).size();
+    }
+
+    List<Vehicle> all() {
+        return new ArrayList<>(all.values());
+    }
+
+    List<Ship> ships() {
+        List<Ship> ships = new ArrayList<>(shipCount());
+        for (Vehicle vehicle : byKind.get(SHIPS)) {
+            ships.add((Ship) vehicle);
+        }
+        return ships;
+    }
+
+    List<Truck> trucks() {
+        List<Truck> trucks = new ArrayList<>(truckCount());
+        for (Truck.TruckType type : TRUCK_TYPES) {
+            for (Vehicle vehicle : byKind.get(1 + type.ordinal())) {
+                trucks.add((Truck) vehicle);
+            }
+        }
+        return trucks;
+    }
+
+    List<Truck> trucks(Truck.TruckType type) {
+        Set<Vehicle> kind = byKind.get(1 + type.ordinal());
+        List<Truck> trucks = new ArrayList<>(kind.size());
+        for (Vehicle vehicle : kind) {
+            trucks.add((Truck) vehicle);
+        }
+        return trucks;
+    }
+
+    private static int kindOf(Vehicle vehicle) {
+        return vehicle instanceof Truck ? 1 + ((Truck) vehicle).getType().ordinal() : SHIPS;
+    }
+}
@@ -0,0 +1,36 @@
+package com.models;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Read-only live view of a list owned by a model object. The owner may replace the list (e.g. when
+ * restoring persisted state), so the view asks for the current list on every call instead of holding it.
+ * Indexed access, {@code size} and {@code forEach} allocate nothing; writes throw
+ * {@link UnsupportedOperationException}.
+ */
+class ListView<T> extends AbstractList<T> implements RandomAccess {
+    private final Supplier<List<T>> source;
+
+    ListView(Supplier<List<T>> source) {
+        this.source = source;
+    }
+
+    @Override
+    public T get(int index) {
+        return source.get().get(index);
+    }
+
+    @Override
+    public int size() {
+        return source.get().size();
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        source.get().forEach(action);
+    }
+}
@@ -1,13 +1,34 @@
 package com.models;
 
 import com.interfaces.PortInterface;
+import com.utils.Metrics;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class Port implements PortInterface, Serializable {
     private static final long serialVersionUID = 1L;
 
+    /**
+     * The number of completed trips a port keeps in its recent traffic unless configured otherwise.
+     */
+    public static final int DEFAULT_TRAFFIC_WINDOW = 7;
+
+    private static final Metrics.Operation ADD_CONTAINER = Metrics.counter("port.addContainer");
+    private static final Metrics.Operation REMOVE_CONTAINER = Metrics.counter("port.removeContainer");
+
+    /**
+     * Receives the completed trips that drop out of a port's recent traffic window, e.g. to archive them.
+     */
+    public interface TrafficEvictionListener {
+        void evicted(Port port, Trip trip);
+    }
+
     private String id;
     private String name;
     private double latitude;
@@ -15,9 +36,28 @@ public class Port implements PortInterface, Serializable {
     private int storingCapacity;
     private boolean landingAbility;
     private List<Container> containers;
+    // Only holds the docked vehicles while the port is serialized; see docked()
     private List<Vehicle> vehicles;
     private List<Trip> currentTraffic;
+    // Only holds the recent traffic while the port is serialized; see history()
     private List<Trip> pastTraffic;
+    private transient ContainerTotals containerTotals;
+    private transient DockedVehicles dockedVehicles;
+    private transient TrafficHistory pastTrafficHistory;
+    private transient TrafficEvictionListener evictionListener;
+    // Read-only views handed out instead of copies; created on first use
+    private transient List<Container> containerView;
+    private transient List<Trip> currentTrafficView;
+    private transient List<Trip> pastTrafficView;
+
+    // Trigonometric terms of the coordinates, cached for distance calculations
+    private transient double latitudeRadians;
+    private transient double longitudeRadians;
+    private transient double cosLatitude;
+
+    // Distance cache this port is registered with, if any
+    transient DistanceMatrix distanceMatrix;
+    transient int matrixSlot = -1;
 
     public Port(String id, String name, double latitude, double longitude, int storingCapacity, boolean landingAbility) {
         this.id = id;
@@ -27,9 +67,11 @@ public class Port implements PortInterface, Serializable {
         this.storingCapacity = storingCapacity;
         this.landingAbility = landingAbility;
         this.containers = new ArrayList<>();
-        this.vehicles = new ArrayList<>();
+        this.dockedVehicles = new DockedVehicles();
         this.currentTraffic = new ArrayList<>();
-        this.pastTraffic = new ArrayList<>();
+        this.pastTrafficHistory = new TrafficHistory(DEFAULT_TRAFFIC_WINDOW);
+        this.containerTotals = new ContainerTotals(this);
+        updateCoordinateTerms();
     }
 
     @Override
@@ -69,7 +111,37 @@ public class Port implements PortInterface, Serializable {
 
     @Override
     public int getVehicleCount() {
-        return vehicles.size();
+        return docked().size();
+    }
+
+    @Override
+    public int getShipCount() {
+        return docked().shipCount();
+    }
+
+    @Override
+    public int getTruckCount() {
+        return docked().truckCount();
+    }
+
+    @Override
+    public int getTruckCount(Truck.TruckType type) {
+        return docked().truckCount(type);
+    }
+
+    @Override
+    public List<Ship> getShips() {
+        return docked().ships();
+    }
+
+    @Override
+    public List<Truck> getTrucks() {
+        return docked().trucks();
+    }
+
+    @Override
+    public List<Truck> getTrucks(Truck.TruckType type) {
+        return docked().trucks(type);
     }
 
     @Override
@@ -79,13 +151,80 @@ public class Port implements PortInterface, Serializable {
 
     @Override
     public List<Trip> getPastTraffic() {
-        return new ArrayList<>(pastTraffic);
+        return history().toList();
+    }
+
+    @Override
+    public List<Trip> getCurrentTrafficView() {
+        if (currentTrafficView == null) {
+            currentTrafficView = new ListView<>(() -> currentTraffic);
+        }
+        return currentTrafficView;
+    }
+
+    @Override
+    public List<Trip> getPastTrafficView() {
+        if (pastTrafficView == null) {
+            pastTrafficView = new ListView<>(() -> history().view());
+        }
+        return pastTrafficView;
+    }
+
+    @Override
+    public List<Container> getContainerView() {
+        if (containerView == null) {
+            containerView = new ListView<>(() -> containers);
+        }
+        return containerView;
+    }
+
+    @Override
+    public void forEachContainer(Consumer<? super Container> action) {
+        containers.forEach(action);
+    }
+
+    @Override
+    public void forEachVehicle(Consumer<? super Vehicle> action) {
+        docked().forEach(action);
+    }
+
+    @Override
+    public Container findContainer(String id) {
+        for (int i = 0, n = containers.size(); i < n; i++) {
+            Container container = containers.get(i);
+            if (container.getId().equals(id)) {
+                return container;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Vehicle findVehicle(String id) {
+        return docked().get(id);
+    }
+
+    @Override
+    public int getContainerCount(Container.ContainerType type) {
+        return containerTotals.getCount(type);
+    }
+
+    @Override
+    public double getTotalContainerWeight() {
+        return containerTotals.getTotalWeight();
+    }
+
+    @Override
+    public double getContainerWeight(Container.ContainerType type) {
+        return containerTotals.getWeight(type);
     }
 
     @Override
     public void addContainer(Container container) {
         if (getTotalContainerWeight() + container.getWeight() <= storingCapacity) {
             containers.add(container);
+            containerTotals.add(container);
+            ADD_CONTAINER.increment();
         } else {
             throw new IllegalStateException("Port storage capacity exceeded");
         }
@@ -93,49 +232,116 @@ public class Port implements PortInterface, Serializable {
 
     @Override
     public void removeContainer(Container container) {
-        containers.remove(container);
+        if (containers.remove(container)) {
+            containerTotals.remove(container);
+            REMOVE_CONTAINER.increment();
+        }
+    }
+
+    @Override
+    public int removeContainers(Predicate<? super Container> filter) {
+        int before = containers.size();
+        containers.removeIf(container -> {
+            if (filter.test(container)) {
+                containerTotals.remove(container);
+                REMOVE_CONTAINER.increment();
+                return true;
+            }
+            return false;
+        });
+        return before - containers.size();
     }
 
     @Override
     public void addVehicle(Vehicle vehicle) {
-        vehicles.add(vehicle);
+        docked().add(vehicle);
     }
 
     @Override
     public void removeVehicle(Vehicle vehicle) {
-        vehicles.remove(vehicle);
+        docked().remove(vehicle);
+    }
+
+    @Override
+    public boolean hasVehicle(Vehicle vehicle) {
+        return docked().contains(vehicle);
     }
 
     @Override
     public double calculateDistance(Port otherPort) {
-        final int R = 6371; // Earth's radius in kilometers
+        if (distanceMatrix != null) {
+            return distanceMatrix.distance(this, otherPort);
+        }
+        return haversine(this, otherPort);
+    }
 
-        double lat1 = Math.toRadians(this.latitude);
-        double lon1 = Math.toRadians(this.longitude);
-        double lat2 = Math.toRadians(otherPort.getLatitude());
-        double lon2 = Math.toRadians(otherPort.getLongitude());
+    /**
+     * Calculates the great-circle distance between two ports with the Haversine formula,
+     * using the cached radians and cosines of their coordinates.
+     */
+    static double haversine(Port from, Port to) {
+        final int R = 6371; // Earth's radius in kilometers
 
-        double dLat = lat2 - lat1;
-        double dLon = lon2 - lon1;
+        double dLat = to.latitudeRadians - from.latitudeRadians;
+        double dLon = to.longitudeRadians - from.longitudeRadians;
 
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                   Math.cos(lat1) * Math.cos(lat2) *
-                   Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        double sinHalfLat = Math.sin(dLat / 2);
+        double sinHalfLon = Math.sin(dLon / 2);
+        double a = sinHalfLat * sinHalfLat +
+                   from.cosLatitude * to.cosLatitude * sinHalfLon * sinHalfLon;
         double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
 
         return R * c;
     }
 
+    /**
+     * Gets the containers stored in the port.
+     * @return A copy of the container list.
+     */
+    public List<Container> getContainers() {
+        return new ArrayList<>(containers);
+    }
+
+    /**
+     * Gets the vehicles docked at the port.
+     * @return A copy of the vehicle list.
+     */
+    public List<Vehicle> getVehicles() {
+        return docked().all();
+    }
+
+    /**
+     * Replaces the contents of the port with previously persisted state.
+     * Capacity checks are skipped because the state was valid when it was saved.
+     */
+    public void restoreContents(List<Container> containers, List<Vehicle> vehicles,
+                                List<Trip> currentTraffic, List<Trip> pastTraffic) {
+        this.containers.forEach(containerTotals::remove);
+        this.containers = new ArrayList<>(containers);
+        this.containers.forEach(containerTotals::add);
+        this.dockedVehicles = new DockedVehicles();
+        vehicles.forEach(dockedVehicles::add);
+        this.vehicles = null;
+        this.currentTraffic = new ArrayList<>(currentTraffic);
+        // Keep everything that was saved; a smaller window is applied by setTrafficWindow
+        int window = pastTrafficHistory == null ? DEFAULT_TRAFFIC_WINDOW : pastTrafficHistory.capacity();
+        this.pastTrafficHistory = new TrafficHistory(Math.max(window, Math.max(1, pastTraffic.size())));
+        pastTraffic.forEach(pastTrafficHistory::add);
+        this.pastTraffic = null;
+    }
+
     public void setName(String name) {
         this.name = name;
     }
 
     public void setLatitude(double latitude) {
         this.latitude = latitude;
+        coordinatesChanged();
     }
 
     public void setLongitude(double longitude) {
         this.longitude = longitude;
+        coordinatesChanged();
     }
 
     public void setStoringCapacity(int storingCapacity) {
@@ -146,19 +352,108 @@ public class Port implements PortInterface, Serializable {
         this.landingAbility = landingAbility;
     }
 
-    private double getTotalContainerWeight() {
-        return containers.stream().mapToDouble(Container::getWeight).sum();
-    }
-
     public void addTrip(Trip trip) {
         currentTraffic.add(trip);
     }
 
     public void completeTrip(Trip trip) {
         currentTraffic.remove(trip);
-        pastTraffic.add(trip);
-        if (pastTraffic.size() > 7) {
-            pastTraffic.remove(0);
+        evicted(history().add(trip));
+    }
+
+    /**
+     * Gets the maximum number of completed trips kept in the recent traffic.
+     * @return The traffic window.
+     */
+    public int getTrafficWindow() {
+        return history().capacity();
+    }
+
+    /**
+     * Sets the maximum number of completed trips kept in the recent traffic.
+     * Trips that no longer fit are handed to the eviction listener, oldest first.
+     *
+     * @param window The new traffic window (at least 1).
+     */
+    public void setTrafficWindow(int window) {
+        history().resize(window).forEach(this::evicted);
+    }
+
+    /**
+     * Sets the listener receiving trips that drop out of the recent traffic window.
+     * @param listener The listener, or null to discard evicted trips.
+     */
+    public void setTrafficEvictionListener(TrafficEvictionListener listener) {
+        this.evictionListener = listener;
+    }
+
+    private void evicted(Trip trip) {
+        if (trip != null && evictionListener != null) {
+            evictionListener.evicted(this, trip);
         }
     }
+
+    /**
+     * Gets the recent traffic buffer, built from the serialized list on first use after deserialization.
+     */
+    private TrafficHistory history() {
+        if (pastTrafficHistory == null) {
+            pastTrafficHistory = new TrafficHistory(Math.max(DEFAULT_TRAFFIC_WINDOW, pastTraffic.size()));
+            pastTraffic.forEach(pastTrafficHistory::add);
+            pastTraffic = null;
+        }
+        return pastTrafficHistory;
+    }
+
+    /**
+     * Called by a docked truck after its type changed.
+     */
+    void vehicleKindChanged(Vehicle vehicle) {
+        docked().kindChanged(vehicle);
+    }
+
+    /**
+     * Gets the docked vehicle index. After deserialization it is built on first use rather than in readObject,
+     * because the vehicles in the serialized list may not be fully read yet at that point.
+     */
+    private DockedVehicles docked() {
+        if (dockedVehicles == null) {
+            dockedVehicles = new DockedVehicles();
+            vehicles.forEach(dockedVehicles::add);
+            vehicles = null;
+        }
+        return dockedVehicles;
+    }
+
+    private void coordinatesChanged() {
+        updateCoordinateTerms();
+        if (distanceMatrix != null) {
+            distanceMatrix.portMoved(this);
+        }
+    }
+
+    private void updateCoordinateTerms() {
+        latitudeRadians = Math.toRadians(latitude);
+        longitudeRadians = Math.toRadians(longitude);
+        cosLatitude = Math.cos(latitudeRadians);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        vehicles = docked().all();
+        pastTraffic = history().toList();
+        try {
+            out.defaultWriteObject();
+        } finally {
+            vehicles = null;
+            pastTraffic = null;
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        containerTotals = new ContainerTotals(this);
+        containers.forEach(containerTotals::add);
+        updateCoordinateTerms();
+        matrixSlot = -1;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.models;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Fixed-capacity ring buffer of a port's most recent completed trips, oldest first.
+ * Adding to a full buffer overwrites the oldest trip in O(1) and hands it back to the caller.
+ */
+class TrafficHistory {
+    private Trip[] trips;
+    private int head; // index of the oldest trip
+    private int size;
+    private List<Trip> view;
+
+    TrafficHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Traffic window must be at least 1");
+        }
+        trips = new Trip[capacity];
+    }
+
+    /**
+     * Adds a trip as the most recent one.
+     *
+     * @return The oldest trip if it had to make room, or null.
+     */
+    Trip add(Trip trip) {
+        if (size < trips.length) {
+            trips[(head + size) % trips.length] = trip;
+            size++;
+            return null;
+        }
+        Trip evicted = trips[head];
+        trips[head] = trip;
+        head = (head + 1) % trips.length;
+        return evicted;
+    }
+
+    /**
+     * Changes the capacity, keeping the most recent trips.
+     *
+     * @return The oldest trips that no longer fit, oldest first.
+     */
+    List<Trip> resize(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Traffic window must be at least 1");
+        }
+        List<Trip> evicted = new ArrayList<>();
+        while (size > capacity) {
+            evicted.add(trips[head]);
+            trips[head] = null;
+            head = (head + 1) % trips.length;
+            size--;
+        }
+        Trip[] resized = new Trip[capacity];
+        for (int i = 0; i < size; i++) {
+            resized[i] = trips[(head + i) % trips.length];
+        }
+        trips = resized;
+        head = 0;
+        return evicted;
+    }
+
+    int capacity() {
+        return trips.length;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the i-th trip, oldest first.
+     */
+    Trip get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return trips[(head + index) % trips.length];
+    }
+
+    void forEach(Consumer<? super Trip> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(trips[(head + i) % trips.length]);
+        }
+    }
+
+    /**
+     * Gets a read-only view of the buffer, oldest first, without copying it.
+     */
+    List<Trip> view() {
+        if (view == null) {
+            view = new AbstractList<Trip>() {
+                @Override
+                public Trip get(int index) {
+                    return TrafficHistory.this.get(index);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public void forEach(Consumer<? super Trip> action) {
+                    TrafficHistory.this.forEach(action);
+                }
+            };
+        }
+        return view;
+    }
+
+    List<Trip> toList() {
+        List<Trip> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(trips[(head + i) % trips.length]);
+        }
+        return list;
+    }
+}
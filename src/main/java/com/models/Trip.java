@@ -1,17 +1,24 @@
 package com.models;
 
+import com.utils.Metrics;
+import com.utils.TripEvent;
 import java.io.Serializable;
 import java.time.LocalDate;
 
 public class Trip implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    private static final Metrics.Operation START = Metrics.counter("trip.start");
+    private static final Metrics.Operation COMPLETE = Metrics.counter("trip.complete");
+
     private Vehicle vehicle;
     private LocalDate departureDate;
     private LocalDate arrivalDate;
     private Port departurePort;
     private Port arrivalPort;
     private TripStatus status;
+    // Fuel burned over the trip, captured when it completes
+    private double fuelUsed;
 
     public enum TripStatus {
         PENDING,
@@ -27,6 +34,19 @@ public class Trip implements Serializable {
         this.status = TripStatus.PENDING;
     }
 
+    /**
+     * Recreates a trip exactly as it was persisted, including its status and arrival date.
+     */
+    public Trip(Vehicle vehicle, LocalDate departureDate, LocalDate arrivalDate,
+                Port departurePort, Port arrivalPort, TripStatus status) {
+        this.vehicle = vehicle;
+        this.departureDate = departureDate;
+        this.arrivalDate = arrivalDate;
+        this.departurePort = departurePort;
+        this.arrivalPort = arrivalPort;
+        this.status = status;
+    }
+
     public Vehicle getVehicle() {
         return vehicle;
     }
@@ -51,34 +71,86 @@ public class Trip implements Serializable {
         return status;
     }
 
+    /**
+     * Gets the fuel burned over the trip, from the load the vehicle carried between the trip's own ports.
+     * @return The fuel used, or 0 if the trip hasn't completed.
+     */
+    public double getFuelUsed() {
+        return fuelUsed;
+    }
+
+    /**
+     * Sets the fuel used from previously persisted state.
+     */
+    public void restoreFuelUsed(double fuelUsed) {
+        this.fuelUsed = fuelUsed;
+    }
+
     public void start() {
+        TripEvent event = new TripEvent();
+        event.begin();
         if (status == TripStatus.PENDING) {
             status = TripStatus.IN_PROGRESS;
             departurePort.removeVehicle(vehicle);
+            START.increment();
+            commit(event, TripStatus.PENDING);
         } else {
             throw new IllegalStateException("Trip cannot be started");
         }
     }
 
     public void complete(LocalDate arrivalDate) {
+        TripEvent event = new TripEvent();
+        event.begin();
         if (status == TripStatus.IN_PROGRESS) {
             this.arrivalDate = arrivalDate;
             status = TripStatus.COMPLETED;
-            arrivalPort.addVehicle(vehicle);
+            // The load doesn't change under way, so this is what the vehicle burned between the two ports
+            fuelUsed = vehicle.calculateRequiredFuel(departurePort, arrivalPort);
             vehicle.setCurrentPort(arrivalPort);
+            // The trip moves from the current to the recent traffic of both ports
+            departurePort.completeTrip(this);
+            if (arrivalPort != departurePort) {
+                arrivalPort.completeTrip(this);
+            }
+            COMPLETE.increment();
+            commit(event, TripStatus.IN_PROGRESS);
         } else {
             throw new IllegalStateException("Trip cannot be completed");
         }
     }
 
+    private void commit(TripEvent event, TripStatus fromStatus) {
+        if (event.shouldCommit()) {
+            event.vehicle = vehicle.getId();
+            event.departurePort = departurePort.getId();
+            event.arrivalPort = arrivalPort.getId();
+            event.fromStatus = fromStatus.name();
+            event.toStatus = status.name();
+            event.fuelUsed = fuelUsed;
+            event.commit();
+        }
+    }
+
     @Override
     public String toString() {
+        return describe(vehicle.getId(), departureDate, arrivalDate, departurePort.getId(), arrivalPort.getId(), status);
+    }
+
+    /**
+     * Describes a trip from its fields, in the same form as {@link #toString()}, e.g. for a trip read from the
+     * trip log rather than loaded as an object.
+     *
+     * @return The description.
+     */
+    public static String describe(String vehicleId, LocalDate departureDate, LocalDate arrivalDate,
+                                  String departurePortId, String arrivalPortId, TripStatus status) {
         return "Trip{" +
-                "vehicle=" + vehicle.getId() +
+                "vehicle=" + vehicleId +
                 ", departureDate=" + departureDate +
                 ", arrivalDate=" + arrivalDate +
-                ", departurePort=" + departurePort.getId() +
-                ", arrivalPort=" + arrivalPort.getId() +
+                ", departurePort=" + departurePortId +
+                ", arrivalPort=" + arrivalPortId +
                 ", status=" + status +
                 '}';
     }
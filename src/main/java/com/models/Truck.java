@@ -22,6 +22,9 @@ public class Truck extends Vehicle {
     
     public void setType(TruckType type) {
         this.type = type;
+        if (currentPort != null) {
+            currentPort.vehicleKindChanged(this);
+        }
     }
 
     public Truck(String id, String name, double fuelCapacity, int carryingCapacity, TruckType type) {
@@ -34,13 +37,8 @@ public class Truck extends Vehicle {
     }
 
     @Override
-    public double calculateRequiredFuel(Port destination) {
-        if (currentPort == null) {
-            throw new IllegalStateException("Truck is not at any port");
-        }
-        double distance = currentPort.calculateDistance(destination);
-        double totalWeight = getTotalContainerWeight();
-        return distance * totalWeight * type.getFuelConsumptionRate() / 1000; // Convert to tons
+    public double getFuelConsumptionRate() {
+        return type.getFuelConsumptionRate();
     }
 
     @Override
@@ -57,7 +55,8 @@ public class Truck extends Vehicle {
         }
     }
 
-    private boolean canCarryContainerType(Container container) {
+    @Override
+    public boolean canCarryContainerType(Container container) {
         switch (type) {
             case BASIC:
                 return container.getType() == Container.ContainerType.DRY_STORAGE ||
@@ -2,6 +2,7 @@ package com.models;
 
 import com.PortManagementSystem;
 
+import java.io.PrintStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -27,13 +28,17 @@ public abstract class User implements Serializable {
         return username;
     }
 
+    public String getPassword() {
+        return password;
+    }
+
     public boolean authenticate(String password) {
         return this.password.equals(password);
     }
 
     public abstract boolean hasPermission(String operation);
 
-    public abstract void displayMenu();
+    public abstract void displayMenu(PrintStream out);
 
     public abstract void processOperation(String operation, PortManagementSystem system);
 }
\ No newline at end of file
@@ -1,13 +1,23 @@
 package com.models;
 
 import com.interfaces.VehicleInterface;
+import com.utils.FuelEvent;
+import com.utils.Metrics;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public abstract class Vehicle implements VehicleInterface, Serializable {
     private static final long serialVersionUID = 1L;
 
+    private static final Metrics.Operation ADD_CONTAINER = Metrics.counter("vehicle.addContainer");
+    private static final Metrics.Operation REMOVE_CONTAINER = Metrics.counter("vehicle.removeContainer");
+    private static final Metrics.Operation MOVE = Metrics.counter("vehicle.move");
+    private static final Metrics.Operation REFUEL = Metrics.counter("vehicle.refuel");
+
     protected String id;
     protected String name;
     protected double currentFuel;
@@ -15,6 +25,8 @@ public abstract class Vehicle implements VehicleInterface, Serializable {
     protected int carryingCapacity;
     protected Port currentPort;
     protected List<Container> containers;
+    private transient ContainerTotals containerTotals;
+    private transient List<Container> containerView;
 
     public Vehicle(String id, String name, double fuelCapacity, int carryingCapacity) {
         this.id = id;
@@ -23,6 +35,7 @@ public abstract class Vehicle implements VehicleInterface, Serializable {
         this.fuelCapacity = fuelCapacity;
         this.carryingCapacity = carryingCapacity;
         this.containers = new ArrayList<>();
+        this.containerTotals = new ContainerTotals(this);
     }
 
     @Override
@@ -57,7 +70,13 @@ public abstract class Vehicle implements VehicleInterface, Serializable {
 
     @Override
     public void setCurrentPort(Port port) {
+        if (currentPort != null && currentPort != port) {
+            currentPort.removeVehicle(this);
+        }
         this.currentPort = port;
+        if (port != null) {
+            port.addVehicle(this);
+        }
     }
 
     @Override
@@ -65,10 +84,56 @@ public abstract class Vehicle implements VehicleInterface, Serializable {
         return new ArrayList<>(containers);
     }
 
+    @Override
+    public List<Container> getContainerView() {
+        if (containerView == null) {
+            containerView = new ListView<>(() -> containers);
+        }
+        return containerView;
+    }
+
+    @Override
+    public void forEachContainer(Consumer<? super Container> action) {
+        containers.forEach(action);
+    }
+
+    @Override
+    public Container findContainer(String id) {
+        for (int i = 0, n = containers.size(); i < n; i++) {
+            Container container = containers.get(i);
+            if (container.getId().equals(id)) {
+                return container;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int getContainerCount() {
+        return containerTotals.getCount();
+    }
+
+    @Override
+    public int getContainerCount(Container.ContainerType type) {
+        return containerTotals.getCount(type);
+    }
+
+    @Override
+    public double getTotalContainerWeight() {
+        return containerTotals.getTotalWeight();
+    }
+
+    @Override
+    public double getContainerWeight(Container.ContainerType type) {
+        return containerTotals.getWeight(type);
+    }
+
     @Override
     public void addContainer(Container container) {
         if (getTotalContainerWeight() + container.getWeight() <= carryingCapacity) {
             containers.add(container);
+            containerTotals.add(container);
+            ADD_CONTAINER.increment();
         } else {
             throw new IllegalStateException("Vehicle carrying capacity exceeded");
         }
@@ -76,7 +141,10 @@ public abstract class Vehicle implements VehicleInterface, Serializable {
 
     @Override
     public void removeContainer(Container container) {
-        containers.remove(container);
+        if (containers.remove(container)) {
+            containerTotals.remove(container);
+            REMOVE_CONTAINER.increment();
+        }
     }
 
     @Override
@@ -87,16 +155,26 @@ public abstract class Vehicle implements VehicleInterface, Serializable {
 
     @Override
     public void move(Port destination) {
+        FuelEvent event = new FuelEvent();
+        event.begin();
         if (!canMove(destination)) {
             throw new IllegalStateException("Insufficient fuel to move to the destination");
         }
+        Port origin = currentPort;
         double requiredFuel = calculateRequiredFuel(destination);
         currentFuel -= requiredFuel;
-        if (currentPort != null) {
-            currentPort.removeVehicle(this);
-        }
-        destination.addVehicle(this);
         setCurrentPort(destination);
+        MOVE.increment();
+        if (event.shouldCommit()) {
+            event.vehicle = id;
+            event.origin = origin.getId();
+            event.destination = destination.getId();
+            event.distance = origin.calculateDistance(destination);
+            event.load = getTotalContainerWeight();
+            event.fuelRequired = requiredFuel;
+            event.fuelRemaining = currentFuel;
+            event.commit();
+        }
     }
 
     @Override
@@ -106,12 +184,57 @@ public abstract class Vehicle implements VehicleInterface, Serializable {
         } else {
             currentFuel += amount;
         }
+        REFUEL.increment();
+    }
+
+    @Override
+    public double calculateRequiredFuel(Port destination) {
+        if (currentPort == null) {
+            throw new IllegalStateException(getClass().getSimpleName() + " is not at any port");
+        }
+        return calculateRequiredFuel(currentPort, destination);
     }
 
-    public abstract double calculateRequiredFuel(Port destination);
+    @Override
+    public double calculateRequiredFuel(Port origin, Port destination) {
+        return calculateRequiredFuel(getTotalContainerWeight(), origin.calculateDistance(destination));
+    }
 
-    protected double getTotalContainerWeight() {
-        return containers.stream().mapToDouble(Container::getWeight).sum();
+    @Override
+    public double calculateRequiredFuel(double weight, double distance) {
+        return distance * weight * getFuelConsumptionRate() / 1000; // Convert to tons
+    }
+
+    @Override
+    public double calculateMaxWeight(double fuel, double distance) {
+        if (distance <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return fuel * 1000 / (distance * getFuelConsumptionRate());
+    }
+
+    @Override
+    public double getFuelPerKilometer() {
+        return calculateRequiredFuel(getTotalContainerWeight(), 1);
+    }
+
+    @Override
+    public abstract double getFuelConsumptionRate();
+
+    @Override
+    public boolean canCarryContainerType(Container container) {
+        return true;
+    }
+
+    /**
+     * Replaces the fuel level and load of the vehicle with previously persisted state.
+     * Capacity and type checks are skipped because the state was valid when it was saved.
+     */
+    public void restoreContents(double currentFuel, List<Container> containers) {
+        this.currentFuel = currentFuel;
+        this.containers.forEach(containerTotals::remove);
+        this.containers = new ArrayList<>(containers);
+        this.containers.forEach(containerTotals::add);
     }
 
 
@@ -127,4 +250,10 @@ public abstract class Vehicle implements VehicleInterface, Serializable {
         this.carryingCapacity = carryingCapacity;
     }
 
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        containerTotals = new ContainerTotals(this);
+        containers.forEach(containerTotals::add);
+    }
+
 }
\ No newline at end of file
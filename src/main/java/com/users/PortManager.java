@@ -1,9 +1,14 @@
 package com.users;
 
+import com.models.Container;
+import com.models.Truck;
 import com.models.User;
 import com.models.Port;
 import com.PortManagementSystem;
+import com.utils.Metrics;
+import java.io.PrintStream;
 import java.util.Arrays;
+import java.util.function.Consumer;
 
 /**
  * Represents a Port Manager user in the Port Management System.
@@ -12,6 +17,11 @@ import java.util.Arrays;
 public class PortManager extends User {
     private static final long serialVersionUID = 1L; // Serialization version UID
 
+    // Timers of the menu options, by option number
+    private static final Metrics.Menu MENU_TIMERS = Metrics.menu("manager", "logout",
+            "addContainer", "removeContainer", "viewPortData", "modifyPortData", "listShipsInPort",
+            "calculateContainerWeights", "findContainer", "planRoute", "planLoad");
+
     /**
      * The port managed by this PortManager.
      */
@@ -68,25 +78,40 @@ public class PortManager extends User {
      * Displays the Port Manager menu.
      */
     @Override
-    public void displayMenu() {
-        System.out.println("Port Manager Menu:");
-        System.out.println("1. Add Container");
-        System.out.println("2. Remove Container");
-        System.out.println("3. View Port Data");
-        System.out.println("4. Modify Port Data");
-        System.out.println("5. List Ships in Port");
-        System.out.println("6. Calculate Container Weights");
-        System.out.println("0. Logout");
+    public void displayMenu(PrintStream out) {
+        out.println("Port Manager Menu:");
+        out.println("1. Add Container");
+        out.println("2. Remove Container");
+        out.println("3. View Port Data");
+        out.println("4. Modify Port Data");
+        out.println("5. List Ships in Port");
+        out.println("6. Calculate Container Weights");
+        out.println("7. Find Container");
+        out.println("8. Plan Route");
+        out.println("9. Plan Loading");
+        out.println("0. Logout");
     }
 
     /**
-     * Processes the selected operation from the Port Manager menu.
+     * Processes the selected operation from the Port Manager menu, timing it under the option's name.
      *
      * @param operation The operation code selected by the user.
      * @param system    The PortManagementSystem instance.
      */
     @Override
     public void processOperation(String operation, PortManagementSystem system) {
+        Metrics.Operation timer = MENU_TIMERS.option(operation);
+        long started = timer.start();
+        try {
+            dispatch(operation, system);
+        } catch (RuntimeException e) {
+            timer.recordFailure(started);
+            throw e;
+        }
+        timer.record(started);
+    }
+
+    private void dispatch(String operation, PortManagementSystem system) {
         switch (operation) {
             case "1":
                 system.addContainer(); // Delegate adding container to the system
@@ -95,7 +120,7 @@ public class PortManager extends User {
                 system.removeContainer(); // Delegate removing container to the system
                 break;
             case "3":
-                viewPortData(); // View details of the managed port
+                viewPortData(system); // View details of the managed port
                 break;
             case "4":
                 modifyPortData(system); // Modify data of the managed port
@@ -106,64 +131,87 @@ public class PortManager extends User {
             case "6":
                 system.calculateContainerWeights(); // Delegate weight calculation to the system
                 break;
+            case "7":
+                system.findContainer(); // Delegate container lookup to the system
+                break;
+            case "8":
+                system.planRoute(); // Delegate route planning to the system
+                break;
+            case "9":
+                system.planLoad(); // Delegate load planning to the system
+                break;
             case "0":
-                System.out.println("Logging out...");
+                system.getOut().println("Logging out...");
                 break;
             default:
-                System.out.println("Invalid option. Please try again.");
+                system.getOut().println("Invalid option. Please try again.");
         }
     }
 
     /**
-     * Displays the details of the managed port.
+     * Displays the details of the managed port, read under the port's lock.
      */
-    private void viewPortData() {
-        System.out.println("Port Data:");
-        System.out.println("ID: " + managedPort.getId());
-        System.out.println("Name: " + managedPort.getName());
-        System.out.println("Latitude: " + managedPort.getLatitude());
-        System.out.println("Longitude: " + managedPort.getLongitude());
-        System.out.println("Storing Capacity: " + managedPort.getStoringCapacity());
-        System.out.println("Landing Ability: " + managedPort.hasLandingAbility());
-        System.out.println("Current Container Count: " + managedPort.getContainerCount());
-        System.out.println("Current Vehicle Count: " + managedPort.getVehicleCount());
+    private void viewPortData(PortManagementSystem system) {
+        PrintStream out = system.getOut();
+        Port port = managedPort;
+        system.withPort(port, () -> {
+            out.println("Port Data:");
+            out.println("ID: " + port.getId());
+            out.println("Name: " + port.getName());
+            out.println("Latitude: " + port.getLatitude());
+            out.println("Longitude: " + port.getLongitude());
+            out.println("Storing Capacity: " + port.getStoringCapacity());
+            out.println("Landing Ability: " + port.hasLandingAbility());
+            out.println("Current Container Count: " + port.getContainerCount());
+            for (Container.ContainerType type : Container.ContainerType.values()) {
+                out.printf("  %s: %d (%.2f)\n", type, port.getContainerCount(type), port.getContainerWeight(type));
+            }
+            out.println("Current Vehicle Count: " + port.getVehicleCount());
+            out.println("  Ships: " + port.getShipCount());
+            for (Truck.TruckType type : Truck.TruckType.values()) {
+                out.printf("  %s trucks: %d\n", type, port.getTruckCount(type));
+            }
+        });
     }
 
     /**
-     * Allows modification of the managed port's data.
+     * Allows modification of the managed port's data. The change is applied under the port's lock.
      *
      * @param system The PortManagementSystem instance.
      */
     private void modifyPortData(PortManagementSystem system) {
-        System.out.println("Modify Port Data:");
-        System.out.println("1. Change Name");
-        System.out.println("2. Change Storing Capacity");
-        System.out.println("3. Change Landing Ability");
-        System.out.println("0. Back to Main Menu");
+        PrintStream out = system.getOut();
+        out.println("Modify Port Data:");
+        out.println("1. Change Name");
+        out.println("2. Change Storing Capacity");
+        out.println("3. Change Landing Ability");
+        out.println("0. Back to Main Menu");
 
         String choice = system.getScanner().nextLine();
+        Consumer<Port> change;
         switch (choice) {
             case "1":
-                System.out.print("Enter new name: ");
+                out.print("Enter new name: ");
                 String newName = system.getScanner().nextLine();
-                managedPort.setName(newName); // Update port name
+                change = port -> port.setName(newName); // Update port name
                 break;
             case "2":
-                System.out.print("Enter new storing capacity: ");
+                out.print("Enter new storing capacity: ");
                 int newCapacity = Integer.parseInt(system.getScanner().nextLine());
-                managedPort.setStoringCapacity(newCapacity); // Update storing capacity
+                change = port -> port.setStoringCapacity(newCapacity); // Update storing capacity
                 break;
             case "3":
-                System.out.print("Enter new landing ability (true/false): ");
+                out.print("Enter new landing ability (true/false): ");
                 boolean newLandingAbility = Boolean.parseBoolean(system.getScanner().nextLine());
-                managedPort.setLandingAbility(newLandingAbility); // Update landing ability
+                change = port -> port.setLandingAbility(newLandingAbility); // Update landing ability
                 break;
             case "0":
                 return; // Return to main menu
             default:
-                System.out.println("Invalid option. Please try again.");
+                out.println("Invalid option. Please try again.");
+                return;
         }
-        System.out.println("Port data updated successfully.");
-        system.updatePort(managedPort); // Update the port in the system
+        system.updatePort(managedPort, change); // Apply the change and record it in the system
+        out.println("Port data updated successfully.");
     }
 }
\ No newline at end of file
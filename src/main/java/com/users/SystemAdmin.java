@@ -2,6 +2,8 @@ package com.users;
 
 import com.models.User;
 import com.PortManagementSystem;
+import com.utils.Metrics;
+import java.io.PrintStream;
 import java.util.Arrays;
 
 /**
@@ -11,6 +13,14 @@ import java.util.Arrays;
 public class SystemAdmin extends User {
     private static final long serialVersionUID = 1L;
 
+    // Timers of the menu options, by option number
+    private static final Metrics.Menu MENU_TIMERS = Metrics.menu("admin", "logout",
+            "addVehicle", "removeVehicle", "addPort", "removePort", "addContainer", "removeContainer",
+            "addManager", "removeManager", "viewAllData", "modifyData", "calculateFuelUsage",
+            "calculateContainerWeights", "listShipsInPort", "listTripsOnDate", "listTripsBetweenDates",
+            "findContainer", "listContainersAtLocation", "listArchivedTraffic", "planRoute", "planLoad",
+            "runSimulation", "runWhatIf", "viewMetrics");
+
     /**
      * Constructs a new SystemAdmin user.
      *
@@ -45,28 +55,48 @@ public class SystemAdmin extends User {
      * Displays the System Admin menu.
      */
     @Override
-    public void displayMenu() {
-        System.out.println("System Admin Menu:");
-        System.out.println("1. Add Vehicle");
-        System.out.println("2. Remove Vehicle");
-        System.out.println("3. Add Port");
-        System.out.println("4. Remove Port");
-        System.out.println("5. Add Container");
-        System.out.println("6. Remove Container");
-        System.out.println("7. Add Manager");
-        System.out.println("8. Remove Manager");
-        System.out.println("9. View All Data");
-        System.out.println("10. Modify Data");
-        System.out.println("11. Calculate Fuel Usage");
-        System.out.println("12. Calculate Container Weights");
-        System.out.println("13. List Ships in Port");
-        System.out.println("14. List Trips on Date");
-        System.out.println("15. List Trips between Dates");
-        System.out.println("0. Logout");
+    public void displayMenu(PrintStream out) {
+        out.println("System Admin Menu:");
+        out.println("1. Add Vehicle");
+        out.println("2. Remove Vehicle");
+        out.println("3. Add Port");
+        out.println("4. Remove Port");
+        out.println("5. Add Container");
+        out.println("6. Remove Container");
+        out.println("7. Add Manager");
+        out.println("8. Remove Manager");
+        out.println("9. View All Data");
+        out.println("10. Modify Data");
+        out.println("11. Calculate Fuel Usage");
+        out.println("12. Calculate Container Weights");
+        out.println("13. List Ships in Port");
+        out.println("14. List Trips on Date");
+        out.println("15. List Trips between Dates");
+        out.println("16. Find Container");
+        out.println("17. List Containers at Location");
+        out.println("18. View Archived Port Traffic");
+        out.println("19. Plan Route");
+        out.println("20. Plan Loading");
+        out.println("21. Run Simulation");
+        out.println("22. Run What-If Analysis");
+        out.println("23. View Metrics");
+        out.println("0. Logout");
     }
 
     @Override
     public void processOperation(String operation, PortManagementSystem system) {
+        Metrics.Operation timer = MENU_TIMERS.option(operation);
+        long started = timer.start();
+        try {
+            dispatch(operation, system);
+        } catch (RuntimeException e) {
+            timer.recordFailure(started);
+            throw e;
+        }
+        timer.record(started);
+    }
+
+    private void dispatch(String operation, PortManagementSystem system) {
         switch (operation) {
             case "1":
                 system.addVehicle();
@@ -113,16 +143,40 @@ public class SystemAdmin extends User {
             case "15":
                 system.listTripsBetweenDates();
                 break;
+            case "16":
+                system.findContainer();
+                break;
+            case "17":
+                system.listContainersAtLocation();
+                break;
+            case "18":
+                system.listArchivedTraffic();
+                break;
+            case "19":
+                system.planRoute();
+                break;
+            case "20":
+                system.planLoad();
+                break;
+            case "21":
+                system.runSimulation();
+                break;
+            case "22":
+                system.runWhatIf();
+                break;
+            case "23":
+                system.viewMetrics();
+                break;
             case "0":
-                System.out.println("Logging out...");
+                system.getOut().println("Logging out...");
                 break;
             default:
-                System.out.println("Invalid option. Please try again.");
+                system.getOut().println("Invalid option. Please try again.");
         }
     }
 
     private void viewAllData(PortManagementSystem system) {
-        System.out.println("Viewing all data:");
+        system.getOut().println("Viewing all data:");
         system.listAllPorts();
         system.listAllVehicles();
         system.listAllContainers();
@@ -130,12 +184,12 @@ public class SystemAdmin extends User {
     }
 
     private void modifyData(PortManagementSystem system) {
-        System.out.println("Modify Data:");
-        System.out.println("1. Modify Port");
-        System.out.println("2. Modify Vehicle");
-        System.out.println("3. Modify Container");
-        System.out.println("4. Modify User");
-        System.out.println("0. Back to Main Menu");
+        system.getOut().println("Modify Data:");
+        system.getOut().println("1. Modify Port");
+        system.getOut().println("2. Modify Vehicle");
+        system.getOut().println("3. Modify Container");
+        system.getOut().println("4. Modify User");
+        system.getOut().println("0. Back to Main Menu");
 
         String choice = system.getScanner().nextLine();
         switch (choice) {
@@ -154,7 +208,7 @@ public class SystemAdmin extends User {
             case "0":
                 return;
             default:
-                System.out.println("Invalid option. Please try again.");
+                system.getOut().println("Invalid option. Please try again.");
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,112 @@
+package com.utils;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of running a batch of commands: which commands failed and why, and how fast the batch ran.
+ */
+public class BatchReport {
+    // Failures listed by print(); the rest are only counted
+    private static final int MAX_LISTED_FAILURES = 50;
+
+    /**
+     * A command that was rejected, with the reason.
+     */
+    public static class Failure {
+        private final BatchScript.Command command;
+        private final String message;
+
+        Failure(BatchScript.Command command, String message) {
+            this.command = command;
+            this.message = message;
+        }
+
+        public BatchScript.Command getCommand() {
+            return command;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    private final List<Failure> failures = new ArrayList<>();
+    private final long started = System.nanoTime();
+    private long committed;
+    private long finished;
+    private int succeeded;
+
+    /**
+     * Records a command that was applied.
+     */
+    public void succeeded() {
+        succeeded++;
+    }
+
+    /**
+     * Records a command that was rejected. Nothing of a rejected command is applied.
+     *
+     * @param command The command.
+     * @param message Why it was rejected.
+     */
+    public void failed(BatchScript.Command command, String message) {
+        failures.add(new Failure(command, message));
+    }
+
+    /**
+     * Marks the point where every command has been applied and the batch is about to be committed.
+     */
+    public void applied() {
+        committed = System.nanoTime();
+    }
+
+    /**
+     * Marks the end of the batch, after its commit.
+     */
+    public void finish() {
+        finished = System.nanoTime();
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public List<Failure> getFailures() {
+        return failures;
+    }
+
+    /**
+     * Gets the time from the start of the batch to its end, including the commit.
+     * @return The elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return (finished == 0 ? System.nanoTime() : finished) - started;
+    }
+
+    /**
+     * Prints the totals, throughput and the failed commands.
+     *
+     * @param out The stream to print to.
+     */
+    public void print(PrintStream out) {
+        int total = succeeded + failures.size();
+        long elapsed = getElapsedNanos();
+        out.printf("Batch of %d commands: %d applied, %d failed in %d ms (%.0f commands/s)%n",
+                total, succeeded, failures.size(), elapsed / 1_000_000,
+                elapsed == 0 ? 0.0 : total * 1e9 / elapsed);
+        if (committed != 0 && finished != 0) {
+            out.printf("  apply %d ms, commit %d ms%n",
+                    (committed - started) / 1_000_000, (finished - committed) / 1_000_000);
+        }
+        for (int i = 0; i < Math.min(failures.size(), MAX_LISTED_FAILURES); i++) {
+            Failure failure = failures.get(i);
+            out.printf("  line %d: %s: %s%n", failure.getCommand().getLine(), failure.getCommand(),
+                    failure.getMessage());
+        }
+        if (failures.size() > MAX_LISTED_FAILURES) {
+            out.printf("  ... and %d more failures%n", failures.size() - MAX_LISTED_FAILURES);
+        }
+    }
+}
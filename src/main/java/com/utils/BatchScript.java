@@ -0,0 +1,151 @@
+package com.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A file of commands to run as one batch, one command per line:
+ * the command name followed by its arguments, separated by whitespace, e.g.
+ * {@code addContainer c-101 12.5 DRY_STORAGE p-1}. Arguments containing spaces are double-quoted.
+ * Blank lines and lines starting with {@code #} are skipped.
+ */
+public class BatchScript {
+
+    /**
+     * One command of a batch.
+     */
+    public static class Command {
+        private final int line;
+        private final String name;
+        private final String[] args;
+
+        public Command(int line, String name, String... args) {
+            this.line = line;
+            this.name = name;
+            this.args = args;
+        }
+
+        /**
+         * Gets the line of the file the command was read from.
+         */
+        public int getLine() {
+            return line;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getArgCount() {
+            return args.length;
+        }
+
+        /**
+         * Gets a required argument.
+         *
+         * @param index The position of the argument.
+         * @return The argument.
+         * @throws IllegalArgumentException If the command has no argument at that position.
+         */
+        public String getArg(int index) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException(name + " is missing argument " + (index + 1));
+            }
+            return args[index];
+        }
+
+        /**
+         * Gets an optional argument.
+         *
+         * @param index The position of the argument.
+         * @return The argument, or an empty string if the command has no argument at that position.
+         */
+        public String getOptionalArg(int index) {
+            return index < args.length ? args[index] : "";
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(name);
+            for (String arg : args) {
+                text.append(' ').append(arg.isEmpty() || arg.indexOf(' ') >= 0 ? '"' + arg + '"' : arg);
+            }
+            return text.toString();
+        }
+    }
+
+    private BatchScript() {
+    }
+
+    /**
+     * Reads the commands of a batch file.
+     *
+     * @param file The file to read.
+     * @return The commands in file order.
+     * @throws IOException If the file can't be read.
+     */
+    public static List<Command> read(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * Reads commands from a reader until it ends.
+     *
+     * @param reader The reader to read from.
+     * @return The commands in order.
+     * @throws IOException If reading fails.
+     */
+    public static List<Command> read(BufferedReader reader) throws IOException {
+        List<Command> commands = new ArrayList<>();
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            List<String> tokens = tokenize(trimmed);
+            commands.add(new Command(lineNumber, tokens.get(0),
+                    tokens.subList(1, tokens.size()).toArray(new String[0])));
+        }
+        return commands;
+    }
+
+    /**
+     * Splits a line at whitespace outside double quotes. An unterminated quote runs to the end of the line.
+     */
+    private static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean quoted = false;
+        boolean inToken = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                inToken = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (inToken) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                    inToken = false;
+                }
+            } else {
+                token.append(c);
+                inToken = true;
+            }
+        }
+        if (inToken) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+}
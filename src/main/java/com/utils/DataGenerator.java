@@ -0,0 +1,546 @@
+package com.utils;
+
+import com.models.Container;
+import com.models.Port;
+import com.models.Ship;
+import com.models.Trip;
+import com.models.Truck;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Seeded generator of large synthetic data sets for load testing.
+ *
+ * <p>The output is fully determined by the seed, the entity counts and the reference date. Data is streamed
+ * straight into the unified store through {@link DataStore.Writer}: only per-port and per-vehicle bookkeeping
+ * is kept in memory, never the container or trip lists, so millions of containers and trips can be generated
+ * with a small heap.</p>
+ *
+ * <p>The generated data follows the model rules: container types follow a realistic mix, trucks only carry
+ * container types their truck type can handle and only travel between landing ports, loads stay within
+ * carrying and storing capacities, and each vehicle's trips form a chain (each departing where the previous
+ * one arrived) of completed trips, at most one in-progress trip, then pending trips.</p>
+ *
+ * <p>Usage: {@code DataGenerator [--seed N] [--ports N] [--vehicles N] [--containers N] [--trips N] [--today YYYY-MM-DD]}</p>
+ */
+public class DataGenerator {
+    private static final Container.ContainerType[] CONTAINER_TYPES = Container.ContainerType.values();
+    private static final int EARTH_RADIUS = 6371; // kilometers
+    // Share of each container type, in ContainerType order
+    private static final double[] TYPE_MIX = {0.60, 0.10, 0.08, 0.15, 0.07};
+    private static final double MIN_CONTAINER_WEIGHT = 2_000;
+    private static final double MAX_CONTAINER_WEIGHT = 30_000;
+    // Share of containers loaded on vehicles rather than stored at ports
+    private static final double LOADED_FRACTION = 0.05;
+    private static final double LANDING_FRACTION = 0.6;
+    // Trucks only drive to one of the nearest landing ports
+    private static final int TRUCK_NEIGHBOURS = 8;
+    // Ports keep the most recent completed trips, as in Port.completeTrip
+    private static final int PAST_TRAFFIC = Port.DEFAULT_TRAFFIC_WINDOW;
+    private static final int AVERAGE_TRIP_DAYS = 5;
+
+    private final long seed;
+    private final int portCount;
+    private final int vehicleCount;
+    private final int containerCount;
+    private final int tripCount;
+    private final LocalDate today;
+
+    // Ports
+    private double[] latitudes;
+    private double[] longitudes;
+    private boolean[] landing;
+    private int[] storingCapacities;
+    private int[][] truckDestinations;
+
+    // Vehicles: type (null for ships), home port, load and trip ranges, final location
+    private Truck.TruckType[] truckTypes;
+    private int[] homePorts;
+    private int[] carryingCapacities;
+    private int[] loadStart;
+    private int[] loadCount;
+    private int[] tripStart;
+    private int[] tripsPerVehicle;
+    private int[] currentPorts;
+    private boolean[] docked;
+
+    // Port contents
+    private int[] storedStart;
+    private int[] storedCount;
+    private List<List<Integer>> currentTraffic;
+    private long[][] pastTrafficDays;
+    private int[][] pastTrafficTrips;
+    private int[] pastTrafficSize;
+
+    /**
+     * Constructs a new DataGenerator.
+     *
+     * @param seed           The random seed.
+     * @param portCount      The number of ports (at least 2).
+     * @param vehicleCount   The number of vehicles.
+     * @param containerCount The number of containers.
+     * @param tripCount      The number of trips.
+     * @param today          The reference date: trips before it are completed, trips after it pending.
+     */
+    public DataGenerator(long seed, int portCount, int vehicleCount, int containerCount, int tripCount, LocalDate today) {
+        if (portCount < 2) {
+            throw new IllegalArgumentException("At least 2 ports are required");
+        }
+        if (vehicleCount < 0 || containerCount < 0 || tripCount < 0) {
+            throw new IllegalArgumentException("Counts must not be negative");
+        }
+        if (tripCount > 0 && vehicleCount == 0) {
+            throw new IllegalArgumentException("Trips need at least one vehicle");
+        }
+        this.seed = seed;
+        this.portCount = portCount;
+        this.vehicleCount = vehicleCount;
+        this.containerCount = containerCount;
+        this.tripCount = tripCount;
+        this.today = today;
+    }
+
+    /**
+     * Generates the data into the unified store file and discards journaled changes, archived traffic and the
+     * trip log of the previous data.
+     *
+     * @return True if the store was written and the previous data's files discarded, false otherwise.
+     */
+    public boolean generate() {
+        if (!FileHandler.saveStore(this::writeTo)) {
+            return false;
+        }
+        Journal journal = new Journal(FileHandler.JOURNAL_FILE, Journal.SyncPolicy.ALWAYS, 1);
+        journal.checkpoint();
+        journal.close();
+        // Archived trips refer to the previous data's ports and vehicles by ID; the trip log is rewritten from
+        // the new data on the next load
+        return TrafficArchive.delete(FileHandler.ARCHIVE_FILE) && TripLog.delete(FileHandler.TRIP_LOG_FILE);
+    }
+
+    /**
+     * Writes the generated data through a store writer.
+     *
+     * @param writer The writer to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeTo(DataStore.Writer writer) throws IOException {
+        planPorts();
+        planVehicles();
+        planLoads();
+        planTrips();
+
+        // Containers: vehicle loads first, then each port's stored containers
+        SplittableRandom random = new SplittableRandom(seed ^ 0xC0FFEEL);
+        writer.count(containerCount);
+        int id = 1;
+        double[] loadWeights = new double[vehicleCount];
+        for (int v = 0; v < vehicleCount; v++) {
+            for (int i = 0; i < loadCount[v]; i++) {
+                Container.ContainerType type = containerType(random, truckTypes[v]);
+                double weight = containerWeight(random);
+                loadWeights[v] += weight;
+                writer.container("c-" + id++, weight, type);
+            }
+        }
+        for (int p = 0; p < portCount; p++) {
+            for (int i = 0; i < storedCount[p]; i++) {
+                writer.container("c-" + id++, containerWeight(random), containerType(random, null));
+            }
+        }
+
+        writer.count(portCount);
+        for (int p = 0; p < portCount; p++) {
+            writer.port("p-" + (p + 1), "Port " + (p + 1), latitudes[p], longitudes[p],
+                    storingCapacities[p], landing[p]);
+        }
+
+        random = new SplittableRandom(seed ^ 0xF0E1L);
+        writer.count(vehicleCount);
+        int shipNumber = 1;
+        int truckNumber = 1;
+        for (int v = 0; v < vehicleCount; v++) {
+            boolean truck = truckTypes[v] != null;
+            double fuelCapacity = truck ? 900 + random.nextInt(300) : 400_000 + random.nextInt(200_000);
+            double currentFuel = fuelCapacity * (0.5 + random.nextDouble() * 0.5);
+            String vehicleId = truck ? "tr-" + truckNumber++ : "sh-" + shipNumber++;
+            String name = (truck ? "Truck " : "Ship ") + vehicleId.substring(3);
+            writer.vehicle(vehicleId, name, currentFuel, fuelCapacity, carryingCapacities[v], truckTypes[v],
+                    currentPorts[v]);
+            int start = loadStart[v];
+            writer.references(loadCount[v], i -> start + i);
+        }
+
+        writer.count(tripCount);
+        for (int v = 0; v < vehicleCount; v++) {
+            int vehicle = v;
+            // Gallons per km for the vehicle's load, as in calculateRequiredFuel
+            double fuelPerKm = loadWeights[v] / 1000 * (truckTypes[v] == null
+                    ? Ship.FUEL_CONSUMPTION_RATE : truckTypes[v].getFuelConsumptionRate());
+            walkTrips(v, (trip, from, to, departureDay, arrivalDay, status) ->
+                    writer.trip(vehicle, LocalDate.ofEpochDay(departureDay),
+                            arrivalDay < 0 ? null : LocalDate.ofEpochDay(arrivalDay), from, to, status,
+                            status == Trip.TripStatus.COMPLETED ? distance(from, to) * fuelPerKm : 0));
+        }
+
+        int[][] dockedVehicles = dockedVehiclesByPort();
+        for (int p = 0; p < portCount; p++) {
+            int start = storedStart[p];
+            writer.references(storedCount[p], i -> start + i);
+            int[] vehiclesHere = dockedVehicles[p];
+            writer.references(vehiclesHere.length, i -> vehiclesHere[i]);
+            List<Integer> traffic = currentTraffic.get(p);
+            writer.references(traffic.size(), traffic::get);
+            int[] past = sortedPastTraffic(p);
+            writer.references(past.length, i -> past[i]);
+        }
+
+        writer.count(portCount + 1);
+        writer.admin("admin", "admin123");
+        for (int p = 0; p < portCount; p++) {
+            writer.manager("manager-p-" + (p + 1), "manager123", p);
+        }
+
+        writer.references(portCount, i -> i);
+        writer.references(vehicleCount, i -> i);
+        writer.references(containerCount, i -> i);
+        writer.references(tripCount, i -> i);
+        writer.count(0); // No vehicle moves
+    }
+
+    private void planPorts() {
+        SplittableRandom random = new SplittableRandom(seed ^ 0x9047L);
+        latitudes = new double[portCount];
+        longitudes = new double[portCount];
+        landing = new boolean[portCount];
+        for (int p = 0; p < portCount; p++) {
+            latitudes[p] = -55 + random.nextDouble() * 125;
+            longitudes[p] = -180 + random.nextDouble() * 360;
+            landing[p] = random.nextDouble() < LANDING_FRACTION;
+        }
+
+        List<Integer> landingPorts = new ArrayList<>();
+        for (int p = 0; p < portCount; p++) {
+            if (landing[p]) {
+                landingPorts.add(p);
+            }
+        }
+        truckDestinations = new int[portCount][];
+        for (int p : landingPorts) {
+            int from = p;
+            truckDestinations[p] = landingPorts.stream()
+                    .filter(q -> q != from)
+                    .sorted(Comparator.comparingDouble(q -> squaredChord(from, q)))
+                    .limit(TRUCK_NEIGHBOURS)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+    }
+
+    private void planVehicles() {
+        SplittableRandom random = new SplittableRandom(seed ^ 0x7E41L);
+        int[] landingPorts = IntStream.range(0, portCount).filter(p -> landing[p]).toArray();
+        truckTypes = new Truck.TruckType[vehicleCount];
+        homePorts = new int[vehicleCount];
+        carryingCapacities = new int[vehicleCount];
+        for (int v = 0; v < vehicleCount; v++) {
+            boolean truck = landingPorts.length > 0 && random.nextBoolean();
+            if (truck) {
+                double roll = random.nextDouble();
+                truckTypes[v] = roll < 0.6 ? Truck.TruckType.BASIC
+                        : roll < 0.85 ? Truck.TruckType.REEFER : Truck.TruckType.TANKER;
+                homePorts[v] = landingPorts[random.nextInt(landingPorts.length)];
+                carryingCapacities[v] = 27_000 + random.nextInt(6_000);
+            } else {
+                homePorts[v] = random.nextInt(portCount);
+                carryingCapacities[v] = 140_000 + random.nextInt(60_000);
+            }
+        }
+    }
+
+    private void planLoads() {
+        SplittableRandom random = new SplittableRandom(seed ^ 0x10ADL);
+        loadStart = new int[vehicleCount];
+        loadCount = new int[vehicleCount];
+        int toLoad = (int) (containerCount * LOADED_FRACTION);
+        int next = 0;
+        for (int v = 0; v < vehicleCount && next < toLoad; v++) {
+            // Worst-case weights must still fit, so the load never exceeds the carrying capacity
+            int fits = (int) (carryingCapacities[v] / MAX_CONTAINER_WEIGHT);
+            loadStart[v] = next;
+            loadCount[v] = Math.min(toLoad - next, random.nextInt(fits + 1));
+            next += loadCount[v];
+        }
+
+        // The remaining containers are spread over ports of varying size
+        int stored = containerCount - next;
+        double[] size = new double[portCount];
+        double totalSize = 0;
+        for (int p = 0; p < portCount; p++) {
+            size[p] = 0.2 + random.nextDouble() * 1.6;
+            totalSize += size[p];
+        }
+        storedStart = new int[portCount];
+        storedCount = new int[portCount];
+        storingCapacities = new int[portCount];
+        int assigned = 0;
+        for (int p = 0; p < portCount; p++) {
+            storedStart[p] = next + assigned;
+            storedCount[p] = p == portCount - 1 ? stored - assigned : (int) (stored * size[p] / totalSize);
+            assigned += storedCount[p];
+            double capacity = (storedCount[p] * MAX_CONTAINER_WEIGHT + 100_000) * 1.25;
+            if (storedCount[p] * MAX_CONTAINER_WEIGHT > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many containers per port; use more ports");
+            }
+            storingCapacities[p] = (int) Math.min(Integer.MAX_VALUE, capacity);
+        }
+    }
+
+    private void planTrips() throws IOException {
+        tripStart = new int[vehicleCount];
+        tripsPerVehicle = new int[vehicleCount];
+        currentPorts = new int[vehicleCount];
+        docked = new boolean[vehicleCount];
+        currentTraffic = new ArrayList<>(portCount);
+        for (int p = 0; p < portCount; p++) {
+            currentTraffic.add(new ArrayList<>(0));
+        }
+        pastTrafficDays = new long[portCount][PAST_TRAFFIC];
+        pastTrafficTrips = new int[portCount][PAST_TRAFFIC];
+        pastTrafficSize = new int[portCount];
+
+        // Trips are shared among the vehicles that can travel: ships, and trucks with somewhere to drive to
+        int[] travelling = IntStream.range(0, vehicleCount)
+                .filter(v -> truckTypes[v] == null || truckDestinations[homePorts[v]].length > 0)
+                .toArray();
+        if (tripCount > 0 && travelling.length == 0) {
+            throw new IllegalArgumentException("No vehicle can travel; use more ports or vehicles");
+        }
+        for (int i = 0; i < travelling.length; i++) {
+            tripsPerVehicle[travelling[i]] = tripCount / travelling.length + (i < tripCount % travelling.length ? 1 : 0);
+        }
+        int next = 0;
+        for (int v = 0; v < vehicleCount; v++) {
+            tripStart[v] = next;
+            next += tripsPerVehicle[v];
+        }
+
+        for (int v = 0; v < vehicleCount; v++) {
+            int vehicle = v;
+            currentPorts[v] = homePorts[v];
+            docked[v] = true;
+            walkTrips(v, (trip, from, to, departureDay, arrivalDay, status) -> {
+                if (status == Trip.TripStatus.COMPLETED) {
+                    currentPorts[vehicle] = to;
+                    // Trip.complete records the trip at both ends
+                    recordPastTrip(from, arrivalDay, trip);
+                    recordPastTrip(to, arrivalDay, trip);
+                } else {
+                    if (status == Trip.TripStatus.IN_PROGRESS) {
+                        // Trip.start takes the vehicle out of the port but leaves its current port set
+                        currentPorts[vehicle] = from;
+                        docked[vehicle] = false;
+                    }
+                    currentTraffic.get(from).add(trip);
+                    currentTraffic.get(to).add(trip);
+                }
+            });
+        }
+    }
+
+    /**
+     * Replays the trip chain of a vehicle. Each chain uses its own random stream, so the planning pass and
+     * the writing pass see exactly the same trips.
+     */
+    private void walkTrips(int vehicle, TripVisitor visitor) throws IOException {
+        int count = tripsPerVehicle[vehicle];
+        if (count == 0) {
+            return;
+        }
+        SplittableRandom random = new SplittableRandom(seed ^ (0x9E3779B97F4A7C15L * (vehicle + 1)));
+        boolean truck = truckTypes[vehicle] != null;
+        int port = homePorts[vehicle];
+        long day = today.toEpochDay() - (long) count * AVERAGE_TRIP_DAYS + random.nextInt(AVERAGE_TRIP_DAYS);
+        boolean underway = false;
+        for (int i = 0; i < count; i++) {
+            int destination;
+            if (truck) {
+                // Landing ports always have neighbours once a truck is allowed to travel
+                int[] options = truckDestinations[port];
+                destination = options[random.nextInt(options.length)];
+            } else {
+                destination = random.nextInt(portCount - 1);
+                if (destination >= port) {
+                    destination++;
+                }
+            }
+            long departureDay = day + random.nextInt(4);
+            long arrivalDay = departureDay + (truck ? 1 + random.nextInt(2) : 2 + random.nextInt(6));
+
+            Trip.TripStatus status;
+            if (!underway && arrivalDay <= today.toEpochDay()) {
+                status = Trip.TripStatus.COMPLETED;
+            } else if (!underway && departureDay <= today.toEpochDay()) {
+                status = Trip.TripStatus.IN_PROGRESS;
+                underway = true;
+            } else {
+                status = Trip.TripStatus.PENDING;
+                underway = true;
+            }
+            visitor.visit(tripStart[vehicle] + i, port, destination, departureDay,
+                    status == Trip.TripStatus.COMPLETED ? arrivalDay : -1, status);
+            port = destination;
+            day = arrivalDay;
+        }
+    }
+
+    private void recordPastTrip(int port, long arrivalDay, int trip) {
+        int size = pastTrafficSize[port];
+        if (size < PAST_TRAFFIC) {
+            pastTrafficDays[port][size] = arrivalDay;
+            pastTrafficTrips[port][size] = trip;
+            pastTrafficSize[port]++;
+            return;
+        }
+        // Replace the oldest of the kept trips if this one arrived later
+        int oldest = 0;
+        for (int i = 1; i < PAST_TRAFFIC; i++) {
+            if (pastTrafficDays[port][i] < pastTrafficDays[port][oldest]) {
+                oldest = i;
+            }
+        }
+        if (arrivalDay > pastTrafficDays[port][oldest]) {
+            pastTrafficDays[port][oldest] = arrivalDay;
+            pastTrafficTrips[port][oldest] = trip;
+        }
+    }
+
+    private int[] sortedPastTraffic(int port) {
+        Integer[] order = new Integer[pastTrafficSize[port]];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> pastTrafficDays[port][i]));
+        return Arrays.stream(order).mapToInt(i -> pastTrafficTrips[port][i]).toArray();
+    }
+
+    private int[][] dockedVehiclesByPort() {
+        int[] counts = new int[portCount];
+        for (int v = 0; v < vehicleCount; v++) {
+            if (docked[v]) {
+                counts[currentPorts[v]]++;
+            }
+        }
+        int[][] result = new int[portCount][];
+        for (int p = 0; p < portCount; p++) {
+            result[p] = new int[counts[p]];
+            counts[p] = 0;
+        }
+        for (int v = 0; v < vehicleCount; v++) {
+            if (docked[v]) {
+                int p = currentPorts[v];
+                result[p][counts[p]++] = v;
+            }
+        }
+        return result;
+    }
+
+    private static Container.ContainerType containerType(SplittableRandom random, Truck.TruckType truckType) {
+        if (truckType == Truck.TruckType.REEFER) {
+            return Container.ContainerType.REFRIGERATED;
+        }
+        if (truckType == Truck.TruckType.TANKER) {
+            return Container.ContainerType.LIQUID;
+        }
+        // Basic trucks only take the first three (dry storage, open top, open side)
+        int types = truckType == Truck.TruckType.BASIC ? 3 : CONTAINER_TYPES.length;
+        double total = 0;
+        for (int i = 0; i < types; i++) {
+            total += TYPE_MIX[i];
+        }
+        double roll = random.nextDouble() * total;
+        for (int i = 0; i < types - 1; i++) {
+            roll -= TYPE_MIX[i];
+            if (roll < 0) {
+                return CONTAINER_TYPES[i];
+            }
+        }
+        return CONTAINER_TYPES[types - 1];
+    }
+
+    private static double containerWeight(SplittableRandom random) {
+        return Math.round(MIN_CONTAINER_WEIGHT + random.nextDouble() * (MAX_CONTAINER_WEIGHT - MIN_CONTAINER_WEIGHT));
+    }
+
+    /**
+     * Great-circle distance in kilometers between two ports, from the chord between them.
+     */
+    private double distance(int a, int b) {
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(squaredChord(a, b)) / 2));
+    }
+
+    private double squaredChord(int a, int b) {
+        double latA = Math.toRadians(latitudes[a]);
+        double latB = Math.toRadians(latitudes[b]);
+        double lonA = Math.toRadians(longitudes[a]);
+        double lonB = Math.toRadians(longitudes[b]);
+        double dx = Math.cos(latA) * Math.cos(lonA) - Math.cos(latB) * Math.cos(lonB);
+        double dy = Math.cos(latA) * Math.sin(lonA) - Math.cos(latB) * Math.sin(lonB);
+        double dz = Math.sin(latA) - Math.sin(latB);
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private interface TripVisitor {
+        void visit(int trip, int from, int to, long departureDay, long arrivalDay, Trip.TripStatus status) throws IOException;
+    }
+
+    /**
+     * Generates a data set into the data directory from command-line options.
+     *
+     * @param args Options: --seed, --ports, --vehicles, --containers, --trips, --today.
+     */
+    public static void main(String[] args) {
+        long seed = 1;
+        int ports = 1_000;
+        int vehicles = 10_000;
+        int containers = 1_000_000;
+        int trips = 1_000_000;
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--seed":
+                    seed = Long.parseLong(args[i + 1]);
+                    break;
+                case "--ports":
+                    ports = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--vehicles":
+                    vehicles = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--containers":
+                    containers = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--trips":
+                    trips = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--today":
+                    today = LocalDate.parse(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+
+        long started = System.nanoTime();
+        DataGenerator generator = new DataGenerator(seed, ports, vehicles, containers, trips, today);
+        if (generator.generate()) {
+            System.out.printf("Generated %d ports, %d vehicles, %d containers and %d trips (seed %d) in %d ms%n",
+                    ports, vehicles, containers, trips, seed, (System.nanoTime() - started) / 1_000_000);
+        } else {
+            System.err.println("Data generation failed.");
+        }
+    }
+}
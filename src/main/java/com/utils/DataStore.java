@@ -0,0 +1,597 @@
+package com.utils;
+
+import com.models.*;
+import com.users.PortManager;
+import com.users.SystemAdmin;
+import java.io.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A complete snapshot of the system data, persisted as one file in which every entity is written once.
+ *
+ * <p>Entities are collected into tables (containers, ports, vehicles, trips). Cross-references such as
+ * {@code Vehicle.currentPort} or {@code Trip.arrivalPort} are written as the referenced entity's position
+ * in its table and re-linked on load, so loading gives back one shared object graph instead of the
+ * duplicate, disconnected copies produced by serializing each list separately. Entities that are only
+ * reachable through a reference (e.g. a container on a vehicle) are stored as well.</p>
+ */
+public class DataStore {
+    private static final int MAGIC = 0x504D5344; // "PMSD"
+    private static final int VERSION = 4;
+    private static final int NONE = -1;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final int SHIP = 0;
+
+    private final List<User> users;
+    private final List<Port> ports;
+    private final List<Vehicle> vehicles;
+    private final List<Container> containers;
+    private final List<Trip> trips;
+    private final List<FuelRollup.MoveFuel> moveFuels;
+
+    /**
+     * Constructs a new DataStore over the given lists, with no fuel burned by vehicle moves.
+     */
+    public DataStore(List<User> users, List<Port> ports, List<Vehicle> vehicles,
+                     List<Container> containers, List<Trip> trips) {
+        this(users, ports, vehicles, containers, trips, new ArrayList<>());
+    }
+
+    /**
+     * Constructs a new DataStore over the given lists.
+     */
+    public DataStore(List<User> users, List<Port> ports, List<Vehicle> vehicles,
+                     List<Container> containers, List<Trip> trips, List<FuelRollup.MoveFuel> moveFuels) {
+        this.users = users;
+        this.ports = ports;
+        this.vehicles = vehicles;
+        this.containers = containers;
+        this.trips = trips;
+        this.moveFuels = moveFuels;
+    }
+
+    public List<User> getUsers() {
+        return users;
+    }
+
+    public List<Port> getPorts() {
+        return ports;
+    }
+
+    public List<Vehicle> getVehicles() {
+        return vehicles;
+    }
+
+    public List<Container> getContainers() {
+        return containers;
+    }
+
+    public List<Trip> getTrips() {
+        return trips;
+    }
+
+    public List<FuelRollup.MoveFuel> getMoveFuels() {
+        return moveFuels;
+    }
+
+    /**
+     * Writes the snapshot through a store writer.
+     *
+     * @param writer The writer to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeTo(Writer writer) throws IOException {
+        Table<Container> containerTable = new Table<>();
+        Table<Port> portTable = new Table<>();
+        Table<Vehicle> vehicleTable = new Table<>();
+        Table<Trip> tripTable = new Table<>();
+
+        containers.forEach(containerTable::add);
+        ports.forEach(portTable::add);
+        vehicles.forEach(vehicleTable::add);
+        trips.forEach(tripTable::add);
+        for (User user : users) {
+            if (user instanceof PortManager) {
+                portTable.add(((PortManager) user).getManagedPort());
+            }
+        }
+
+        // Pull in everything reachable from the listed entities until nothing new is found
+        int nextPort = 0, nextVehicle = 0, nextTrip = 0;
+        while (nextPort < portTable.size() || nextVehicle < vehicleTable.size() || nextTrip < tripTable.size()) {
+            while (nextPort < portTable.size()) {
+                Port port = portTable.get(nextPort++);
+                port.forEachContainer(containerTable::add);
+                port.forEachVehicle(vehicleTable::add);
+                port.getCurrentTrafficView().forEach(tripTable::add);
+                port.getPastTrafficView().forEach(tripTable::add);
+            }
+            while (nextVehicle < vehicleTable.size()) {
+                Vehicle vehicle = vehicleTable.get(nextVehicle++);
+                portTable.add(vehicle.getCurrentPort());
+                vehicle.forEachContainer(containerTable::add);
+            }
+            while (nextTrip < tripTable.size()) {
+                Trip trip = tripTable.get(nextTrip++);
+                vehicleTable.add(trip.getVehicle());
+                portTable.add(trip.getDeparturePort());
+                portTable.add(trip.getArrivalPort());
+            }
+        }
+
+        writer.count(containerTable.size());
+        for (Container container : containerTable.entries) {
+            writer.container(container.getId(), container.getWeight(), container.getType());
+        }
+
+        writer.count(portTable.size());
+        for (Port port : portTable.entries) {
+            writer.port(port.getId(), port.getName(), port.getLatitude(), port.getLongitude(),
+                    port.getStoringCapacity(), port.hasLandingAbility());
+        }
+
+        writer.count(vehicleTable.size());
+        for (Vehicle vehicle : vehicleTable.entries) {
+            writer.vehicle(vehicle.getId(), vehicle.getName(), vehicle.getCurrentFuel(), vehicle.getFuelCapacity(),
+                    vehicle.getCarryingCapacity(), vehicle instanceof Truck ? ((Truck) vehicle).getType() : null,
+                    portTable.indexOf(vehicle.getCurrentPort()));
+            writeReferences(writer, vehicle.getContainerView(), containerTable);
+        }
+
+        writer.count(tripTable.size());
+        for (Trip trip : tripTable.entries) {
+            writer.trip(vehicleTable.indexOf(trip.getVehicle()), trip.getDepartureDate(), trip.getArrivalDate(),
+                    portTable.indexOf(trip.getDeparturePort()), portTable.indexOf(trip.getArrivalPort()),
+                    trip.getStatus(), trip.getFuelUsed());
+        }
+
+        for (Port port : portTable.entries) {
+            writeReferences(writer, port.getContainerView(), containerTable);
+            writeReferences(writer, port.getVehicles(), vehicleTable);
+            writeReferences(writer, port.getCurrentTrafficView(), tripTable);
+            writeReferences(writer, port.getPastTrafficView(), tripTable);
+        }
+
+        writer.count(users.size());
+        for (User user : users) {
+            if (user instanceof PortManager) {
+                writer.manager(user.getUsername(), user.getPassword(),
+                        portTable.indexOf(((PortManager) user).getManagedPort()));
+            } else {
+                writer.admin(user.getUsername(), user.getPassword());
+            }
+        }
+
+        writeReferences(writer, ports, portTable);
+        writeReferences(writer, vehicles, vehicleTable);
+        writeReferences(writer, containers, containerTable);
+        writeReferences(writer, trips, tripTable);
+
+        writer.count(moveFuels.size());
+        for (FuelRollup.MoveFuel moveFuel : moveFuels) {
+            writer.moveFuel(moveFuel.getDate(), moveFuel.getTruckType(), moveFuel.getPortId(), moveFuel.getFuel());
+        }
+    }
+
+    /**
+     * Reads a snapshot from a stream and re-links all references.
+     * Files written in an older version of the format are still read.
+     *
+     * @param in The stream to read from.
+     * @return The loaded snapshot.
+     * @throws IOException If reading fails or the stream is not a data store.
+     */
+    public static DataStore read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a data store file");
+        }
+        int version = in.readInt();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported data store version " + version);
+        }
+        Reader reader = new Reader(in, version);
+
+        List<Container> containerTable = new ArrayList<>();
+        for (int i = reader.count(); i > 0; i--) {
+            containerTable.add(reader.container());
+        }
+
+        List<Port> portTable = new ArrayList<>();
+        for (int i = reader.count(); i > 0; i--) {
+            portTable.add(reader.port());
+        }
+
+        List<Vehicle> vehicleTable = new ArrayList<>();
+        for (int i = reader.count(); i > 0; i--) {
+            vehicleTable.add(reader.vehicle(portTable, containerTable));
+        }
+
+        List<Trip> tripTable = new ArrayList<>();
+        for (int i = reader.count(); i > 0; i--) {
+            tripTable.add(reader.trip(vehicleTable, portTable));
+        }
+
+        for (Port port : portTable) {
+            port.restoreContents(reader.references(containerTable), reader.references(vehicleTable),
+                    reader.references(tripTable), reader.references(tripTable));
+        }
+
+        List<User> users = new ArrayList<>();
+        for (int i = reader.count(); i > 0; i--) {
+            users.add(reader.user(portTable));
+        }
+
+        List<Port> ports = reader.references(portTable);
+        List<Vehicle> vehicles = reader.references(vehicleTable);
+        List<Container> containers = reader.references(containerTable);
+        List<Trip> trips = reader.references(tripTable);
+
+        List<FuelRollup.MoveFuel> moveFuels = new ArrayList<>();
+        if (version >= 4) {
+            for (int i = reader.count(); i > 0; i--) {
+                moveFuels.add(reader.moveFuel());
+            }
+        }
+        return new DataStore(users, ports, vehicles, containers, trips, moveFuels);
+    }
+
+    /**
+     * Encodes the snapshot in memory, in the same format as the store file.
+     * Decoding the bytes with {@link #decode(byte[])} gives an independent copy of the object graph.
+     *
+     * @return The encoded snapshot.
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeTo(new Writer(out));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Memory streams don't fail
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a snapshot encoded by {@link #encode()} into a new object graph.
+     *
+     * @param bytes The encoded snapshot.
+     * @return The decoded snapshot.
+     * @throws IllegalArgumentException If the bytes are not an encoded snapshot.
+     */
+    public static DataStore decode(byte[] bytes) {
+        try {
+            return read(new DataInputStream(new ByteArrayInputStream(bytes)));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Not an encoded data store: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Fills in the fuel used by a completed trip saved before trips recorded it, from the load its vehicle
+     * carries now. This is only an estimate, as the load may have changed since the trip.
+     */
+    static void estimateFuelUsed(Trip trip) {
+        if (trip.getStatus() == Trip.TripStatus.COMPLETED && trip.getVehicle() != null
+                && trip.getDeparturePort() != null && trip.getArrivalPort() != null) {
+            trip.restoreFuelUsed(trip.getVehicle().calculateRequiredFuel(trip.getDeparturePort(),
+                    trip.getArrivalPort()));
+        }
+    }
+
+    private static <T> void writeReferences(Writer writer, List<T> items, Table<T> table) throws IOException {
+        writer.references(items.size(), i -> table.indexOf(items.get(i)));
+    }
+
+    /**
+     * Writes the store format section by section, so large data sets can be streamed to disk without
+     * first building the object graph. Entities are referred to by their position in their section,
+     * or {@code -1} for none.
+     *
+     * <p>Sections must be written in this order, each starting with {@link #count(int)}:
+     * containers, ports, vehicles (each followed by its container references), trips; then for every port
+     * four reference lists (containers, vehicles, current traffic, past traffic); then users; then
+     * the reference lists of the registered ports, vehicles, containers and trips; and finally the fuel burned
+     * by vehicle moves.</p>
+     *
+     * <p>Encoding (version 4): counts and references are variable-length integers (references offset by
+     * one so that none is 0), enums are stored as one-byte ordinals, dates as {@code int} epoch days, and
+     * the vehicle kind and truck type share a single byte (0 for a ship, 1 + the truck type ordinal for a truck).
+     * New enum constants must therefore only be added at the end. Version 3 adds the fuel used to each trip,
+     * and version 4 the fuel burned by vehicle moves, which leave no trip behind.</p>
+     */
+    public static class Writer {
+        private final DataOutputStream out;
+
+        /**
+         * Constructs a new Writer and writes the file header.
+         *
+         * @param out The stream to write to.
+         * @throws IOException If writing fails.
+         */
+        public Writer(DataOutputStream out) throws IOException {
+            this.out = out;
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        public void count(int count) throws IOException {
+            writeVarInt(count);
+        }
+
+        public void container(String id, double weight, Container.ContainerType type) throws IOException {
+            out.writeUTF(id);
+            out.writeDouble(weight);
+            out.writeByte(type.ordinal());
+        }
+
+        public void port(String id, String name, double latitude, double longitude,
+                         int storingCapacity, boolean landingAbility) throws IOException {
+            out.writeUTF(id);
+            out.writeUTF(name);
+            out.writeDouble(latitude);
+            out.writeDouble(longitude);
+            out.writeInt(storingCapacity);
+            out.writeBoolean(landingAbility);
+        }
+
+        /**
+         * Writes a vehicle. Must be followed by {@link #references} for its containers.
+         *
+         * @param truckType The truck type, or null for a ship.
+         */
+        public void vehicle(String id, String name, double currentFuel, double fuelCapacity, int carryingCapacity,
+                            Truck.TruckType truckType, int currentPort) throws IOException {
+            out.writeByte(truckType == null ? SHIP : truckType.ordinal() + 1);
+            out.writeUTF(id);
+            out.writeUTF(name);
+            out.writeDouble(currentFuel);
+            out.writeDouble(fuelCapacity);
+            out.writeInt(carryingCapacity);
+            reference(currentPort);
+        }
+
+        public void trip(int vehicle, LocalDate departureDate, LocalDate arrivalDate,
+                         int departurePort, int arrivalPort, Trip.TripStatus status,
+                         double fuelUsed) throws IOException {
+            reference(vehicle);
+            out.writeInt(Math.toIntExact(departureDate.toEpochDay()));
+            out.writeInt(arrivalDate == null ? NO_DATE : Math.toIntExact(arrivalDate.toEpochDay()));
+            reference(departurePort);
+            reference(arrivalPort);
+            out.writeByte(status.ordinal());
+            out.writeDouble(fuelUsed);
+        }
+
+        /**
+         * Writes the fuel burned on one day by the moves of one kind of vehicle from one port.
+         *
+         * @param truckType The truck type, or null for ships.
+         */
+        public void moveFuel(LocalDate date, Truck.TruckType truckType, String portId, double fuel)
+                throws IOException {
+            out.writeInt(Math.toIntExact(date.toEpochDay()));
+            out.writeByte(truckType == null ? SHIP : truckType.ordinal() + 1);
+            out.writeUTF(portId);
+            out.writeDouble(fuel);
+        }
+
+        public void admin(String username, String password) throws IOException {
+            out.writeBoolean(false);
+            out.writeUTF(username);
+            out.writeUTF(password);
+        }
+
+        public void manager(String username, String password, int managedPort) throws IOException {
+            out.writeBoolean(true);
+            out.writeUTF(username);
+            out.writeUTF(password);
+            reference(managedPort);
+        }
+
+        /**
+         * Writes a list of references.
+         *
+         * @param count   The number of references.
+         * @param indexAt Gives the position of the i-th referenced entity.
+         */
+        public void references(int count, IntUnaryOperator indexAt) throws IOException {
+            writeVarInt(count);
+            for (int i = 0; i < count; i++) {
+                reference(indexAt.applyAsInt(i));
+            }
+        }
+
+        private void reference(int index) throws IOException {
+            writeVarInt(index + 1);
+        }
+
+        // Unsigned LEB128: seven bits per byte, high bit set on all but the last byte
+        private void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+    }
+
+    /**
+     * Decodes the sections written by {@link Writer}, in any supported version of the format.
+     * Version 1 stored counts and references as {@code int}, enums by name and dates as {@code long} epoch days.
+     */
+    private static class Reader {
+        private static final Container.ContainerType[] CONTAINER_TYPES = Container.ContainerType.values();
+        private static final Truck.TruckType[] TRUCK_TYPES = Truck.TruckType.values();
+        private static final Trip.TripStatus[] TRIP_STATUSES = Trip.TripStatus.values();
+
+        private final DataInputStream in;
+        private final int version;
+
+        Reader(DataInputStream in, int version) {
+            this.in = in;
+            this.version = version;
+        }
+
+        int count() throws IOException {
+            int count = version == 1 ? in.readInt() : readVarInt();
+            if (count < 0) {
+                throw new IOException("Invalid count " + count);
+            }
+            return count;
+        }
+
+        Container container() throws IOException {
+            String id = in.readUTF();
+            double weight = in.readDouble();
+            return new Container(id, weight, enumValue(Container.ContainerType.class, CONTAINER_TYPES));
+        }
+
+        Port port() throws IOException {
+            return new Port(in.readUTF(), in.readUTF(), in.readDouble(), in.readDouble(),
+                    in.readInt(), in.readBoolean());
+        }
+
+        Vehicle vehicle(List<Port> ports, List<Container> containers) throws IOException {
+            int kind = in.readUnsignedByte();
+            String id = in.readUTF();
+            String name = in.readUTF();
+            double currentFuel = in.readDouble();
+            double fuelCapacity = in.readDouble();
+            int carryingCapacity = in.readInt();
+            Truck.TruckType truckType = null;
+            if (version == 1) {
+                if (kind != SHIP) {
+                    truckType = Truck.TruckType.valueOf(in.readUTF());
+                }
+            } else if (kind != SHIP) {
+                truckType = lookup(TRUCK_TYPES, kind - 1);
+            }
+            Vehicle vehicle = truckType != null
+                    ? new Truck(id, name, fuelCapacity, carryingCapacity, truckType)
+                    : new Ship(id, name, fuelCapacity, carryingCapacity);
+            vehicle.setCurrentPort(reference(ports));
+            vehicle.restoreContents(currentFuel, references(containers));
+            return vehicle;
+        }
+
+        Trip trip(List<Vehicle> vehicles, List<Port> ports) throws IOException {
+            Vehicle vehicle = reference(vehicles);
+            LocalDate departureDate;
+            LocalDate arrivalDate;
+            if (version == 1) {
+                departureDate = LocalDate.ofEpochDay(in.readLong());
+                arrivalDate = in.readBoolean() ? LocalDate.ofEpochDay(in.readLong()) : null;
+            } else {
+                departureDate = LocalDate.ofEpochDay(in.readInt());
+                int arrivalDay = in.readInt();
+                arrivalDate = arrivalDay == NO_DATE ? null : LocalDate.ofEpochDay(arrivalDay);
+            }
+            Port departurePort = reference(ports);
+            Port arrivalPort = reference(ports);
+            Trip trip = new Trip(vehicle, departureDate, arrivalDate, departurePort, arrivalPort,
+                    enumValue(Trip.TripStatus.class, TRIP_STATUSES));
+            if (version >= 3) {
+                trip.restoreFuelUsed(in.readDouble());
+            } else {
+                estimateFuelUsed(trip);
+            }
+            return trip;
+        }
+
+        FuelRollup.MoveFuel moveFuel() throws IOException {
+            LocalDate date = LocalDate.ofEpochDay(in.readInt());
+            int kind = in.readUnsignedByte();
+            Truck.TruckType truckType = kind == SHIP ? null : lookup(TRUCK_TYPES, kind - 1);
+            return new FuelRollup.MoveFuel(date, truckType, in.readUTF(), in.readDouble());
+        }
+
+        User user(List<Port> ports) throws IOException {
+            boolean manager = in.readBoolean();
+            String username = in.readUTF();
+            String password = in.readUTF();
+            return manager
+                    ? new PortManager(username, password, reference(ports))
+                    : new SystemAdmin(username, password);
+        }
+
+        <T> List<T> references(List<T> table) throws IOException {
+            int count = count();
+            List<T> items = new ArrayList<>(Math.min(count, table.size()));
+            for (int i = 0; i < count; i++) {
+                items.add(reference(table));
+            }
+            return items;
+        }
+
+        private <T> T reference(List<T> table) throws IOException {
+            int index = version == 1 ? in.readInt() : readVarInt() - 1;
+            if (index == NONE) {
+                return null;
+            }
+            if (index < 0 || index >= table.size()) {
+                throw new IOException("Dangling reference " + index);
+            }
+            return table.get(index);
+        }
+
+        private <E extends Enum<E>> E enumValue(Class<E> type, E[] values) throws IOException {
+            if (version == 1) {
+                try {
+                    return Enum.valueOf(type, in.readUTF());
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Unknown " + type.getSimpleName() + " value", e);
+                }
+            }
+            return lookup(values, in.readUnsignedByte());
+        }
+
+        private static <E> E lookup(E[] values, int ordinal) throws IOException {
+            if (ordinal >= values.length) {
+                throw new IOException("Unknown " + values.getClass().getComponentType().getSimpleName()
+                        + " ordinal " + ordinal);
+            }
+            return values[ordinal];
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed variable-length integer");
+        }
+    }
+
+    /**
+     * Assigns each distinct entity (by identity) a stable position.
+     */
+    private static class Table<T> {
+        private final List<T> entries = new ArrayList<>();
+        private final Map<T, Integer> positions = new IdentityHashMap<>();
+
+        void add(T item) {
+            if (item != null && !positions.containsKey(item)) {
+                positions.put(item, entries.size());
+                entries.add(item);
+            }
+        }
+
+        int indexOf(T item) {
+            return item == null ? NONE : positions.get(item);
+        }
+
+        T get(int index) {
+            return entries.get(index);
+        }
+
+        int size() {
+            return entries.size();
+        }
+    }
+}
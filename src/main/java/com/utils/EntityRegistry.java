@@ -0,0 +1,156 @@
+package com.utils;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Registry of entities keyed by their unique ID, giving constant-time lookups.
+ * Iteration follows insertion order, so listings look the same as with the plain lists used before.
+ *
+ * @param <T> The type of entity stored.
+ */
+public class EntityRegistry<T> implements Iterable<T> {
+
+    /**
+     * Callback for keeping derived indexes in sync with the registry.
+     *
+     * @param <T> The type of entity stored.
+     */
+    public interface Listener<T> {
+        void added(T entity);
+
+        void removed(T entity);
+    }
+
+    private final Map<String, T> entries = new LinkedHashMap<>();
+    private final List<Listener<T>> listeners = new ArrayList<>();
+    private final Function<T, String> idFunction;
+    private final String entityName;
+
+    /**
+     * Constructs a new EntityRegistry.
+     *
+     * @param entityName The entity name used in error messages (e.g. "Port").
+     * @param idFunction Extracts the unique ID from an entity.
+     */
+    public EntityRegistry(String entityName, Function<T, String> idFunction) {
+        this.entityName = entityName;
+        this.idFunction = idFunction;
+    }
+
+    /**
+     * Adds an entity to the registry.
+     *
+     * @param entity The entity to add.
+     * @throws IllegalArgumentException If an entity with the same ID is already registered.
+     */
+    public void add(T entity) {
+        String id = idFunction.apply(entity);
+        if (entries.putIfAbsent(id, entity) != null) {
+            throw new IllegalArgumentException(entityName + " with ID " + id + " already exists");
+        }
+        listeners.forEach(l -> l.added(entity));
+    }
+
+    /**
+     * Replaces the entity registered under the same ID, keeping its position.
+     *
+     * @param entity The new entity.
+     * @return True if an entity was replaced, false if none had that ID.
+     */
+    public boolean replace(T entity) {
+        T previous = entries.replace(idFunction.apply(entity), entity);
+        if (previous != null && previous != entity) {
+            listeners.forEach(l -> l.removed(previous));
+            listeners.forEach(l -> l.added(entity));
+        }
+        return previous != null;
+    }
+
+    /**
+     * Removes an entity by ID.
+     *
+     * @param id The ID of the entity to remove.
+     * @return The removed entity, or null if none was registered.
+     */
+    public T remove(String id) {
+        T removed = entries.remove(id);
+        if (removed != null) {
+            listeners.forEach(l -> l.removed(removed));
+        }
+        return removed;
+    }
+
+    /**
+     * Gets an entity by ID.
+     *
+     * @param id The ID to look up.
+     * @return The entity, or null if none is registered.
+     */
+    public T get(String id) {
+        LookupEvent event = new LookupEvent();
+        event.begin();
+        T entity = entries.get(id);
+        if (event.shouldCommit()) {
+            event.entity = entityName;
+            event.id = id;
+            event.found = entity != null;
+            event.commit();
+        }
+        return entity;
+    }
+
+    public boolean contains(String id) {
+        return entries.containsKey(id);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Gets a read-only view of the registered entities in insertion order.
+     * @return The entities.
+     */
+    public Collection<T> values() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    /**
+     * Replaces the contents of the registry, e.g. after loading data from files.
+     * Entities whose ID is already taken are skipped with a warning.
+     *
+     * @param entities The entities to register.
+     */
+    public void rebuild(Collection<? extends T> entities) {
+        for (T entity : entries.values()) {
+            listeners.forEach(l -> l.removed(entity));
+        }
+        entries.clear();
+        for (T entity : entities) {
+            String id = idFunction.apply(entity);
+            if (entries.putIfAbsent(id, entity) != null) {
+                System.err.println("Ignoring duplicate " + entityName.toLowerCase() + " ID " + id);
+            } else {
+                listeners.forEach(l -> l.added(entity));
+            }
+        }
+    }
+
+    /**
+     * Registers a listener notified whenever an entity is added or removed.
+     * @param listener The listener.
+     */
+    public void addListener(Listener<T> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return values().iterator();
+    }
+}
@@ -0,0 +1,32 @@
+package com.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a save or load of a data file by {@link FileHandler}, lasting the whole read or
+ * write. Enabled by the settings in {@code jfr/pms.jfc}.
+ */
+@Name("com.pms.File")
+@Label("File Save or Load")
+@Category({"Port Management System", "Persistence"})
+@Description("A data file saved or loaded by FileHandler")
+public class FileEvent extends Event {
+    @Label("Operation")
+    @Description("saveData, loadData, saveStore or loadStore")
+    public String operation;
+
+    @Label("File")
+    public String file;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
@@ -1,8 +1,19 @@
 package com.utils;
 
 import com.models.*;
+import com.users.PortManager;
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 /**
  * Utility class for handling file operations, specifically saving and loading data to/from files.
@@ -12,7 +23,54 @@ public class FileHandler {
     /**
      * The directory where data files are stored.
      */
-    private static final String DATA_DIRECTORY = "data/";
+    static final String DATA_DIRECTORY = "data/";
+
+    /**
+     * The unified store file holding the whole object graph.
+     */
+    private static final String STORE_FILE = "store.dat";
+
+    // Legacy per-list files, read when no unified store exists yet
+    private static final String USERS_FILE = "users.dat";
+    private static final String PORTS_FILE = "ports.dat";
+    private static final String VEHICLES_FILE = "vehicles.dat";
+    private static final String CONTAINERS_FILE = "containers.dat";
+    private static final String TRIPS_FILE = "trips.dat";
+
+    // Read and write buffer size for data files
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The write-ahead journal of changes made since the store was written.
+     */
+    public static final String JOURNAL_FILE = "journal.log";
+
+    /**
+     * The archive of trips evicted from the ports' recent traffic windows.
+     */
+    public static final String ARCHIVE_FILE = "traffic.archive";
+
+    /**
+     * The columnar copy of the trip history written with each snapshot; see {@link TripLog}.
+     */
+    public static final String TRIP_LOG_FILE = "trips.col";
+
+    /**
+     * The dump of the operation metrics; see {@link Metrics#dump(String)}.
+     */
+    public static final String METRICS_FILE = "metrics.json";
+
+    private static final Metrics.Operation SAVE_DATA = Metrics.timer("file.saveData");
+    private static final Metrics.Operation LOAD_DATA = Metrics.timer("file.loadData");
+    private static final Metrics.Operation SAVE_STORE = Metrics.timer("file.saveStore");
+    private static final Metrics.Operation LOAD_STORE = Metrics.timer("file.loadStore");
+
+    /**
+     * Source of the sections of a store file.
+     */
+    public interface StoreContent {
+        void writeTo(DataStore.Writer writer) throws IOException;
+    }
 
     /**
      * Saves a list of objects to a file using serialization.
@@ -22,12 +80,22 @@ public class FileHandler {
      * @param <T>      The type of objects in the list.
      */
     public static <T> void saveData(String fileName, List<T> data) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(DATA_DIRECTORY + fileName))) {
+        long started = SAVE_DATA.start();
+        FileEvent event = new FileEvent();
+        event.begin();
+        File file = new File(DATA_DIRECTORY + fileName);
+        try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(Paths.get(DATA_DIRECTORY, fileName)), BUFFER_SIZE))) {
             oos.writeObject(data); // Write the list to the file
         } catch (IOException e) {
+            SAVE_DATA.recordFailure(started);
+            commit(event, "saveData", file, false);
             System.err.println("Error saving data to " + fileName + ": " + e.getMessage());
             e.printStackTrace();
+            return;
         }
+        SAVE_DATA.record(started);
+        commit(event, "saveData", file, true);
     }
 
     /**
@@ -39,10 +107,13 @@ public class FileHandler {
      * @return A list of loaded objects, or an empty list if the file doesn't exist or an error occurs.
      */
     public static <T> List<T> loadData(String fileName, Class<T> type) {
+        long started = LOAD_DATA.start();
+        FileEvent event = new FileEvent();
+        event.begin();
         List<T> data = new ArrayList<>();
         File file = new File(DATA_DIRECTORY + fileName);
         if (file.exists()) { // Check if the file exists
-            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
+            try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file.toPath()), BUFFER_SIZE))) {
                 Object obj = ois.readObject(); // Read the object from the file
                 if (obj instanceof List<?>) { // Check if the object is a list
                     for (Object item : (List<?>) obj) { // Iterate through the list
@@ -52,51 +123,256 @@ public class FileHandler {
                     }
                 }
             } catch (IOException | ClassNotFoundException e) {
+                LOAD_DATA.recordFailure(started);
+                commit(event, "loadData", file, false);
                 System.err.println("Error loading data from " + fileName + ": " + e.getMessage());
                 e.printStackTrace();
+                return data;
             }
         }
+        LOAD_DATA.record(started);
+        commit(event, "loadData", file, true);
         return data;
     }
 
     public static void saveUsers(List<User> users) {
-        saveData("users.dat", users);
+        saveData(USERS_FILE, users);
     }
 
     public static List<User> loadUsers() {
-        return loadData("users.dat", User.class);
+        return loadData(USERS_FILE, User.class);
     }
 
     public static void savePorts(List<Port> ports) {
-        saveData("ports.dat", ports);
+        saveData(PORTS_FILE, ports);
     }
 
     public static List<Port> loadPorts() {
-        return loadData("ports.dat", Port.class);
+        return loadData(PORTS_FILE, Port.class);
     }
 
     public static void saveVehicles(List<Vehicle> vehicles) {
-        saveData("vehicles.dat", vehicles);
+        saveData(VEHICLES_FILE, vehicles);
     }
 
     public static List<Vehicle> loadVehicles() {
-        return loadData("vehicles.dat", Vehicle.class);
+        return loadData(VEHICLES_FILE, Vehicle.class);
     }
 
     public static void saveContainers(List<Container> containers) {
-        saveData("containers.dat", containers);
+        saveData(CONTAINERS_FILE, containers);
     }
 
     public static List<Container> loadContainers() {
-        return loadData("containers.dat", Container.class);
+        return loadData(CONTAINERS_FILE, Container.class);
     }
 
     public static void saveTrips(List<Trip> trips) {
-        saveData("trips.dat", trips);
+        saveData(TRIPS_FILE, trips);
     }
 
     public static List<Trip> loadTrips() {
-        return loadData("trips.dat", Trip.class);
+        return loadData(TRIPS_FILE, Trip.class);
+    }
+
+    /**
+     * Saves a complete snapshot to the unified store file.
+     * The snapshot is written to a temporary file first and then moved into place, so a crash
+     * while saving never leaves a half-written store behind.
+     *
+     * @param store The snapshot to save.
+     * @return True if the snapshot is safely on disk, false otherwise.
+     */
+    public static boolean saveStore(DataStore store) {
+        return saveStore(store::writeTo);
+    }
+
+    /**
+     * Writes the unified store file section by section, e.g. from a data generator that never holds
+     * the whole object graph in memory. Written atomically like {@link #saveStore(DataStore)}.
+     *
+     * @param content Writes the store sections.
+     * @return True if the store is safely on disk, false otherwise.
+     */
+    public static boolean saveStore(StoreContent content) {
+        long started = SAVE_STORE.start();
+        FileEvent event = new FileEvent();
+        event.begin();
+        File file = new File(DATA_DIRECTORY + STORE_FILE);
+        File temp = new File(DATA_DIRECTORY + STORE_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE))) {
+            content.writeTo(new DataStore.Writer(out));
+            out.flush();
+            // The rename must not reach the disk before the data it points at
+            channel.force(true);
+        } catch (IOException e) {
+            SAVE_STORE.recordFailure(started);
+            commit(event, "saveStore", temp, false);
+            System.err.println("Error saving data to " + STORE_FILE + ": " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory(Paths.get(DATA_DIRECTORY));
+            SAVE_STORE.record(started);
+            commit(event, "saveStore", file, true);
+            return true;
+        } catch (IOException e) {
+            SAVE_STORE.recordFailure(started);
+            commit(event, "saveStore", temp, false);
+            System.err.println("Error replacing " + STORE_FILE + ": " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Forces a directory's entries, e.g. a file just renamed into it, to the storage device.
+     *
+     * @param directory The directory.
+     * @throws IOException If the directory could be opened but not forced.
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // Some platforms, e.g. Windows, can't open a directory; renames there are as durable as they get
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Loads the snapshot from the unified store file.
+     *
+     * @return The loaded snapshot, or null if the store doesn't exist or cannot be read.
+     */
+    public static DataStore loadStore() {
+        File file = new File(DATA_DIRECTORY + STORE_FILE);
+        if (!file.exists()) {
+            return null;
+        }
+        long started = LOAD_STORE.start();
+        FileEvent event = new FileEvent();
+        event.begin();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath()), BUFFER_SIZE))) {
+            DataStore store = DataStore.read(in);
+            LOAD_STORE.record(started);
+            commit(event, "loadStore", file, true);
+            return store;
+        } catch (IOException e) {
+            LOAD_STORE.recordFailure(started);
+            commit(event, "loadStore", file, false);
+            System.err.println("Error loading data from " + STORE_FILE + ": " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Loads the last snapshot for startup: the unified store if it exists, otherwise the legacy per-list files.
+     * The legacy files are read concurrently, so loading takes about as long as the largest file rather
+     * than the sum of all five. The time taken by each file is recorded in the report.
+     *
+     * @param executor Runs the file loads.
+     * @param report   Receives the per-file load times.
+     * @return The loaded snapshot, empty if there is no data yet.
+     */
+    public static DataStore loadAll(Executor executor, LoadReport report) {
+        if (new File(DATA_DIRECTORY + STORE_FILE).exists()) {
+            DataStore store = report.time(STORE_FILE, FileHandler::loadStore);
+            if (store != null) {
+                return store;
+            }
+        }
+        CompletableFuture<List<User>> users = CompletableFuture.supplyAsync(
+                () -> report.time(USERS_FILE, FileHandler::loadUsers), executor);
+        CompletableFuture<List<Port>> ports = CompletableFuture.supplyAsync(
+                () -> report.time(PORTS_FILE, FileHandler::loadPorts), executor);
+        CompletableFuture<List<Vehicle>> vehicles = CompletableFuture.supplyAsync(
+                () -> report.time(VEHICLES_FILE, FileHandler::loadVehicles), executor);
+        CompletableFuture<List<Container>> containers = CompletableFuture.supplyAsync(
+                () -> report.time(CONTAINERS_FILE, FileHandler::loadContainers), executor);
+        CompletableFuture<List<Trip>> trips = CompletableFuture.supplyAsync(
+                () -> report.time(TRIPS_FILE, FileHandler::loadTrips), executor);
+        return relinkLegacy(users.join(), ports.join(), vehicles.join(), containers.join(), trips.join());
+    }
+
+    /**
+     * Commits a Flight Recorder event for a save or load, if it is being recorded.
+     */
+    private static void commit(FileEvent event, String operation, File file, boolean succeeded) {
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.file = file.getName();
+            event.bytes = file.length();
+            event.succeeded = succeeded;
+            event.commit();
+        }
+    }
+
+    /**
+     * Joins the separately serialized legacy lists into one object graph. Each file holds its own copies of
+     * the entities it references, so references are resolved by ID to the first port, vehicle or container
+     * with that ID in its own list. Port traffic is kept as loaded, since trips have no ID to resolve by.
+     */
+    private static DataStore relinkLegacy(List<User> users, List<Port> ports, List<Vehicle> vehicles,
+                                          List<Container> containers, List<Trip> trips) {
+        Map<String, Port> portsById = new HashMap<>();
+        ports.forEach(port -> portsById.putIfAbsent(port.getId(), port));
+        Map<String, Vehicle> vehiclesById = new HashMap<>();
+        vehicles.forEach(vehicle -> vehiclesById.putIfAbsent(vehicle.getId(), vehicle));
+        Map<String, Container> containersById = new HashMap<>();
+        containers.forEach(container -> containersById.putIfAbsent(container.getId(), container));
+
+        for (Vehicle vehicle : vehiclesById.values()) {
+            Port port = vehicle.getCurrentPort();
+            vehicle.setCurrentPort(port == null ? null : portsById.getOrDefault(port.getId(), port));
+            vehicle.restoreContents(vehicle.getCurrentFuel(), resolve(vehicle.getContainers(), Container::getId, containersById));
+        }
+        for (Port port : portsById.values()) {
+            // A vehicle is docked where its own current port says it is
+            List<Vehicle> docked = resolve(port.getVehicles(), Vehicle::getId, vehiclesById);
+            docked.removeIf(vehicle -> vehicle.getCurrentPort() != port);
+            port.restoreContents(resolve(port.getContainers(), Container::getId, containersById), docked,
+                    port.getCurrentTraffic(), port.getPastTraffic());
+        }
+        List<Trip> relinkedTrips = new ArrayList<>(trips.size());
+        for (Trip trip : trips) {
+            Trip relinked = new Trip(vehiclesById.getOrDefault(trip.getVehicle().getId(), trip.getVehicle()),
+                    trip.getDepartureDate(), trip.getArrivalDate(),
+                    portsById.getOrDefault(trip.getDeparturePort().getId(), trip.getDeparturePort()),
+                    portsById.getOrDefault(trip.getArrivalPort().getId(), trip.getArrivalPort()),
+                    trip.getStatus());
+            DataStore.estimateFuelUsed(relinked);
+            relinkedTrips.add(relinked);
+        }
+        for (User user : users) {
+            if (user instanceof PortManager) {
+                PortManager manager = (PortManager) user;
+                Port port = manager.getManagedPort();
+                if (port != null) {
+                    manager.setManagedPort(portsById.getOrDefault(port.getId(), port));
+                }
+            }
+        }
+        return new DataStore(users, ports, vehicles, containers, relinkedTrips);
+    }
+
+    // Maps each entity to the registered one with the same ID, dropping repeated IDs
+    private static <T> List<T> resolve(List<T> items, Function<T, String> idFunction, Map<String, T> byId) {
+        Map<String, T> resolved = new LinkedHashMap<>();
+        for (T item : items) {
+            String id = idFunction.apply(item);
+            resolved.putIfAbsent(id, byId.getOrDefault(id, item));
+        }
+        return new ArrayList<>(resolved.values());
     }
 
     static {
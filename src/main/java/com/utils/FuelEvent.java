@@ -0,0 +1,41 @@
+package com.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for the fuel calculation of a vehicle moving between ports, lasting the whole move.
+ */
+@Name("com.pms.FuelCalculation")
+@Label("Vehicle Move Fuel")
+@Category({"Port Management System", "Trips"})
+@Description("The fuel a vehicle burned moving to another port")
+public class FuelEvent extends Event {
+    @Label("Vehicle")
+    public String vehicle;
+
+    @Label("Origin")
+    public String origin;
+
+    @Label("Destination")
+    public String destination;
+
+    @Label("Distance")
+    @Description("Kilometers between the ports")
+    public double distance;
+
+    @Label("Load")
+    @Description("Total container weight carried")
+    public double load;
+
+    @Label("Fuel Required")
+    @Description("Gallons burned")
+    public double fuelRequired;
+
+    @Label("Fuel Remaining")
+    @Description("Gallons left after the move")
+    public double fuelRemaining;
+}
@@ -0,0 +1,244 @@
+package com.utils;
+
+import com.models.Port;
+import com.models.Trip;
+import com.models.Truck;
+import com.models.Vehicle;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Running totals of the fuel used per day, broken down by vehicle type and departure port. Totals are
+ * updated as trips complete and vehicles move, so a daily fuel report is a map lookup instead of a pass over
+ * the trips of the day.
+ *
+ * <p>A completed trip counts on the day it departed and on the day it arrived (once if that is the same
+ * day), with the amount captured when it completed ({@link Trip#getFuelUsed()}). A vehicle moved directly
+ * to another port counts on the day of the move. Trip totals can be rebuilt from the trips, but moves leave
+ * no trip behind, so their totals are kept separately as well for the data store to save.</p>
+ */
+public class FuelRollup {
+    private static final Truck.TruckType[] TRUCK_TYPES = Truck.TruckType.values();
+    private static final int SHIP = 0;
+
+    private final Map<Long, DayTotals> byDay = new HashMap<>();
+    // Fuel burned by moves, by day, departure port and vehicle kind
+    private final Map<Long, Map<String, double[]>> moves = new TreeMap<>();
+
+    /**
+     * Adds a completed trip to the totals. Trips that haven't completed are ignored.
+     * @param trip The trip to add.
+     */
+    public void add(Trip trip) {
+        if (trip.getStatus() != Trip.TripStatus.COMPLETED) {
+            return;
+        }
+        for (long day : daysOf(trip)) {
+            byDay.computeIfAbsent(day, d -> new DayTotals())
+                    .add(kindOf(trip.getVehicle()), portIdOf(trip.getDeparturePort()), trip.getFuelUsed(), 1);
+        }
+    }
+
+    /**
+     * Takes a completed trip back out of the totals.
+     * @param trip The trip to remove.
+     */
+    public void remove(Trip trip) {
+        if (trip.getStatus() != Trip.TripStatus.COMPLETED) {
+            return;
+        }
+        for (long day : daysOf(trip)) {
+            DayTotals totals = byDay.get(day);
+            if (totals != null) {
+                totals.add(kindOf(trip.getVehicle()), portIdOf(trip.getDeparturePort()), -trip.getFuelUsed(), -1);
+                if (totals.entries == 0) {
+                    byDay.remove(day);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the fuel a vehicle burned moving directly from one port to another.
+     * @param vehicle The vehicle that moved.
+     * @param origin  The port it left.
+     * @param date    The day of the move.
+     * @param fuel    The fuel it burned.
+     */
+    public void addMove(Vehicle vehicle, Port origin, LocalDate date, double fuel) {
+        addMove(date.toEpochDay(), kindOf(vehicle), portIdOf(origin), fuel);
+    }
+
+    private void addMove(long day, int kind, String portId, double fuel) {
+        byDay.computeIfAbsent(day, d -> new DayTotals()).add(kind, portId, fuel, 1);
+        moves.computeIfAbsent(day, d -> new TreeMap<>())
+                .computeIfAbsent(portId, id -> new double[TRUCK_TYPES.length + 1])[kind] += fuel;
+    }
+
+    /**
+     * Replaces the totals, e.g. after loading data from files.
+     * @param trips     The trips to total.
+     * @param moveFuels The fuel burned by moves, as returned by {@link #getMoveFuels()}.
+     */
+    public void rebuild(Collection<Trip> trips, Collection<MoveFuel> moveFuels) {
+        byDay.clear();
+        moves.clear();
+        trips.forEach(this::add);
+        for (MoveFuel moveFuel : moveFuels) {
+            addMove(moveFuel.getDate().toEpochDay(), kindOf(moveFuel.getTruckType()), moveFuel.getPortId(),
+                    moveFuel.getFuel());
+        }
+    }
+
+    /**
+     * Gets the fuel burned by moves, one entry per day, departure port and vehicle kind, for saving.
+     * @return The move totals, ordered by day and port.
+     */
+    public List<MoveFuel> getMoveFuels() {
+        List<MoveFuel> moveFuels = new ArrayList<>();
+        moves.forEach((day, byPort) -> byPort.forEach((portId, byKind) -> {
+            for (int kind = 0; kind < byKind.length; kind++) {
+                if (byKind[kind] != 0) {
+                    moveFuels.add(new MoveFuel(LocalDate.ofEpochDay(day), kind == SHIP ? null : TRUCK_TYPES[kind - 1],
+                            portId, byKind[kind]));
+                }
+            }
+        }));
+        return moveFuels;
+    }
+
+    /**
+     * Gets the fuel used by the trips departing or arriving on a given day and the moves made that day.
+     * @param date The day.
+     * @return The total fuel used.
+     */
+    public double getFuel(LocalDate date) {
+        DayTotals totals = byDay.get(date.toEpochDay());
+        return totals == null ? 0 : totals.total;
+    }
+
+    /**
+     * Gets the fuel used on a given day by departure port.
+     * @param date The day.
+     * @return The fuel used, by the ID of the departure port, ordered by ID.
+     */
+    public Map<String, Double> getFuelByPort(LocalDate date) {
+        DayTotals totals = byDay.get(date.toEpochDay());
+        Map<String, Double> byPort = new TreeMap<>();
+        if (totals != null) {
+            totals.byPort.forEach((portId, fuel) -> {
+                if (fuel != 0) {
+                    byPort.put(portId, fuel);
+                }
+            });
+        }
+        return byPort;
+    }
+
+    /**
+     * Gets the fuel used by ships on a given day.
+     * @param date The day.
+     * @return The total fuel used by ships.
+     */
+    public double getShipFuel(LocalDate date) {
+        DayTotals totals = byDay.get(date.toEpochDay());
+        return totals == null ? 0 : totals.byKind[SHIP];
+    }
+
+    /**
+     * Gets the fuel used by one type of truck on a given day.
+     * @param date The day.
+     * @param type The truck type.
+     * @return The total fuel used by trucks of that type.
+     */
+    public double getTruckFuel(LocalDate date, Truck.TruckType type) {
+        DayTotals totals = byDay.get(date.toEpochDay());
+        return totals == null ? 0 : totals.byKind[type.ordinal() + 1];
+    }
+
+    private static long[] daysOf(Trip trip) {
+        long departureDay = trip.getDepartureDate().toEpochDay();
+        if (trip.getArrivalDate() == null || trip.getArrivalDate().toEpochDay() == departureDay) {
+            return new long[]{departureDay};
+        }
+        return new long[]{departureDay, trip.getArrivalDate().toEpochDay()};
+    }
+
+    private static int kindOf(Vehicle vehicle) {
+        return kindOf(vehicle instanceof Truck ? ((Truck) vehicle).getType() : null);
+    }
+
+    private static int kindOf(Truck.TruckType truckType) {
+        return truckType == null ? SHIP : truckType.ordinal() + 1;
+    }
+
+    private static String portIdOf(Port port) {
+        return port == null ? "" : port.getId();
+    }
+
+    /**
+     * The fuel burned on one day by the moves of one kind of vehicle from one port.
+     */
+    public static class MoveFuel {
+        private final LocalDate date;
+        private final Truck.TruckType truckType;
+        private final String portId;
+        private final double fuel;
+
+        /**
+         * Constructs a new MoveFuel.
+         *
+         * @param truckType The truck type, or null for ships.
+         */
+        public MoveFuel(LocalDate date, Truck.TruckType truckType, String portId, double fuel) {
+            this.date = date;
+            this.truckType = truckType;
+            this.portId = portId;
+            this.fuel = fuel;
+        }
+
+        public LocalDate getDate() {
+            return date;
+        }
+
+        public Truck.TruckType getTruckType() {
+            return truckType;
+        }
+
+        public String getPortId() {
+            return portId;
+        }
+
+        public double getFuel() {
+            return fuel;
+        }
+    }
+
+    /**
+     * The totals of one day. Fuel is indexed by vehicle kind as in the data store: 0 for ships,
+     * 1 + the truck type ordinal for trucks.
+     */
+    private static class DayTotals {
+        private final double[] byKind = new double[TRUCK_TYPES.length + 1];
+        private final Map<String, Double> byPort = new HashMap<>();
+        private double total;
+        private int entries; // Trips and moves counted
+
+        /**
+         * Adds fuel to the totals, or takes it out with a negative amount and a count of -1.
+         */
+        void add(int kind, String portId, double fuel, int count) {
+            entries += count;
+            total += fuel;
+            byKind[kind] += fuel;
+            if (!portId.isEmpty()) {
+                byPort.merge(portId, fuel, Double::sum);
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.utils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal used instead of rewriting every data file on each change.
+ * Each mutation is appended as a small checksummed record. Periodically the caller writes a full
+ * snapshot and calls {@link #checkpoint()}, after which only records newer than the snapshot are
+ * replayed on startup.
+ *
+ * <p>Record layout: {@code [int length][int crc32][long sequence][utf operation][short argc][utf arg]*}.
+ * A torn or corrupt record at the end of the file (e.g. after a crash mid-write) is discarded on open.</p>
+ */
+public class Journal implements Closeable {
+
+    /**
+     * Controls when appended records are forced to the storage device.
+     */
+    public enum SyncPolicy {
+        /** Force after every record. Safest, slowest. */
+        ALWAYS,
+        /** Force once every {@code syncInterval} records, and on {@link #sync()}. */
+        INTERVAL,
+        /** Never force explicitly; rely on the operating system to flush. */
+        NEVER
+    }
+
+    private static final int HEADER_SIZE = 8; // length + crc
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+
+    private final Path journalPath;
+    private final Path checkpointPath;
+    private final SyncPolicy syncPolicy;
+    private final int syncInterval;
+    private final FileChannel channel;
+
+    private long nextSequence;
+    private long checkpointSequence;
+    private int recordCount; // records written since the last checkpoint
+    private int unsyncedCount;
+    // Records read on open that are newer than the checkpoint, kept until replayed
+    private List<JournalEntry> pending = new ArrayList<>();
+
+    /**
+     * Opens (or creates) a journal in the data directory, recovering from a torn tail if needed.
+     *
+     * @param fileName     The name of the journal file.
+     * @param syncPolicy   When records are forced to disk.
+     * @param syncInterval The number of records between forces when using {@link SyncPolicy#INTERVAL}.
+     */
+    public Journal(String fileName, SyncPolicy syncPolicy, int syncInterval) {
+        this.journalPath = Paths.get(FileHandler.DATA_DIRECTORY, fileName);
+        this.checkpointPath = Paths.get(FileHandler.DATA_DIRECTORY, fileName + ".checkpoint");
+        this.syncPolicy = syncPolicy;
+        this.syncInterval = Math.max(1, syncInterval);
+        try {
+            Files.createDirectories(journalPath.getParent());
+            this.checkpointSequence = readCheckpoint();
+            this.channel = FileChannel.open(journalPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long[] lastSequence = {checkpointSequence};
+            long validLength = scan(entry -> {
+                lastSequence[0] = Math.max(lastSequence[0], entry.getSequence());
+                if (entry.getSequence() > checkpointSequence) {
+                    pending.add(entry);
+                }
+            });
+            this.recordCount = pending.size();
+            if (validLength < channel.size()) {
+                System.err.println("Discarding corrupt journal tail in " + fileName + " at byte " + validLength);
+                channel.truncate(validLength);
+            }
+            channel.position(validLength);
+            this.nextSequence = lastSequence[0] + 1;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open journal " + fileName + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Replays every record newer than the last checkpoint, in the order they were written.
+     * The records are read once when the journal is opened, so opening can run alongside loading the
+     * snapshot and only the replay itself has to wait for it. A journal can only be replayed once.
+     *
+     * @param consumer Callback applying each entry to the in-memory state.
+     */
+    public void replay(Consumer<JournalEntry> consumer) {
+        List<JournalEntry> entries = pending;
+        pending = new ArrayList<>();
+        entries.forEach(consumer);
+    }
+
+    /**
+     * Appends a record for a mutation that has already been applied in memory.
+     *
+     * @param operation The mutation performed.
+     * @param args      The arguments needed to replay it. Null arguments are stored as empty strings.
+     * @return The sequence number assigned to the record.
+     */
+    public synchronized long append(JournalEntry.Operation operation, String... args) {
+        long sequence = nextSequence++;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            encode(bytes, sequence, operation, args);
+            write(ByteBuffer.wrap(bytes.toByteArray()), 1);
+        } catch (IOException e) {
+            System.err.println("Error appending to journal " + journalPath + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+        return sequence;
+    }
+
+    /**
+     * Appends the records of a batch of mutations that have already been applied in memory, with one write
+     * and at most one force instead of one per record. The entries' own sequence numbers are ignored;
+     * they are numbered in order after the last record.
+     *
+     * @param entries The mutations performed, in order.
+     */
+    public synchronized void appendAll(List<JournalEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * entries.size());
+            for (JournalEntry entry : entries) {
+                String[] args = new String[entry.getArgCount()];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = entry.getArg(i);
+                }
+                encode(bytes, nextSequence++, entry.getOperation(), args);
+            }
+            write(ByteBuffer.wrap(bytes.toByteArray()), entries.size());
+        } catch (IOException e) {
+            System.err.println("Error appending to journal " + journalPath + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Encodes one checksummed record.
+     */
+    private static void encode(ByteArrayOutputStream bytes, long sequence, JournalEntry.Operation operation,
+                               String[] args) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(payloadBytes);
+        out.writeLong(sequence);
+        out.writeUTF(operation.name());
+        out.writeShort(args.length);
+        for (String arg : args) {
+            out.writeUTF(arg == null ? "" : arg);
+        }
+        byte[] payload = payloadBytes.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeInt(payload.length);
+        record.writeInt((int) crc.getValue());
+        record.write(payload);
+    }
+
+    /**
+     * Writes encoded records at the end of the journal and forces them according to the sync policy.
+     */
+    private void write(ByteBuffer records, int count) throws IOException {
+        while (records.hasRemaining()) {
+            channel.write(records);
+        }
+        recordCount += count;
+        unsyncedCount += count;
+        if (syncPolicy == SyncPolicy.ALWAYS
+                || (syncPolicy == SyncPolicy.INTERVAL && unsyncedCount >= syncInterval)) {
+            sync();
+        }
+    }
+
+    /**
+     * Forces all appended records to the storage device.
+     */
+    public synchronized void sync() {
+        if (unsyncedCount == 0) {
+            return;
+        }
+        try {
+            channel.force(false);
+            unsyncedCount = 0;
+        } catch (IOException e) {
+            System.err.println("Error syncing journal " + journalPath + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Marks every record written so far as covered by a snapshot and empties the journal.
+     * Must only be called after the snapshot has been written successfully.
+     */
+    public synchronized void checkpoint() {
+        long sequence = nextSequence - 1;
+        try {
+            Path temp = checkpointPath.resolveSibling(checkpointPath.getFileName() + ".tmp");
+            try (FileChannel file = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                file.write(ByteBuffer.wrap(Long.toString(sequence).getBytes(StandardCharsets.UTF_8)));
+                file.force(true);
+            }
+            Files.move(temp, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            FileHandler.syncDirectory(checkpointPath.toAbsolutePath().getParent());
+            checkpointSequence = sequence;
+            // The checkpoint is durable, so the records it covers can go.
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(true);
+            recordCount = 0;
+            unsyncedCount = 0;
+        } catch (IOException e) {
+            System.err.println("Error checkpointing journal " + journalPath + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Gets the number of records written since the last checkpoint.
+     * @return The record count.
+     */
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public synchronized void close() {
+        sync();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing journal " + journalPath + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads records from the start of the file until the end or the first invalid record.
+     * The file is read sequentially through a buffer rather than with a positioned read per record.
+     *
+     * @return The length of the valid prefix of the file.
+     */
+    private long scan(Consumer<JournalEntry> consumer) throws IOException {
+        long position = 0;
+        long size = channel.size();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalPath), 1 << 16))) {
+            while (position + HEADER_SIZE <= size) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length <= 0 || length > MAX_RECORD_SIZE || position + HEADER_SIZE + length > size) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                long sequence = record.readLong();
+                JournalEntry.Operation operation;
+                try {
+                    operation = JournalEntry.Operation.valueOf(record.readUTF());
+                } catch (IllegalArgumentException e) {
+                    break;
+                }
+                String[] args = new String[record.readUnsignedShort()];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = record.readUTF();
+                }
+                consumer.accept(new JournalEntry(sequence, operation, args));
+                position += HEADER_SIZE + length;
+            }
+        }
+        return position;
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (!Files.exists(checkpointPath)) {
+            return 0;
+        }
+        String content = new String(Files.readAllBytes(checkpointPath), StandardCharsets.UTF_8).trim();
+        try {
+            return content.isEmpty() ? 0 : Long.parseLong(content);
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring unreadable journal checkpoint " + checkpointPath);
+            return 0;
+        }
+    }
+}
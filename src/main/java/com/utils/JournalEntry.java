@@ -0,0 +1,82 @@
+package com.utils;
+
+import java.util.Arrays;
+
+/**
+ * A single mutation recorded in the write-ahead journal.
+ * Entities are referenced by ID and all arguments are stored as strings, so an entry stays small
+ * no matter how large the object graph it touches is.
+ */
+public class JournalEntry {
+
+    /**
+     * The kinds of mutations the system can journal.
+     * Stored by name, so new operations can be appended without breaking existing journals.
+     */
+    public enum Operation {
+        ADD_MANAGER,
+        REMOVE_MANAGER,
+        MODIFY_USER,
+        ADD_VEHICLE,
+        REMOVE_VEHICLE,
+        MODIFY_VEHICLE,
+        ADD_PORT,
+        REMOVE_PORT,
+        MODIFY_PORT,
+        ADD_CONTAINER,
+        REMOVE_CONTAINER,
+        MODIFY_CONTAINER,
+        LOAD_CONTAINER,
+        UNLOAD_CONTAINER,
+        MOVE_VEHICLE,
+        REFUEL_VEHICLE
+    }
+
+    private final long sequence;
+    private final Operation operation;
+    private final String[] args;
+
+    /**
+     * Constructs a new JournalEntry.
+     *
+     * @param sequence  The sequence number assigned by the journal.
+     * @param operation The mutation that was performed.
+     * @param args      The arguments needed to replay the mutation.
+     */
+    public JournalEntry(long sequence, Operation operation, String... args) {
+        this.sequence = sequence;
+        this.operation = operation;
+        this.args = args;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Gets an argument of the entry.
+     *
+     * @param index The position of the argument.
+     * @return The argument, or an empty string if the entry has fewer arguments.
+     */
+    public String getArg(int index) {
+        return index < args.length ? args[index] : "";
+    }
+
+    public int getArgCount() {
+        return args.length;
+    }
+
+    @Override
+    public String toString() {
+        return "JournalEntry{" +
+                "sequence=" + sequence +
+                ", operation=" + operation +
+                ", args=" + Arrays.toString(args) +
+                '}';
+    }
+}
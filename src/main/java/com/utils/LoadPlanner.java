@@ -0,0 +1,273 @@
+package com.utils;
+
+import com.models.Container;
+import com.models.Port;
+import com.models.Truck;
+import com.models.Vehicle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Plans which of the containers stored at a port go on which of the vehicles docked there, for a trip to a
+ * destination.
+ *
+ * <p>Containers are packed heaviest first, each onto the vehicle it fits best (bin packing by best fit
+ * decreasing). A vehicle's room is the smaller of its remaining carrying capacity and the load it can carry
+ * to the destination on a full tank; trucks only take the container types they may carry, and only when
+ * both ports have landing ability. Vehicles that already carry containers are used first. When a container
+ * fits on no vehicle in use, another vehicle is put to use: the one with the most room for the fewest
+ * vehicles, or the one burning the least fuel per ton for the least fuel.</p>
+ *
+ * <p>A plan is applied with {@link #toCommands(Plan)} and {@code PortManagementSystem.runBatch}, which loads
+ * the containers and refuels the vehicles that need it as one batch.</p>
+ */
+public class LoadPlanner {
+    // Keeps a full load from needing a hair more fuel than the tank holds after rounding
+    private static final double ROOM_MARGIN = 1e-9;
+
+    /**
+     * What the plan minimizes.
+     */
+    public enum Objective {
+        /** The number of vehicles that carry containers. */
+        FEWEST_VEHICLES,
+        /** The fuel burned to carry the containers, by loading the most efficient vehicles first. */
+        LEAST_FUEL
+    }
+
+    /**
+     * The containers planned onto one vehicle.
+     */
+    public static class Load {
+        private final Vehicle vehicle;
+        private final List<Container> containers = new ArrayList<>();
+        private double weight;
+        private double requiredFuel;
+
+        Load(Vehicle vehicle) {
+            this.vehicle = vehicle;
+            this.weight = vehicle.getTotalContainerWeight();
+        }
+
+        public Vehicle getVehicle() {
+            return vehicle;
+        }
+
+        /**
+         * Gets the containers to load, not counting those already on the vehicle.
+         */
+        public List<Container> getContainers() {
+            return Collections.unmodifiableList(containers);
+        }
+
+        /**
+         * Gets the total weight the vehicle carries once loaded.
+         */
+        public double getWeight() {
+            return weight;
+        }
+
+        /**
+         * Gets the fuel the loaded vehicle needs to reach the destination.
+         */
+        public double getRequiredFuel() {
+            return requiredFuel;
+        }
+
+        /**
+         * Gets the fuel to add so the loaded vehicle can reach the destination.
+         * @return The fuel to add, or 0 if the vehicle has enough.
+         */
+        public double getRefuelAmount() {
+            return Math.max(0, requiredFuel - vehicle.getCurrentFuel());
+        }
+    }
+
+    /**
+     * A packing of a port's containers onto its vehicles.
+     */
+    public static class Plan {
+        private final Port port;
+        private final Port destination;
+        private final List<Load> loads;
+        private final List<Container> unplaced;
+
+        Plan(Port port, Port destination, List<Load> loads, List<Container> unplaced) {
+            this.port = port;
+            this.destination = destination;
+            this.loads = loads;
+            this.unplaced = unplaced;
+        }
+
+        public Port getPort() {
+            return port;
+        }
+
+        public Port getDestination() {
+            return destination;
+        }
+
+        /**
+         * Gets the loads of the vehicles that get containers, in the order they were put to use.
+         */
+        public List<Load> getLoads() {
+            return Collections.unmodifiableList(loads);
+        }
+
+        /**
+         * Gets the containers that fit on no vehicle.
+         */
+        public List<Container> getUnplaced() {
+            return Collections.unmodifiableList(unplaced);
+        }
+
+        public int getPlacedCount() {
+            int count = 0;
+            for (Load load : loads) {
+                count += load.containers.size();
+            }
+            return count;
+        }
+
+        /**
+         * Gets the fuel the loaded vehicles need to reach the destination.
+         */
+        public double getTotalFuel() {
+            double total = 0;
+            for (Load load : loads) {
+                total += load.requiredFuel;
+            }
+            return total;
+        }
+    }
+
+    private LoadPlanner() {
+    }
+
+    /**
+     * Plans the loading of the containers stored at a port onto the vehicles docked there.
+     *
+     * @param port        The port whose containers and vehicles are planned.
+     * @param destination The port the vehicles will travel to.
+     * @param objective   What to minimize.
+     * @return The plan; containers that fit nowhere are listed as unplaced.
+     */
+    public static Plan plan(Port port, Port destination, Objective objective) {
+        double distance = port.calculateDistance(destination);
+        List<Vehicle> candidates = new ArrayList<>();
+        port.forEachVehicle(vehicle -> {
+            if (!(vehicle instanceof Truck) || (port.hasLandingAbility() && destination.hasLandingAbility())) {
+                candidates.add(vehicle);
+            }
+        });
+
+        int n = candidates.size();
+        Load[] loads = new Load[n];
+        double[] room = new double[n];
+        boolean[] used = new boolean[n];
+        Integer[] byPreference = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            Vehicle vehicle = candidates.get(i);
+            loads[i] = new Load(vehicle);
+            // No more than a full tank carries to the destination
+            double maxWeight = Math.min(vehicle.getCarryingCapacity(),
+                    vehicle.calculateMaxWeight(vehicle.getFuelCapacity(), distance));
+            room[i] = maxWeight * (1 - ROOM_MARGIN) - loads[i].weight;
+            used[i] = vehicle.getContainerCount() > 0;
+            byPreference[i] = i;
+        }
+        // Order in which vehicles are put to use
+        Comparator<Integer> preference = objective == Objective.LEAST_FUEL
+                ? Comparator.<Integer>comparingDouble(i -> candidates.get(i).getFuelConsumptionRate())
+                        .thenComparingDouble(i -> -room[i])
+                : Comparator.comparingDouble(i -> -room[i]);
+        Arrays.sort(byPreference, preference);
+
+        List<Container> containers = new ArrayList<>(port.getContainerView());
+        containers.sort(Comparator.comparingDouble(Container::getWeight).reversed());
+        List<Load> order = new ArrayList<>();
+        for (Integer i : byPreference) {
+            if (used[i]) {
+                order.add(loads[i]);
+            }
+        }
+        List<Container> unplaced = new ArrayList<>();
+        for (Container container : containers) {
+            int chosen = -1;
+            // Best fit among the vehicles in use: the least room left over, or the lowest rate first for fuel
+            for (int i = 0; i < n; i++) {
+                if (used[i] && fits(candidates.get(i), room[i], container)
+                        && (chosen < 0 || better(objective, candidates, room, i, chosen))) {
+                    chosen = i;
+                }
+            }
+            if (chosen < 0) {
+                for (Integer i : byPreference) {
+                    if (!used[i] && fits(candidates.get(i), room[i], container)) {
+                        chosen = i;
+                        used[i] = true;
+                        order.add(loads[i]);
+                        break;
+                    }
+                }
+            }
+            if (chosen < 0) {
+                unplaced.add(container);
+                continue;
+            }
+            loads[chosen].containers.add(container);
+            loads[chosen].weight += container.getWeight();
+            room[chosen] -= container.getWeight();
+        }
+
+        List<Load> planned = new ArrayList<>();
+        for (Load load : order) {
+            if (!load.containers.isEmpty()) {
+                load.requiredFuel = load.vehicle.calculateRequiredFuel(load.weight, distance);
+                planned.add(load);
+            }
+        }
+        return new Plan(port, destination, planned, unplaced);
+    }
+
+    private static boolean fits(Vehicle vehicle, double room, Container container) {
+        return container.getWeight() <= room && vehicle.canCarryContainerType(container);
+    }
+
+    private static boolean better(Objective objective, List<Vehicle> candidates, double[] room, int i, int chosen) {
+        if (objective == Objective.LEAST_FUEL) {
+            int byRate = Double.compare(candidates.get(i).getFuelConsumptionRate(),
+                    candidates.get(chosen).getFuelConsumptionRate());
+            if (byRate != 0) {
+                return byRate < 0;
+            }
+        }
+        return room[i] < room[chosen];
+    }
+
+    /**
+     * Turns a plan into batch commands: for each vehicle, a refuel if it needs more fuel for the destination,
+     * then a load of each of its containers.
+     *
+     * @param plan The plan to apply.
+     * @return The commands, numbered in order.
+     */
+    public static List<BatchScript.Command> toCommands(Plan plan) {
+        List<BatchScript.Command> commands = new ArrayList<>(plan.getPlacedCount() + plan.loads.size());
+        for (Load load : plan.loads) {
+            String vehicleId = load.vehicle.getId();
+            if (load.getRefuelAmount() > 0) {
+                commands.add(new BatchScript.Command(commands.size() + 1, "refuelVehicle", vehicleId,
+                        Double.toString(load.getRefuelAmount())));
+            }
+            for (Container container : load.containers) {
+                commands.add(new BatchScript.Command(commands.size() + 1, "loadContainer", vehicleId,
+                        container.getId()));
+            }
+        }
+        return commands;
+    }
+}
@@ -0,0 +1,102 @@
+package com.utils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Per-file load-time breakdown collected while data files are read on startup.
+ * Files may be loaded concurrently, so timings can be recorded from several threads.
+ */
+public class LoadReport {
+
+    /**
+     * The time taken to load one file.
+     */
+    public static class FileTiming {
+        private final String fileName;
+        private final long bytes;
+        private final long nanos;
+
+        FileTiming(String fileName, long bytes, long nanos) {
+            this.fileName = fileName;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    private final List<FileTiming> timings = Collections.synchronizedList(new ArrayList<>());
+    private final long started = System.nanoTime();
+    private long finished;
+
+    /**
+     * Runs a loader and records how long it took.
+     *
+     * @param fileName The name of the file in the data directory being loaded.
+     * @param loader   Loads the file.
+     * @param <T>      The type of the loaded data.
+     * @return The loaded data.
+     */
+    public <T> T time(String fileName, Supplier<T> loader) {
+        long bytes = new File(FileHandler.DATA_DIRECTORY + fileName).length();
+        long start = System.nanoTime();
+        try {
+            return loader.get();
+        } finally {
+            timings.add(new FileTiming(fileName, bytes, System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Marks the end of loading; the wall-clock time is measured from the creation of the report.
+     */
+    public void finish() {
+        finished = System.nanoTime();
+    }
+
+    /**
+     * Gets the recorded timings in the order the files finished loading.
+     * @return The timings.
+     */
+    public List<FileTiming> getTimings() {
+        synchronized (timings) {
+            return new ArrayList<>(timings);
+        }
+    }
+
+    /**
+     * Gets the wall-clock loading time, which is less than the sum of the file times when files load concurrently.
+     * @return The elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return (finished == 0 ? System.nanoTime() : finished) - started;
+    }
+
+    /**
+     * Prints the breakdown, one line per file.
+     */
+    public void print() {
+        List<FileTiming> files = getTimings();
+        long sum = files.stream().mapToLong(FileTiming::getNanos).sum();
+        System.out.printf("Data loaded in %d ms (%d ms across %d files):%n",
+                getElapsedNanos() / 1_000_000, sum / 1_000_000, files.size());
+        for (FileTiming timing : files) {
+            System.out.printf("  %-16s %10.1f KB %8d ms%n",
+                    timing.getFileName(), timing.getBytes() / 1024.0, timing.getNanos() / 1_000_000);
+        }
+    }
+}
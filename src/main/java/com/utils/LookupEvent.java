@@ -0,0 +1,26 @@
+package com.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a lookup of a port, vehicle, container, trip or user by ID in an
+ * {@link EntityRegistry}. Lookups are frequent, so {@code jfr/pms.jfc} only records slow ones.
+ */
+@Name("com.pms.Lookup")
+@Label("Entity Lookup")
+@Category({"Port Management System", "Lookups"})
+@Description("An entity looked up by ID")
+public class LookupEvent extends Event {
+    @Label("Entity")
+    public String entity;
+
+    @Label("ID")
+    public String id;
+
+    @Label("Found")
+    public boolean found;
+}
@@ -0,0 +1,379 @@
+package com.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide counters and latency histograms of named operations: menu operations, file saves and loads,
+ * and model mutations.
+ *
+ * <p>Operations are registered once, typically in a static field, and recorded into with no lookup. Counts
+ * and histogram buckets are {@link LongAdder}s, so concurrent sessions don't contend on them. Latencies go
+ * into log-linear buckets (four per power of two, so within 25% of the true value) and percentiles are read
+ * from the buckets. Model mutations are only counted, since timing them would cost about as much as the
+ * mutations themselves, and not at all while a simulation works on its copy of the data. Recording is
+ * disabled with {@code -Dpms.metrics=false}.</p>
+ */
+public class Metrics {
+    /**
+     * Whether operations are recorded.
+     */
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("pms.metrics", "true"));
+
+    // Exact buckets for latencies below 8 ns, then four per power of two up to 2^40 ns (about 18 minutes)
+    private static final int LINEAR_BUCKETS = 8;
+    private static final int SUB_BUCKETS = 4;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = LINEAR_BUCKETS + (MAX_EXPONENT - 2) * SUB_BUCKETS;
+
+    private static final ConcurrentMap<String, Operation> OPERATIONS = new ConcurrentHashMap<>();
+    // Threads working on copies of the data, e.g. simulations, whose mutations aren't counted
+    private static final ThreadLocal<Boolean> UNCOUNTED = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private Metrics() {
+    }
+
+    /**
+     * A named operation's count and, if it is timed, its latencies and failures.
+     */
+    public static class Operation {
+        private final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder failures;
+        private final LongAdder totalNanos;
+        private final LongAccumulator maxNanos;
+        private final LongAdder[] buckets;
+
+        Operation(String name, boolean timed) {
+            this.name = name;
+            if (timed) {
+                failures = new LongAdder();
+                totalNanos = new LongAdder();
+                maxNanos = new LongAccumulator(Math::max, 0);
+                buckets = new LongAdder[BUCKETS];
+                for (int i = 0; i < BUCKETS; i++) {
+                    buckets[i] = new LongAdder();
+                }
+            } else {
+                failures = null;
+                totalNanos = null;
+                maxNanos = null;
+                buckets = null;
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isTimed() {
+            return buckets != null;
+        }
+
+        /**
+         * Counts one more occurrence of an untimed operation.
+         */
+        public void increment() {
+            if (ENABLED && !UNCOUNTED.get()) {
+                count.increment();
+            }
+        }
+
+        /**
+         * Gets the start time to pass to {@link #record(long)} or {@link #recordFailure(long)}.
+         */
+        public long start() {
+            return ENABLED ? System.nanoTime() : 0;
+        }
+
+        /**
+         * Records a run of the operation that completed.
+         *
+         * @param started The time from {@link #start()}.
+         */
+        public void record(long started) {
+            if (ENABLED) {
+                add(System.nanoTime() - started);
+            }
+        }
+
+        /**
+         * Records a run of the operation that failed; its time counts towards the latencies too.
+         *
+         * @param started The time from {@link #start()}.
+         */
+        public void recordFailure(long started) {
+            if (ENABLED) {
+                add(System.nanoTime() - started);
+                failures.increment();
+            }
+        }
+
+        private void add(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            buckets[bucket(nanos)].increment();
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getFailures() {
+            return failures == null ? 0 : failures.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos == null ? 0 : totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos == null ? 0 : maxNanos.get();
+        }
+
+        /**
+         * Gets a latency percentile from the histogram.
+         * @param percent The percentile, from 0 to 100.
+         * @return The upper bound of the bucket holding the percentile, at most the largest latency seen.
+         */
+        public long getPercentileNanos(double percent) {
+            if (buckets == null) {
+                return 0;
+            }
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets[i].sum();
+                total += counts[i];
+            }
+            long rank = Math.max(1, (long) Math.ceil(percent / 100 * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), getMaxNanos());
+                }
+            }
+            return getMaxNanos();
+        }
+    }
+
+    /**
+     * Runs work on the calling thread without counting the mutations it makes, e.g. a simulation working
+     * on a copy of the data.
+     *
+     * @param work The work to run.
+     * @param <T>  The type of the work's result.
+     * @return The work's result.
+     */
+    public static <T> T uncounted(Supplier<T> work) {
+        if (UNCOUNTED.get()) {
+            return work.get();
+        }
+        UNCOUNTED.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            UNCOUNTED.set(Boolean.FALSE);
+        }
+    }
+
+    /**
+     * Timers of the options of a numbered menu, named after what the options do.
+     */
+    public static class Menu {
+        private final Operation[] options;
+        private final Operation invalid;
+
+        Menu(String prefix, String[] names) {
+            options = new Operation[names.length];
+            for (int i = 0; i < names.length; i++) {
+                options[i] = timer(prefix + "." + names[i]);
+            }
+            invalid = timer(prefix + ".invalid");
+        }
+
+        /**
+         * Gets the timer of a menu choice.
+         * @param choice The option number as entered.
+         * @return The option's timer, or the timer of invalid choices.
+         */
+        public Operation option(String choice) {
+            try {
+                int option = Integer.parseInt(choice.trim());
+                if (option >= 0 && option < options.length) {
+                    return options[option];
+                }
+            } catch (NumberFormatException e) {
+                // Not a number, so not an option
+            }
+            return invalid;
+        }
+    }
+
+    /**
+     * Registers the timers of a numbered menu.
+     *
+     * @param prefix The prefix of the timers' names, e.g. "admin".
+     * @param names  The names of the options, starting with option 0.
+     * @return The menu's timers.
+     */
+    public static Menu menu(String prefix, String... names) {
+        return new Menu(prefix, names);
+    }
+
+    /**
+     * Gets or registers an operation whose latencies are recorded.
+     *
+     * @param name The operation's name, e.g. "file.saveStore".
+     * @return The operation; the same one for the same name.
+     */
+    public static Operation timer(String name) {
+        return OPERATIONS.computeIfAbsent(name, key -> new Operation(key, true));
+    }
+
+    /**
+     * Gets or registers an operation that is only counted.
+     *
+     * @param name The operation's name, e.g. "port.addContainer".
+     * @return The operation; the same one for the same name.
+     */
+    public static Operation counter(String name) {
+        return OPERATIONS.computeIfAbsent(name, key -> new Operation(key, false));
+    }
+
+    /**
+     * Gets all registered operations, by name.
+     */
+    public static List<Operation> getOperations() {
+        List<Operation> operations = new ArrayList<>(OPERATIONS.values());
+        operations.sort(Comparator.comparing(Operation::getName));
+        return operations;
+    }
+
+    static int bucket(long nanos) {
+        if (nanos < LINEAR_BUCKETS) {
+            return (int) Math.max(0, nanos);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (nanos >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - 3) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 3;
+        int sub = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - 2)) - 1;
+    }
+
+    /**
+     * Prints a table of the operations that have run: counts, failures and latency percentiles.
+     *
+     * @param out The stream to print to.
+     */
+    public static void print(PrintStream out) {
+        if (!ENABLED) {
+            out.println("Metrics are disabled (-Dpms.metrics=false).");
+            return;
+        }
+        out.printf("%-32s %10s %8s %10s %10s %10s %10s %10s%n",
+                "Operation", "Count", "Failed", "Mean us", "p50 us", "p90 us", "p99 us", "Max us");
+        for (Operation operation : getOperations()) {
+            long count = operation.getCount();
+            if (count == 0) {
+                continue;
+            }
+            if (!operation.isTimed()) {
+                out.printf("%-32s %10d%n", operation.getName(), count);
+                continue;
+            }
+            out.printf("%-32s %10d %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n", operation.getName(), count,
+                    operation.getFailures(), operation.getTotalNanos() / 1e3 / count,
+                    operation.getPercentileNanos(50) / 1e3, operation.getPercentileNanos(90) / 1e3,
+                    operation.getPercentileNanos(99) / 1e3, operation.getMaxNanos() / 1e3);
+        }
+    }
+
+    /**
+     * Writes every operation as JSON to a file in the data directory, including the non-empty histogram
+     * buckets as [upper bound in nanoseconds, count] pairs. The file is written to a temporary file first and
+     * then moved into place, so readers never see a partial dump. Dumps are serialized, since concurrent
+     * sessions logging out would otherwise write the same temporary file.
+     *
+     * @param fileName The name of the file.
+     * @return True if the dump was written, false otherwise.
+     */
+    public static synchronized boolean dump(String fileName) {
+        Path path = Paths.get(FileHandler.DATA_DIRECTORY, fileName);
+        Path temp = Paths.get(FileHandler.DATA_DIRECTORY, fileName + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp)) {
+            writeJson(writer);
+        } catch (IOException e) {
+            System.err.println("Error writing metrics to " + fileName + ": " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error replacing " + fileName + ": " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private static void writeJson(Writer writer) throws IOException {
+        writer.write("{\n  \"timestamp\": \"" + Instant.now() + "\",\n  \"enabled\": " + ENABLED
+                + ",\n  \"operations\": [");
+        String separator = "\n";
+        for (Operation operation : getOperations()) {
+            writer.write(separator);
+            separator = ",\n";
+            // Names are code identifiers with dots, so they need no escaping
+            writer.write("    {\"name\": \"" + operation.getName() + "\", \"count\": " + operation.getCount());
+            if (operation.isTimed()) {
+                writer.write(", \"failures\": " + operation.getFailures()
+                        + ", \"totalNanos\": " + operation.getTotalNanos()
+                        + ", \"maxNanos\": " + operation.getMaxNanos()
+                        + ", \"p50Nanos\": " + operation.getPercentileNanos(50)
+                        + ", \"p90Nanos\": " + operation.getPercentileNanos(90)
+                        + ", \"p99Nanos\": " + operation.getPercentileNanos(99)
+                        + ", \"buckets\": [");
+                String bucketSeparator = "";
+                for (int i = 0; i < BUCKETS; i++) {
+                    long count = operation.buckets[i].sum();
+                    if (count > 0) {
+                        writer.write(bucketSeparator + "[" + upperBound(i) + ", " + count + "]");
+                        bucketSeparator = ", ";
+                    }
+                }
+                writer.write("]");
+            }
+            writer.write("}");
+        }
+        writer.write("\n  ]\n}\n");
+    }
+}
@@ -0,0 +1,372 @@
+package com.utils;
+
+import com.models.Port;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many randomized {@link Simulation}s of the same world in parallel and gathers their results into
+ * distributions, to answer what-if questions such as how a port copes with less storing capacity.
+ *
+ * <p>The world is held encoded, as from {@link DataStore#encode()}, and every scenario decodes its own copy,
+ * so scenarios share no mutable state. Each scenario gets its own seed and draws its cargo rate and dwell
+ * time around the simulation's defaults. Worker threads of a {@link ForkJoinPool} take scenarios one at a
+ * time and write each result to its own slot, so throughput grows with the cores available and the
+ * distributions for a given seed don't depend on how many threads ran them.</p>
+ */
+public class MonteCarlo {
+    private final byte[] world;
+    private final LocalDate start;
+    private int days = 30;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private double demandVariation = 0.25;
+
+    /**
+     * Constructs a new MonteCarlo runner.
+     *
+     * @param world The encoded ports, vehicles and containers.
+     * @param start The simulated day each scenario starts on.
+     */
+    public MonteCarlo(byte[] world, LocalDate start) {
+        this.world = world;
+        this.start = start;
+    }
+
+    /**
+     * Sets the simulated days per scenario (30 unless set).
+     */
+    public void setDays(int days) {
+        this.days = days;
+    }
+
+    /**
+     * Sets the number of scenarios run at once (the number of processors unless set).
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets how far each scenario's cargo rate and dwell time may stray from the defaults, as a fraction
+     * (0.25 unless set).
+     */
+    public void setDemandVariation(double demandVariation) {
+        this.demandVariation = demandVariation;
+    }
+
+    /**
+     * Runs a number of scenarios, each with one port's storing capacity scaled.
+     *
+     * @param scenarios      The number of scenarios.
+     * @param seed           The seed the scenarios' seeds are drawn from.
+     * @param portId         The port whose capacity is scaled and whose utilization is reported, or null.
+     * @param capacityFactor The factor the port's storing capacity is multiplied by, e.g. 0.8 for 20% less.
+     * @return The distributions over all scenarios.
+     * @throws IllegalArgumentException If the port does not exist.
+     */
+    public Outcome run(int scenarios, long seed, String portId, double capacityFactor) {
+        int focus = -1;
+        if (portId != null) {
+            List<Port> ports = DataStore.decode(world).getPorts();
+            for (int i = 0; i < ports.size(); i++) {
+                if (ports.get(i).getId().equals(portId)) {
+                    focus = i;
+                }
+            }
+            if (focus < 0) {
+                throw new IllegalArgumentException("Port not found: " + portId);
+            }
+        }
+
+        // Drawn up front so each scenario depends only on its number
+        long[] seeds = new long[scenarios];
+        double[] cargoFactors = new double[scenarios];
+        double[] dwellFactors = new double[scenarios];
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < scenarios; i++) {
+            seeds[i] = random.nextLong();
+            cargoFactors[i] = vary(random);
+            dwellFactors[i] = vary(random);
+        }
+
+        Outcome outcome = new Outcome(portId, scenarios);
+        long started = System.nanoTime();
+        AtomicInteger next = new AtomicInteger();
+        int focusPort = focus;
+        Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < scenarios; i = next.getAndIncrement()) {
+                runScenario(i, seeds[i], cargoFactors[i], dwellFactors[i], focusPort, capacityFactor, outcome);
+            }
+        };
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, Math.max(1, scenarios)));
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < pool.getParallelism(); i++) {
+                workers.add(pool.submit(worker));
+            }
+            for (Future<?> future : workers) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running scenarios", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Scenario failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        outcome.elapsedNanos = System.nanoTime() - started;
+        outcome.parallelism = pool.getParallelism();
+        return outcome;
+    }
+
+    private void runScenario(int i, long seed, double cargoFactor, double dwellFactor, int focus,
+                             double capacityFactor, Outcome outcome) {
+        DataStore copy = DataStore.decode(world);
+        if (focus >= 0) {
+            Port port = copy.getPorts().get(focus);
+            port.setStoringCapacity((int) Math.round(port.getStoringCapacity() * capacityFactor));
+        }
+        Simulation simulation = new Simulation(copy.getPorts(), copy.getVehicles(), start, seed);
+        simulation.setCargoPerPortPerDay(simulation.getCargoPerPortPerDay() * cargoFactor);
+        simulation.setDwellDays(simulation.getDwellDays() * dwellFactor);
+        Simulation.Result result = simulation.run(days);
+
+        double utilization = 0;
+        long blocked = 0;
+        for (int p = 0; p < result.getPortCount(); p++) {
+            utilization += result.getAverageUtilization(p);
+            blocked += result.getBlockedMinutes(p);
+        }
+        outcome.utilization[i] = result.getPortCount() == 0 ? 0 : utilization / result.getPortCount();
+        if (focus >= 0) {
+            outcome.portUtilization[i] = result.getAverageUtilization(focus);
+            outcome.portPeakUtilization[i] = result.getPeakUtilization(focus);
+            outcome.portTurnedAway[i] = result.getCargoTurnedAway(focus);
+            outcome.portBlockedMinutes[i] = result.getBlockedMinutes(focus);
+        }
+        outcome.fuel[i] = result.getTotalFuel();
+        outcome.delayPerTrip[i] = result.getDelayPerTrip();
+        outcome.turnedAway[i] = result.getCargoTurnedAway();
+        outcome.blockedMinutes[i] = blocked;
+        outcome.events[i] = result.getEvents();
+    }
+
+    private double vary(SplittableRandom random) {
+        return 1 + (2 * random.nextDouble() - 1) * demandVariation;
+    }
+
+    /**
+     * The results of all scenarios of a run, one value per scenario for each measure.
+     */
+    public static class Outcome {
+        private final String portId;
+        private final double[] utilization;
+        private final double[] portUtilization;
+        private final double[] portPeakUtilization;
+        private final double[] portTurnedAway;
+        private final double[] portBlockedMinutes;
+        private final double[] fuel;
+        private final double[] delayPerTrip;
+        private final double[] turnedAway;
+        private final double[] blockedMinutes;
+        private final long[] events;
+        private long elapsedNanos;
+        private int parallelism;
+
+        Outcome(String portId, int scenarios) {
+            this.portId = portId;
+            utilization = new double[scenarios];
+            portUtilization = new double[portId == null ? 0 : scenarios];
+            portPeakUtilization = new double[portUtilization.length];
+            portTurnedAway = new double[portUtilization.length];
+            portBlockedMinutes = new double[portUtilization.length];
+            fuel = new double[scenarios];
+            delayPerTrip = new double[scenarios];
+            turnedAway = new double[scenarios];
+            blockedMinutes = new double[scenarios];
+            events = new long[scenarios];
+        }
+
+        public int getScenarios() {
+            return utilization.length;
+        }
+
+        /**
+         * Gets the average storage utilization across all ports.
+         */
+        public Distribution getUtilization() {
+            return new Distribution(utilization);
+        }
+
+        /**
+         * Gets the average storage utilization of the port the run was about.
+         * @return The distribution, or null if the run wasn't about a port.
+         */
+        public Distribution getPortUtilization() {
+            return portId == null ? null : new Distribution(portUtilization);
+        }
+
+        /**
+         * Gets the peak storage utilization of the port the run was about.
+         * @return The distribution, or null if the run wasn't about a port.
+         */
+        public Distribution getPortPeakUtilization() {
+            return portId == null ? null : new Distribution(portPeakUtilization);
+        }
+
+        /**
+         * Gets the containers turned away from the port the run was about.
+         * @return The distribution, or null if the run wasn't about a port.
+         */
+        public Distribution getPortTurnedAway() {
+            return portId == null ? null : new Distribution(portTurnedAway);
+        }
+
+        /**
+         * Gets the vehicle minutes spent waiting to unload at the port the run was about.
+         * @return The distribution, or null if the run wasn't about a port.
+         */
+        public Distribution getPortBlockedMinutes() {
+            return portId == null ? null : new Distribution(portBlockedMinutes);
+        }
+
+        /**
+         * Gets the gallons of fuel burned by all vehicles.
+         */
+        public Distribution getFuel() {
+            return new Distribution(fuel);
+        }
+
+        /**
+         * Gets the delay per completed trip, in minutes.
+         */
+        public Distribution getDelayPerTrip() {
+            return new Distribution(delayPerTrip);
+        }
+
+        /**
+         * Gets the containers turned away from all ports.
+         */
+        public Distribution getTurnedAway() {
+            return new Distribution(turnedAway);
+        }
+
+        /**
+         * Gets the vehicle minutes spent waiting to unload at all ports.
+         */
+        public Distribution getBlockedMinutes() {
+            return new Distribution(blockedMinutes);
+        }
+
+        public long getEvents() {
+            long total = 0;
+            for (long count : events) {
+                total += count;
+            }
+            return total;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        /**
+         * Prints the distributions and the throughput of the run.
+         *
+         * @param out   The stream to print to.
+         * @param title What the run was, e.g. "Baseline".
+         */
+        public void print(PrintStream out, String title) {
+            out.printf("%s: %d scenarios on %d threads in %d ms (%.1f scenarios/s, %.0f events/s)%n",
+                    title, getScenarios(), parallelism, elapsedNanos / 1_000_000,
+                    elapsedNanos == 0 ? 0.0 : getScenarios() * 1e9 / elapsedNanos,
+                    elapsedNanos == 0 ? 0.0 : getEvents() * 1e9 / elapsedNanos);
+            out.printf("  %-28s %14s %14s %14s %14s%n", "", "mean", "p5", "p50", "p95");
+            if (portId != null) {
+                getPortUtilization().print(out, portId + " utilization %", 100);
+                getPortPeakUtilization().print(out, portId + " peak utilization %", 100);
+                getPortTurnedAway().print(out, portId + " turned away", 1);
+                getPortBlockedMinutes().print(out, portId + " blocked minutes", 1);
+            }
+            getUtilization().print(out, "all ports utilization %", 100);
+            getTurnedAway().print(out, "all ports turned away", 1);
+            getBlockedMinutes().print(out, "all ports blocked minutes", 1);
+            getFuel().print(out, "fuel (gallons)", 1);
+            getDelayPerTrip().print(out, "delay per trip (minutes)", 1);
+        }
+    }
+
+    /**
+     * The values of one measure over all scenarios, sorted.
+     */
+    public static class Distribution {
+        private final double[] values;
+
+        Distribution(double[] values) {
+            this.values = values.clone();
+            Arrays.sort(this.values);
+        }
+
+        public double getMean() {
+            double total = 0;
+            for (double value : values) {
+                total += value;
+            }
+            return values.length == 0 ? 0 : total / values.length;
+        }
+
+        public double getStandardDeviation() {
+            if (values.length < 2) {
+                return 0;
+            }
+            double mean = getMean();
+            double squares = 0;
+            for (double value : values) {
+                squares += (value - mean) * (value - mean);
+            }
+            return Math.sqrt(squares / (values.length - 1));
+        }
+
+        public double getMin() {
+            return values.length == 0 ? 0 : values[0];
+        }
+
+        public double getMax() {
+            return values.length == 0 ? 0 : values[values.length - 1];
+        }
+
+        /**
+         * Gets a percentile by the nearest-rank method.
+         * @param percent The percentile, from 0 to 100.
+         * @return The smallest value that at least that percent of the scenarios don't exceed.
+         */
+        public double getPercentile(double percent) {
+            if (values.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percent / 100 * values.length);
+            return values[Math.min(values.length - 1, Math.max(0, rank - 1))];
+        }
+
+        void print(PrintStream out, String label, double scale) {
+            out.printf("  %-28s %14.1f %14.1f %14.1f %14.1f%n", label, getMean() * scale,
+                    getPercentile(5) * scale, getPercentile(50) * scale, getPercentile(95) * scale);
+        }
+    }
+}
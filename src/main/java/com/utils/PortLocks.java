@@ -0,0 +1,103 @@
+package com.utils;
+
+import com.models.Port;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Locks that let concurrent sessions work on the system, striped by port so that sessions working at
+ * different ports don't wait for each other.
+ *
+ * <p>There are three ways to hold the locks:</p>
+ * <ul>
+ *   <li>{@link #port(Port)}: changes confined to one port (its fields, and new containers stored there).
+ *       Sessions at ports on different stripes run in parallel.</li>
+ *   <li>{@link #shared()}: reads of data that only changes under the exclusive lock, such as the
+ *       registries, the trip history and where existing containers are.</li>
+ *   <li>{@link #exclusive()}: anything else, including reads that span ports. Waits for all other
+ *       holders.</li>
+ * </ul>
+ *
+ * <p>A thread holding a port or shared lock must not ask for the exclusive lock. Locks are released by
+ * closing the returned handle, e.g. with try-with-resources.</p>
+ */
+public class PortLocks {
+    /**
+     * A held lock, released by {@link #close()}.
+     */
+    public interface Held extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final ReentrantReadWriteLock structure = new ReentrantReadWriteLock();
+    private final ReentrantLock[] stripes;
+
+    /**
+     * Constructs a new PortLocks.
+     *
+     * @param stripeCount The number of port locks; ports share a lock when their IDs hash to the same stripe.
+     */
+    public PortLocks(int stripeCount) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("There must be at least one stripe");
+        }
+        stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Locks a single port.
+     *
+     * @param port The port, or null to take the exclusive lock instead.
+     * @return The held lock.
+     */
+    public Held port(Port port) {
+        if (port == null) {
+            return exclusive();
+        }
+        Lock read = structure.readLock();
+        Lock stripe = stripes[stripeOf(port)];
+        read.lock();
+        try {
+            stripe.lock();
+        } catch (RuntimeException | Error e) {
+            read.unlock();
+            throw e;
+        }
+        return () -> {
+            stripe.unlock();
+            read.unlock();
+        };
+    }
+
+    /**
+     * Takes the lock shared with other readers and with port locks.
+     *
+     * @return The held lock.
+     */
+    public Held shared() {
+        Lock read = structure.readLock();
+        read.lock();
+        return read::unlock;
+    }
+
+    /**
+     * Takes the lock that excludes every other holder.
+     *
+     * @return The held lock.
+     */
+    public Held exclusive() {
+        Lock write = structure.writeLock();
+        write.lock();
+        return write::unlock;
+    }
+
+    private int stripeOf(Port port) {
+        int hash = port.getId().hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+}
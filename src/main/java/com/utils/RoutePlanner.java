@@ -0,0 +1,450 @@
+package com.utils;
+
+import com.models.Port;
+import com.models.Truck;
+import com.models.Vehicle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Plans multi-hop routes for vehicles over the graph of ports, for destinations a vehicle can't reach on
+ * one tank.
+ *
+ * <p>A vehicle can refuel to its fuel capacity at any port, so it can take every hop whose required fuel
+ * fits in its tank; a truck can only use ports with landing ability. Fuel grows linearly with distance
+ * for every vehicle type, so the route needing the least fuel is the shortest one, found with A* using
+ * the great-circle distance to the destination as the heuristic. Because great-circle distances obey the
+ * triangle inequality, a direct hop is always the best route when it's possible.</p>
+ *
+ * <p>The planner caches the ports' coordinates and a grid of 2&deg; cells over them, so the hops out of a
+ * port are found by scanning only the cells within the vehicle's range. It is a snapshot: build a new one
+ * after ports are added, removed or changed. Planning doesn't change the planner, so one planner can serve
+ * concurrent queries.</p>
+ */
+public class RoutePlanner {
+    private static final double EARTH_RADIUS = 6371; // kilometers, as in Port.calculateDistance
+    private static final double CELL_DEGREES = 2;
+    private static final int LATITUDE_CELLS = (int) (180 / CELL_DEGREES);
+    private static final int LONGITUDE_CELLS = (int) (360 / CELL_DEGREES);
+    // Keeps hops at the edge of the range from needing a hair more fuel than the tank holds after rounding
+    private static final double RANGE_MARGIN = 1e-9;
+
+    /**
+     * A planned route: the ports visited in order, the fuel each leg needs and where to refuel.
+     */
+    public static class Route {
+        private final List<Port> stops;
+        private final double[] legDistances;
+        private final double[] legFuel;
+        private final double[] refuelAmounts;
+
+        Route(List<Port> stops, double[] legDistances, double[] legFuel, double[] refuelAmounts) {
+            this.stops = Collections.unmodifiableList(stops);
+            this.legDistances = legDistances;
+            this.legFuel = legFuel;
+            this.refuelAmounts = refuelAmounts;
+        }
+
+        /**
+         * Gets the ports of the route, starting with the vehicle's port and ending with the destination.
+         */
+        public List<Port> getStops() {
+            return stops;
+        }
+
+        public int getLegCount() {
+            return legFuel.length;
+        }
+
+        /**
+         * Gets the distance of a leg.
+         * @param leg The leg, from stop {@code leg} to stop {@code leg + 1}.
+         * @return The distance in kilometers.
+         */
+        public double getLegDistance(int leg) {
+            return legDistances[leg];
+        }
+
+        /**
+         * Gets the fuel a leg needs, as calculated by the vehicle.
+         * @param leg The leg, from stop {@code leg} to stop {@code leg + 1}.
+         * @return The required fuel.
+         */
+        public double getLegFuel(int leg) {
+            return legFuel[leg];
+        }
+
+        /**
+         * Gets the fuel to take on at a stop before its leg, refueling only when the fuel left is too little
+         * for the next leg and then filling the tank, which needs the fewest refuel stops.
+         * @param leg The leg about to start.
+         * @return The fuel to add, or 0 if the vehicle doesn't need to refuel there.
+         */
+        public double getRefuelAmount(int leg) {
+            return refuelAmounts[leg];
+        }
+
+        /**
+         * Gets the number of stops where the vehicle refuels.
+         */
+        public int getRefuelStopCount() {
+            int count = 0;
+            for (double amount : refuelAmounts) {
+                if (amount > 0) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        public double getTotalDistance() {
+            double total = 0;
+            for (double distance : legDistances) {
+                total += distance;
+            }
+            return total;
+        }
+
+        public double getTotalFuel() {
+            double total = 0;
+            for (double fuel : legFuel) {
+                total += fuel;
+            }
+            return total;
+        }
+    }
+
+    private final Port[] ports;
+    private final Map<String, Integer> indexById;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[] cosLatitudes;
+    private final boolean[] landing;
+    // Positions on the unit sphere, for cheap range checks during the search
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+
+    // Ports of each grid cell, cell by cell: cell c holds cellPorts[cellStart[c] .. cellStart[c + 1])
+    private final int[] cellStart;
+    private final int[] cellPorts;
+
+    /**
+     * Constructs a new RoutePlanner over a snapshot of the ports.
+     *
+     * @param ports The ports to route between.
+     */
+    public RoutePlanner(Collection<Port> ports) {
+        int n = ports.size();
+        this.ports = ports.toArray(new Port[0]);
+        this.indexById = new HashMap<>(n * 2);
+        this.latitudes = new double[n];
+        this.longitudes = new double[n];
+        this.cosLatitudes = new double[n];
+        this.landing = new boolean[n];
+        this.xs = new double[n];
+        this.ys = new double[n];
+        this.zs = new double[n];
+
+        int[] cells = new int[n];
+        cellStart = new int[LATITUDE_CELLS * LONGITUDE_CELLS + 1];
+        for (int i = 0; i < n; i++) {
+            Port port = this.ports[i];
+            indexById.put(port.getId(), i);
+            latitudes[i] = Math.toRadians(port.getLatitude());
+            longitudes[i] = Math.toRadians(port.getLongitude());
+            cosLatitudes[i] = Math.cos(latitudes[i]);
+            landing[i] = port.hasLandingAbility();
+            xs[i] = cosLatitudes[i] * Math.cos(longitudes[i]);
+            ys[i] = cosLatitudes[i] * Math.sin(longitudes[i]);
+            zs[i] = Math.sin(latitudes[i]);
+            cells[i] = cell(latitudeCell(port.getLatitude()), longitudeCell(port.getLongitude()));
+            cellStart[cells[i] + 1]++;
+        }
+        for (int c = 0; c < LATITUDE_CELLS * LONGITUDE_CELLS; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        cellPorts = new int[n];
+        int[] filled = Arrays.copyOf(cellStart, cellStart.length - 1);
+        for (int i = 0; i < n; i++) {
+            cellPorts[filled[cells[i]]++] = i;
+        }
+    }
+
+    /**
+     * Gets the number of ports in the planner's snapshot.
+     */
+    public int size() {
+        return ports.length;
+    }
+
+    /**
+     * Plans the route needing the least fuel from the vehicle's port to a destination, with its current load.
+     *
+     * @param vehicle     The vehicle; it must be at a port.
+     * @param destination The port to reach.
+     * @return The route, or null if the destination can't be reached, e.g. because some hop is longer than
+     *         the vehicle's range or a truck's port has no landing ability.
+     * @throws IllegalStateException If the vehicle isn't at any port.
+     */
+    public Route plan(Vehicle vehicle, Port destination) {
+        Port origin = vehicle.getCurrentPort();
+        if (origin == null) {
+            throw new IllegalStateException(vehicle.getClass().getSimpleName() + " is not at any port");
+        }
+        Integer from = indexById.get(origin.getId());
+        Integer to = indexById.get(destination.getId());
+        if (from == null || to == null) {
+            return null;
+        }
+        boolean landingOnly = vehicle instanceof Truck;
+        if (landingOnly && (!landing[from] || !landing[to])) {
+            return null;
+        }
+        if (from.equals(to)) {
+            return route(vehicle, new int[] {from});
+        }
+
+        double fuelPerKilometer = vehicle.getFuelPerKilometer();
+        double range = fuelPerKilometer > 0
+                ? vehicle.getFuelCapacity() / fuelPerKilometer * (1 - RANGE_MARGIN)
+                : Double.POSITIVE_INFINITY;
+        if (distance(from, to) <= range) {
+            return route(vehicle, new int[] {from, to});
+        }
+
+        int[] path = search(from, to, range, landingOnly);
+        return path == null ? null : route(vehicle, path);
+    }
+
+    /**
+     * Finds the shortest path whose hops are all within range with A*.
+     *
+     * @return The port indexes of the path, or null if there is none.
+     */
+    private int[] search(int from, int to, double range, boolean landingOnly) {
+        int n = ports.length;
+        double[] best = new double[n];
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+        int[] previous = new int[n];
+        boolean[] settled = new boolean[n];
+        // Great-circle distance of each port to the destination, computed when first needed
+        double[] remaining = new double[n];
+        Arrays.fill(remaining, Double.NaN);
+        Heap open = new Heap();
+
+        best[from] = 0;
+        previous[from] = -1;
+        open.push(from, distance(from, to));
+        double rangeRadians = range / EARTH_RADIUS;
+        // A hop is within range when the straight-line chord through the Earth is, which needs no trigonometry
+        double rangeChord = 2 * Math.sin(Math.min(rangeRadians, Math.PI) / 2);
+        double rangeChordSquared = rangeChord * rangeChord;
+        while (!open.isEmpty()) {
+            int node = open.pop();
+            if (settled[node]) {
+                continue; // A stale entry of a port already reached by a shorter path
+            }
+            if (node == to) {
+                return path(previous, to);
+            }
+            settled[node] = true;
+            forEachInRange(node, rangeRadians, next -> {
+                if (settled[next] || (landingOnly && !landing[next])) {
+                    return;
+                }
+                double chordSquared = chordSquared(node, next);
+                if (chordSquared > rangeChordSquared) {
+                    return;
+                }
+                double cost = best[node] + arc(chordSquared);
+                if (cost < best[next]) {
+                    best[next] = cost;
+                    previous[next] = node;
+                    if (Double.isNaN(remaining[next])) {
+                        remaining[next] = arc(chordSquared(next, to));
+                    }
+                    open.push(next, cost + remaining[next]);
+                }
+            });
+        }
+        return null;
+    }
+
+    private static int[] path(int[] previous, int to) {
+        int length = 0;
+        for (int node = to; node != -1; node = previous[node]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int node = to; node != -1; node = previous[node]) {
+            path[--length] = node;
+        }
+        return path;
+    }
+
+    /**
+     * Builds the route along a path with the vehicle's own fuel calculation, planning refuel stops from its
+     * current fuel.
+     */
+    private Route route(Vehicle vehicle, int[] path) {
+        List<Port> stops = new ArrayList<>(path.length);
+        for (int node : path) {
+            stops.add(ports[node]);
+        }
+        int legs = path.length - 1;
+        double[] legDistances = new double[legs];
+        double[] legFuel = new double[legs];
+        double[] refuelAmounts = new double[legs];
+        double fuel = vehicle.getCurrentFuel();
+        for (int leg = 0; leg < legs; leg++) {
+            legDistances[leg] = distance(path[leg], path[leg + 1]);
+            legFuel[leg] = vehicle.calculateRequiredFuel(stops.get(leg), stops.get(leg + 1));
+            if (fuel < legFuel[leg]) {
+                refuelAmounts[leg] = vehicle.getFuelCapacity() - fuel;
+                fuel = vehicle.getFuelCapacity();
+            }
+            fuel -= legFuel[leg];
+        }
+        return new Route(stops, legDistances, legFuel, refuelAmounts);
+    }
+
+    /**
+     * Calls the action for every port in the grid cells that may lie within an angular distance of a port.
+     * The cells cover the bounding box of the spherical cap around the port, so callers still check the
+     * exact distance.
+     */
+    private void forEachInRange(int node, double radians, IntConsumer action) {
+        double latitude = latitudes[node];
+        double minLatitude = Math.toDegrees(latitude - radians);
+        double maxLatitude = Math.toDegrees(latitude + radians);
+        int firstLatitudeCell = latitudeCell(Math.max(-90, minLatitude));
+        int lastLatitudeCell = latitudeCell(Math.min(90, maxLatitude));
+
+        // Longitudes within range, unless the cap reaches over a pole
+        int firstLongitudeCell = 0;
+        int longitudeCells = LONGITUDE_CELLS;
+        double sinRange = Math.sin(Math.min(radians, Math.PI / 2));
+        if (minLatitude > -90 && maxLatitude < 90 && radians < Math.PI / 2 && sinRange < cosLatitudes[node]) {
+            double spread = Math.toDegrees(Math.asin(sinRange / cosLatitudes[node]));
+            double longitude = Math.toDegrees(longitudes[node]);
+            firstLongitudeCell = longitudeCell(longitude - spread);
+            longitudeCells = Math.min(LONGITUDE_CELLS,
+                    (int) Math.floor((longitude + spread + 180) / CELL_DEGREES)
+                            - (int) Math.floor((longitude - spread + 180) / CELL_DEGREES) + 1);
+        }
+
+        for (int latitudeCell = firstLatitudeCell; latitudeCell <= lastLatitudeCell; latitudeCell++) {
+            for (int i = 0; i < longitudeCells; i++) {
+                int c = cell(latitudeCell, (firstLongitudeCell + i) % LONGITUDE_CELLS);
+                for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                    action.accept(cellPorts[k]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates the great-circle distance between two ports with the Haversine formula, as
+     * {@link Port#calculateDistance} does.
+     */
+    private double distance(int a, int b) {
+        double sinHalfLat = Math.sin((latitudes[b] - latitudes[a]) / 2);
+        double sinHalfLon = Math.sin((longitudes[b] - longitudes[a]) / 2);
+        double h = sinHalfLat * sinHalfLat + cosLatitudes[a] * cosLatitudes[b] * sinHalfLon * sinHalfLon;
+        return EARTH_RADIUS * 2 * Math.atan2(Math.sqrt(h), Math.sqrt(1 - h));
+    }
+
+    /**
+     * Calculates the squared length of the chord between two ports on the unit sphere.
+     */
+    private double chordSquared(int a, int b) {
+        double dx = xs[a] - xs[b];
+        double dy = ys[a] - ys[b];
+        double dz = zs[a] - zs[b];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Converts a squared chord on the unit sphere to the great-circle distance it spans.
+     */
+    private static double arc(double chordSquared) {
+        return EARTH_RADIUS * 2 * Math.asin(Math.min(1, Math.sqrt(chordSquared) / 2));
+    }
+
+    private static int latitudeCell(double latitude) {
+        return Math.min(LATITUDE_CELLS - 1, Math.max(0, (int) Math.floor((latitude + 90) / CELL_DEGREES)));
+    }
+
+    private static int longitudeCell(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / CELL_DEGREES), LONGITUDE_CELLS);
+    }
+
+    private static int cell(int latitudeCell, int longitudeCell) {
+        return latitudeCell * LONGITUDE_CELLS + longitudeCell;
+    }
+
+    /**
+     * Binary min-heap of port indexes keyed by estimated route length. Entries are never updated in place;
+     * a shorter path pushes a new entry and the old one is skipped when popped.
+     */
+    private static class Heap {
+        private double[] keys = new double[64];
+        private int[] nodes = new int[64];
+        private int size;
+
+        void push(int node, double key) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                keys[i] = keys[parent];
+                nodes[i] = nodes[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            double key = keys[--size];
+            int node = nodes[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (key <= keys[child]) {
+                    break;
+                }
+                keys[i] = keys[child];
+                nodes[i] = nodes[child];
+                i = child;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+            return top;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
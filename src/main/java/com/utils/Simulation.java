@@ -0,0 +1,750 @@
+package com.utils;
+
+import com.models.Container;
+import com.models.Port;
+import com.models.Ship;
+import com.models.Trip;
+import com.models.Truck;
+import com.models.Vehicle;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.function.Predicate;
+
+/**
+ * Discrete-event simulation of port traffic, driving the model classes over simulated time.
+ *
+ * <p>Events are kept in a priority queue ordered by time (in minutes), ties broken by the order they were
+ * scheduled, and run one at a time:</p>
+ * <ul>
+ *   <li>Cargo arrives at each port at random and waits in storage for a vehicle; cargo that doesn't fit
+ *       in the port's {@code storingCapacity} is turned away.</li>
+ *   <li>A vehicle that is ready picks the nearest of a few random destinations it can reach (trucks only
+ *       between ports with landing ability), loads waiting cargo it may carry as far as its capacity and a full tank to the
+ *       destination allow, and refuels if it has to.</li>
+ *   <li>It departs as a {@link Trip} and arrives after the distance at its speed, burning the fuel
+ *       {@code Vehicle.move} calculates; the trip completes at the destination.</li>
+ *   <li>It unloads into storage; what doesn't fit waits on board and is retried every hour. Delivered
+ *       cargo is collected from storage after a random dwell time.</li>
+ * </ul>
+ *
+ * <p>The simulation changes the ports, vehicles and containers it is given, so it should run on a copy
+ * of the system's data, e.g. from {@link DataStore#decode(byte[])}. It uses one random generator seeded
+ * by the caller and iterates in list order only, so a given world and seed always give the same result.</p>
+ */
+public class Simulation {
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final double SHIP_SPEED = 35; // km/h
+    private static final double TRUCK_SPEED = 70; // km/h
+    private static final int HANDLING_MINUTES = 2; // per container loaded or unloaded
+    private static final double REFUEL_RATE = 1000; // gallons per minute
+    private static final int TURNAROUND_MINUTES = 60;
+    private static final int RETRY_MINUTES = 60;
+    private static final int MAX_UNLOAD_ATTEMPTS = 24;
+    private static final int GATE_INTERVAL_MINUTES = 60;
+    private static final int DESTINATION_CHOICES = 4;
+    private static final double MIN_CARGO_WEIGHT = 1000;
+    private static final double MAX_CARGO_WEIGHT = 30000;
+    // Keeps a full load from needing a hair more fuel than the tank holds after rounding
+    private static final double ROOM_MARGIN = 1e-9;
+    private static final Container.ContainerType[] CONTAINER_TYPES = Container.ContainerType.values();
+
+    // Event kinds; the subject of an event is a port index for CARGO and GATE, a vehicle index otherwise
+    private static final int CARGO = 0;
+    private static final int READY = 1;
+    private static final int DEPART = 2;
+    private static final int ARRIVE = 3;
+    private static final int UNLOAD = 4;
+    private static final int GATE = 5;
+
+    private final Port[] ports;
+    private final Vehicle[] vehicles;
+    private final Map<Port, Integer> portIndex = new IdentityHashMap<>();
+    private final int[] allPorts;
+    private final int[] landingPorts;
+    private final LocalDate start;
+    private final SplittableRandom random;
+    private final EventQueue events = new EventQueue();
+    private long now;
+
+    private double cargoPerPortPerDay = 20;
+    private double dwellDays = 2;
+
+    // Per vehicle: where it is going, its trip under way and how often it tried to unload there
+    private final int[] destinations;
+    private final Trip[] trips;
+    private final int[] unloadAttempts;
+
+    // Per port: the stored containers waiting for a vehicle, in storage order, and the delivered ones waiting
+    // to be collected, soonest first
+    private final List<List<Container>> outbound;
+    private final List<PriorityQueue<Pickup>> pickups;
+
+    private final Result result;
+
+    /**
+     * Constructs a new Simulation over a set of ports and vehicles. Vehicles that aren't at any of the ports
+     * take no part.
+     *
+     * @param ports    The ports, with their stored containers.
+     * @param vehicles The vehicles, with their loads.
+     * @param start    The simulated day the simulation starts on.
+     * @param seed     The seed of all random choices.
+     */
+    public Simulation(List<Port> ports, List<Vehicle> vehicles, LocalDate start, long seed) {
+        this.ports = ports.toArray(new Port[0]);
+        List<Vehicle> present = new ArrayList<>();
+        for (int i = 0; i < this.ports.length; i++) {
+            portIndex.put(this.ports[i], i);
+        }
+        for (Vehicle vehicle : vehicles) {
+            if (vehicle.getCurrentPort() != null && portIndex.containsKey(vehicle.getCurrentPort())) {
+                present.add(vehicle);
+            }
+        }
+        this.vehicles = present.toArray(new Vehicle[0]);
+        this.allPorts = new int[this.ports.length];
+        int landing = 0;
+        for (int i = 0; i < this.ports.length; i++) {
+            allPorts[i] = i;
+            if (this.ports[i].hasLandingAbility()) {
+                landing++;
+            }
+        }
+        this.landingPorts = new int[landing];
+        for (int i = 0, k = 0; i < this.ports.length; i++) {
+            if (this.ports[i].hasLandingAbility()) {
+                landingPorts[k++] = i;
+            }
+        }
+        this.start = start;
+        this.random = new SplittableRandom(seed);
+        this.destinations = new int[this.vehicles.length];
+        this.trips = new Trip[this.vehicles.length];
+        this.unloadAttempts = new int[this.vehicles.length];
+        this.outbound = new ArrayList<>(this.ports.length);
+        this.pickups = new ArrayList<>(this.ports.length);
+        for (Port port : this.ports) {
+            outbound.add(new ArrayList<>(port.getContainerView()));
+            pickups.add(new PriorityQueue<>());
+        }
+        this.result = new Result(this.ports);
+    }
+
+    public double getCargoPerPortPerDay() {
+        return cargoPerPortPerDay;
+    }
+
+    public double getDwellDays() {
+        return dwellDays;
+    }
+
+    /**
+     * Sets how much cargo arrives at each port per day on average (20 unless set).
+     *
+     * @param cargoPerPortPerDay The mean number of containers per port and day.
+     */
+    public void setCargoPerPortPerDay(double cargoPerPortPerDay) {
+        this.cargoPerPortPerDay = cargoPerPortPerDay;
+    }
+
+    /**
+     * Sets how long delivered cargo stays in storage on average before it is collected (2 days unless set).
+     *
+     * @param dwellDays The mean dwell time in days.
+     */
+    public void setDwellDays(double dwellDays) {
+        this.dwellDays = dwellDays;
+    }
+
+    /**
+     * Runs the simulation for a number of days. The changes it makes to the model are not counted in {@link Metrics}.
+     *
+     * @param days The simulated days to run for.
+     * @return The results.
+     */
+    public Result run(int days) {
+        return Metrics.uncounted(() -> simulate(days));
+    }
+
+    private Result simulate(int days) {
+        long started = System.nanoTime();
+        long end = (long) days * MINUTES_PER_DAY;
+        for (int p = 0; p < ports.length; p++) {
+            result.peakUtilization[p] = utilization(p);
+            if (cargoPerPortPerDay > 0) {
+                events.push(exponential(MINUTES_PER_DAY / cargoPerPortPerDay), CARGO, p);
+            }
+            events.push(GATE_INTERVAL_MINUTES, GATE, p);
+        }
+        for (int v = 0; v < vehicles.length; v++) {
+            events.push(random.nextInt(MINUTES_PER_DAY), READY, v);
+        }
+
+        while (!events.isEmpty() && events.peekTime() <= end) {
+            events.pop();
+            now = events.time;
+            result.events++;
+            int subject = events.subject;
+            switch (events.kind) {
+                case CARGO:
+                    cargoArrives(subject);
+                    break;
+                case READY:
+                    ready(subject);
+                    break;
+                case DEPART:
+                    depart(subject);
+                    break;
+                case ARRIVE:
+                    arrive(subject);
+                    break;
+                case UNLOAD:
+                    unload(subject);
+                    break;
+                case GATE:
+                    collect(subject);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown event kind " + events.kind);
+            }
+        }
+
+        now = end;
+        for (int p = 0; p < ports.length; p++) {
+            account(p);
+        }
+        result.days = days;
+        result.elapsedNanos = System.nanoTime() - started;
+        return result;
+    }
+
+    private void cargoArrives(int p) {
+        Container container = new Container("sim-" + result.cargoArrived,
+                MIN_CARGO_WEIGHT + random.nextDouble() * (MAX_CARGO_WEIGHT - MIN_CARGO_WEIGHT),
+                CONTAINER_TYPES[random.nextInt(CONTAINER_TYPES.length)]);
+        result.cargoArrived++;
+        account(p);
+        try {
+            ports[p].addContainer(container);
+            outbound.get(p).add(container);
+            stored(p);
+        } catch (IllegalStateException e) {
+            result.cargoTurnedAway[p]++;
+        }
+        events.push(now + exponential(MINUTES_PER_DAY / cargoPerPortPerDay), CARGO, p);
+    }
+
+    private void ready(int v) {
+        Vehicle vehicle = vehicles[v];
+        Port origin = vehicle.getCurrentPort();
+        int[] choices = vehicle instanceof Truck ? landingPorts : allPorts;
+        if (choices.length < 2 || (vehicle instanceof Truck && !origin.hasLandingAbility())) {
+            result.idleVehicles++; // Has nowhere to go, so it stays put
+            return;
+        }
+        // The nearest of a few random ports that the current load can reach on a full tank
+        int from = portIndex.get(origin);
+        int to = -1;
+        double nearest = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < DESTINATION_CHOICES; i++) {
+            int candidate = choices[random.nextInt(choices.length)];
+            if (candidate == from) {
+                continue;
+            }
+            double distance = origin.calculateDistance(ports[candidate]);
+            if (distance < nearest && vehicle.calculateRequiredFuel(origin, ports[candidate]) <= vehicle.getFuelCapacity()) {
+                to = candidate;
+                nearest = distance;
+            }
+        }
+        if (to < 0) {
+            // What it already carries is too heavy to get anywhere it looked; look again later
+            result.delayMinutes += RETRY_MINUTES;
+            events.push(now + RETRY_MINUTES, READY, v);
+            return;
+        }
+        destinations[v] = to;
+        Port destination = ports[to];
+
+        // Load waiting cargo in storage order while it fits, as LoadPlanner does for a single vehicle
+        double distance = origin.calculateDistance(destination);
+        double maxWeight = Math.min(vehicle.getCarryingCapacity(),
+                vehicle.calculateMaxWeight(vehicle.getFuelCapacity(), distance));
+        double room = maxWeight * (1 - ROOM_MARGIN) - vehicle.getTotalContainerWeight();
+        Marked loaded = new Marked();
+        for (Container container : outbound.get(from)) {
+            if (room < MIN_CARGO_WEIGHT) {
+                break;
+            }
+            if (container.getWeight() <= room && vehicle.canCarryContainerType(container)) {
+                vehicle.addContainer(container);
+                loaded.add(container);
+                room -= container.getWeight();
+            }
+        }
+        long minutes = (long) loaded.size() * HANDLING_MINUTES;
+        if (!loaded.isEmpty()) {
+            account(from);
+            origin.removeContainers(loaded);
+            outbound.get(from).removeIf(loaded.reset());
+            result.containersLoaded += loaded.size();
+        }
+
+        double requiredFuel = vehicle.calculateRequiredFuel(destination);
+        if (vehicle.getCurrentFuel() < requiredFuel) {
+            double amount = vehicle.getFuelCapacity() - vehicle.getCurrentFuel();
+            vehicle.refuel(amount);
+            long refuelMinutes = (long) Math.ceil(amount / REFUEL_RATE);
+            minutes += refuelMinutes;
+            result.refuels++;
+            result.delayMinutes += refuelMinutes;
+        }
+        events.push(now + minutes, DEPART, v);
+    }
+
+    private void depart(int v) {
+        Vehicle vehicle = vehicles[v];
+        Port origin = vehicle.getCurrentPort();
+        Port destination = ports[destinations[v]];
+        Trip trip = new Trip(vehicle, date(now), origin, destination);
+        origin.addTrip(trip);
+        destination.addTrip(trip);
+        trip.start();
+        trips[v] = trip;
+        double speed = vehicle instanceof Ship ? SHIP_SPEED : TRUCK_SPEED;
+        long minutes = Math.max(1, Math.round(origin.calculateDistance(destination) / speed * 60));
+        events.push(now + minutes, ARRIVE, v);
+    }
+
+    private void arrive(int v) {
+        Vehicle vehicle = vehicles[v];
+        Trip trip = trips[v];
+        trips[v] = null;
+        vehicle.move(trip.getArrivalPort()); // Burns the fuel; checked when the vehicle got ready
+        trip.complete(date(now));
+        result.tripsCompleted++;
+        if (vehicle instanceof Ship) {
+            result.shipFuel += trip.getFuelUsed();
+        } else {
+            result.truckFuel += trip.getFuelUsed();
+        }
+        unloadAttempts[v] = 0;
+        unload(v);
+    }
+
+    private void unload(int v) {
+        Vehicle vehicle = vehicles[v];
+        int p = destinations[v];
+        Port port = ports[p];
+        account(p);
+        int unloaded = 0;
+        for (Container container : vehicle.getContainers()) {
+            // The same check as Port.addContainer, so nothing is taken off that can't be stored
+            if (port.getTotalContainerWeight() + container.getWeight() <= port.getStoringCapacity()) {
+                vehicle.removeContainer(container);
+                port.addContainer(container);
+                pickups.get(p).add(new Pickup(now + exponential(dwellDays * MINUTES_PER_DAY), container));
+                unloaded++;
+            }
+        }
+        if (unloaded > 0) {
+            result.containersDelivered += unloaded;
+            stored(p);
+        }
+        long minutes = (long) unloaded * HANDLING_MINUTES;
+
+        unloadAttempts[v]++;
+        if (vehicle.getContainerCount() > 0 && unloadAttempts[v] < MAX_UNLOAD_ATTEMPTS) {
+            // Storage is full: wait on board for space
+            result.blockedMinutes[p] += RETRY_MINUTES;
+            result.delayMinutes += RETRY_MINUTES;
+            events.push(now + minutes + RETRY_MINUTES, UNLOAD, v);
+        } else {
+            // Whatever still doesn't fit travels on with the vehicle
+            events.push(now + minutes + TURNAROUND_MINUTES, READY, v);
+        }
+    }
+
+    private void collect(int p) {
+        PriorityQueue<Pickup> due = pickups.get(p);
+        if (!due.isEmpty() && due.peek().time <= now) {
+            Marked collected = new Marked();
+            while (!due.isEmpty() && due.peek().time <= now) {
+                collected.add(due.poll().container);
+            }
+            account(p);
+            result.containersCollected += ports[p].removeContainers(collected);
+        }
+        events.push(now + GATE_INTERVAL_MINUTES, GATE, p);
+    }
+
+    /**
+     * Adds the port's utilization since its last change to its time-weighted total, before it changes.
+     */
+    private void account(int p) {
+        result.utilizationMinutes[p] += utilization(p) * (now - result.lastChange[p]);
+        result.lastChange[p] = now;
+    }
+
+    /**
+     * Updates the port's peak utilization after more was stored there.
+     */
+    private void stored(int p) {
+        result.peakUtilization[p] = Math.max(result.peakUtilization[p], utilization(p));
+    }
+
+    private double utilization(int p) {
+        int capacity = ports[p].getStoringCapacity();
+        return capacity > 0 ? ports[p].getTotalContainerWeight() / capacity : 1;
+    }
+
+    private long exponential(double mean) {
+        return Math.max(1, Math.round(-mean * Math.log(1 - random.nextDouble())));
+    }
+
+    private LocalDate date(long minute) {
+        return start.plusDays(minute / MINUTES_PER_DAY);
+    }
+
+    /**
+     * A set of containers by identity, matched by a single pass over a list. Once every container has
+     * been matched the rest of the list is passed over without lookups.
+     */
+    private static class Marked implements Predicate<Container> {
+        private final Map<Container, Boolean> containers = new IdentityHashMap<>();
+        private int unmatched;
+
+        void add(Container container) {
+            if (containers.put(container, Boolean.TRUE) == null) {
+                unmatched++;
+            }
+        }
+
+        int size() {
+            return containers.size();
+        }
+
+        boolean isEmpty() {
+            return containers.isEmpty();
+        }
+
+        /**
+         * Starts another pass.
+         */
+        Marked reset() {
+            unmatched = containers.size();
+            return this;
+        }
+
+        @Override
+        public boolean test(Container container) {
+            if (unmatched > 0 && containers.containsKey(container)) {
+                unmatched--;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A delivered container and the minute it is collected.
+     */
+    private static class Pickup implements Comparable<Pickup> {
+        private final long time;
+        private final Container container;
+
+        Pickup(long time, Container container) {
+            this.time = time;
+            this.container = container;
+        }
+
+        @Override
+        public int compareTo(Pickup other) {
+            return Long.compare(time, other.time);
+        }
+    }
+
+    /**
+     * Totals of a simulation run, overall and per port.
+     */
+    public static class Result {
+        private final String[] portIds;
+        private final double[] utilizationMinutes;
+        private final long[] lastChange;
+        private final double[] peakUtilization;
+        private final int[] cargoTurnedAway;
+        private final long[] blockedMinutes;
+        private int days;
+        private long events;
+        private long elapsedNanos;
+        private long tripsCompleted;
+        private double shipFuel;
+        private double truckFuel;
+        private long cargoArrived;
+        private long containersLoaded;
+        private long containersDelivered;
+        private long containersCollected;
+        private long refuels;
+        private long delayMinutes;
+        private int idleVehicles;
+
+        Result(Port[] ports) {
+            portIds = new String[ports.length];
+            for (int i = 0; i < ports.length; i++) {
+                portIds[i] = ports[i].getId();
+            }
+            utilizationMinutes = new double[ports.length];
+            lastChange = new long[ports.length];
+            peakUtilization = new double[ports.length];
+            cargoTurnedAway = new int[ports.length];
+            blockedMinutes = new long[ports.length];
+        }
+
+        public int getPortCount() {
+            return portIds.length;
+        }
+
+        public String getPortId(int port) {
+            return portIds[port];
+        }
+
+        /**
+         * Gets the share of a port's storing capacity in use, averaged over the simulated time.
+         * @param port The port's position in the list the simulation was given.
+         * @return The average utilization, from 0 to 1.
+         */
+        public double getAverageUtilization(int port) {
+            return days == 0 ? 0 : utilizationMinutes[port] / ((long) days * MINUTES_PER_DAY);
+        }
+
+        /**
+         * Gets the largest share of a port's storing capacity in use at any time.
+         * @param port The port's position in the list the simulation was given.
+         * @return The peak utilization, from 0 to 1.
+         */
+        public double getPeakUtilization(int port) {
+            return peakUtilization[port];
+        }
+
+        /**
+         * Gets the number of containers turned away from a port because its storage was full.
+         * @param port The port's position in the list the simulation was given.
+         * @return The number of containers.
+         */
+        public int getCargoTurnedAway(int port) {
+            return cargoTurnedAway[port];
+        }
+
+        /**
+         * Gets the vehicle minutes spent at a port waiting for storage space to unload.
+         * @param port The port's position in the list the simulation was given.
+         * @return The minutes.
+         */
+        public long getBlockedMinutes(int port) {
+            return blockedMinutes[port];
+        }
+
+        public int getDays() {
+            return days;
+        }
+
+        public long getEvents() {
+            return events;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public long getTripsCompleted() {
+            return tripsCompleted;
+        }
+
+        public double getShipFuel() {
+            return shipFuel;
+        }
+
+        public double getTruckFuel() {
+            return truckFuel;
+        }
+
+        public double getTotalFuel() {
+            return shipFuel + truckFuel;
+        }
+
+        public long getCargoArrived() {
+            return cargoArrived;
+        }
+
+        public long getCargoTurnedAway() {
+            long total = 0;
+            for (int count : cargoTurnedAway) {
+                total += count;
+            }
+            return total;
+        }
+
+        public long getContainersLoaded() {
+            return containersLoaded;
+        }
+
+        public long getContainersDelivered() {
+            return containersDelivered;
+        }
+
+        public long getContainersCollected() {
+            return containersCollected;
+        }
+
+        public long getRefuels() {
+            return refuels;
+        }
+
+        /**
+         * Gets the vehicle minutes lost to refueling and to waiting for storage space.
+         */
+        public long getDelayMinutes() {
+            return delayMinutes;
+        }
+
+        /**
+         * Gets the average delay per completed trip.
+         * @return The delay in minutes.
+         */
+        public double getDelayPerTrip() {
+            return tripsCompleted == 0 ? 0 : (double) delayMinutes / tripsCompleted;
+        }
+
+        /**
+         * Gets the number of vehicles that had nowhere to go, e.g. trucks at ports without landing ability.
+         */
+        public int getIdleVehicles() {
+            return idleVehicles;
+        }
+
+        /**
+         * Prints the totals and the busiest ports.
+         *
+         * @param out      The stream to print to.
+         * @param topPorts The number of ports to list, by average utilization.
+         */
+        public void print(PrintStream out, int topPorts) {
+            out.printf("Simulated %d days: %d events in %d ms (%.0f events/s)%n", days, events,
+                    elapsedNanos / 1_000_000, elapsedNanos == 0 ? 0.0 : events * 1e9 / elapsedNanos);
+            out.printf("  %d trips, %.2f gallons of fuel (ships %.2f, trucks %.2f), %d refuels%n",
+                    tripsCompleted, getTotalFuel(), shipFuel, truckFuel, refuels);
+            out.printf("  cargo: %d arrived, %d turned away, %d loaded, %d delivered, %d collected%n",
+                    cargoArrived, getCargoTurnedAway(), containersLoaded, containersDelivered, containersCollected);
+            out.printf("  delay: %.1f minutes per trip; %d vehicles idle%n", getDelayPerTrip(), idleVehicles);
+            Integer[] order = new Integer[portIds.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(utilizationMinutes[b], utilizationMinutes[a]));
+            for (int i = 0; i < Math.min(topPorts, order.length); i++) {
+                int p = order[i];
+                out.printf("  %s: %.1f%% average, %.1f%% peak utilization, %d turned away, %d minutes blocked%n",
+                        portIds[p], getAverageUtilization(p) * 100, peakUtilization[p] * 100,
+                        cargoTurnedAway[p], blockedMinutes[p]);
+            }
+        }
+    }
+
+    /**
+     * Binary min-heap of events in parallel arrays, ordered by time and then by the order they were pushed.
+     * {@link #pop()} leaves the event's fields in {@link #time}, {@link #kind} and {@link #subject}.
+     */
+    private static class EventQueue {
+        private long[] times = new long[1024];
+        private long[] sequences = new long[1024];
+        private int[] kinds = new int[1024];
+        private int[] subjects = new int[1024];
+        private int size;
+        private long nextSequence;
+
+        long time;
+        int kind;
+        int subject;
+
+        void push(long time, int kind, int subject) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                sequences = Arrays.copyOf(sequences, size * 2);
+                kinds = Arrays.copyOf(kinds, size * 2);
+                subjects = Arrays.copyOf(subjects, size * 2);
+            }
+            long sequence = nextSequence++;
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(time, sequence, parent)) {
+                    break;
+                }
+                move(parent, i);
+                i = parent;
+            }
+            set(i, time, sequence, kind, subject);
+        }
+
+        void pop() {
+            time = times[0];
+            kind = kinds[0];
+            subject = subjects[0];
+            int last = --size;
+            long lastTime = times[last];
+            long lastSequence = sequences[last];
+            int lastKind = kinds[last];
+            int lastSubject = subjects[last];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && before(times[child + 1], sequences[child + 1], child)) {
+                    child++;
+                }
+                if (!before(times[child], sequences[child], lastTime, lastSequence)) {
+                    break;
+                }
+                move(child, i);
+                i = child;
+            }
+            set(i, lastTime, lastSequence, lastKind, lastSubject);
+        }
+
+        long peekTime() {
+            return times[0];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        private boolean before(long time, long sequence, int index) {
+            return before(time, sequence, times[index], sequences[index]);
+        }
+
+        private static boolean before(long time, long sequence, long otherTime, long otherSequence) {
+            return time < otherTime || (time == otherTime && sequence < otherSequence);
+        }
+
+        private void move(int from, int to) {
+            set(to, times[from], sequences[from], kinds[from], subjects[from]);
+        }
+
+        private void set(int index, long time, long sequence, int kind, int subject) {
+            times[index] = time;
+            sequences[index] = sequence;
+            kinds[index] = kind;
+            subjects[index] = subject;
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package com.utils;
+
+import com.models.Port;
+import com.models.Trip;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only on-disk archive of trips that dropped out of a port's recent traffic window.
+ *
+ * <p>Records are appended to the archive file and never rewritten. Every {@value #BLOCK_RECORDS} records
+ * form a block whose offset and range of arrival days are appended to a small index file. Queries by port
+ * and date range stream through the blocks whose day range overlaps the query and skip the rest, so the
+ * archive is never loaded into memory; only the block index (a few bytes per thousand trips) is.</p>
+ *
+ * <p>Record layout: {@code [int length][int crc32][utf port][utf vehicle][utf departure port][utf arrival port]
+ * [int departure day][int arrival day][byte status]}. Index entry layout: {@code [long offset][int min day]
+ * [int max day]}. A torn record at the end of the archive is discarded on open, and a missing or stale
+ * index is rebuilt from the archive.</p>
+ */
+public class TrafficArchive implements Closeable {
+    private static final int BLOCK_RECORDS = 1024;
+    private static final int HEADER_SIZE = 8; // length + crc
+    private static final int INDEX_ENTRY_SIZE = 16;
+    private static final int MAX_RECORD_SIZE = 1 << 16;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final Trip.TripStatus[] STATUSES = Trip.TripStatus.values();
+
+    /**
+     * A trip as recorded in the archive. Ports and vehicles are referred to by ID, since they may
+     * have been removed since the trip was archived.
+     */
+    public static class ArchivedTrip {
+        private final String portId;
+        private final String vehicleId;
+        private final String departurePortId;
+        private final String arrivalPortId;
+        private final LocalDate departureDate;
+        private final LocalDate arrivalDate;
+        private final Trip.TripStatus status;
+
+        ArchivedTrip(String portId, String vehicleId, String departurePortId, String arrivalPortId,
+                     LocalDate departureDate, LocalDate arrivalDate, Trip.TripStatus status) {
+            this.portId = portId;
+            this.vehicleId = vehicleId;
+            this.departurePortId = departurePortId;
+            this.arrivalPortId = arrivalPortId;
+            this.departureDate = departureDate;
+            this.arrivalDate = arrivalDate;
+            this.status = status;
+        }
+
+        /**
+         * Gets the ID of the port whose traffic the trip was evicted from.
+         * @return The port ID.
+         */
+        public String getPortId() {
+            return portId;
+        }
+
+        public String getVehicleId() {
+            return vehicleId;
+        }
+
+        public String getDeparturePortId() {
+            return departurePortId;
+        }
+
+        public String getArrivalPortId() {
+            return arrivalPortId;
+        }
+
+        public LocalDate getDepartureDate() {
+            return departureDate;
+        }
+
+        public LocalDate getArrivalDate() {
+            return arrivalDate;
+        }
+
+        public Trip.TripStatus getStatus() {
+            return status;
+        }
+
+        @Override
+        public String toString() {
+            return "Trip{" +
+                    "vehicle=" + vehicleId +
+                    ", departureDate=" + departureDate +
+                    ", arrivalDate=" + arrivalDate +
+                    ", departurePort=" + departurePortId +
+                    ", arrivalPort=" + arrivalPortId +
+                    ", status=" + status +
+                    '}';
+        }
+    }
+
+    private final Path archivePath;
+    private final Path indexPath;
+    private final FileChannel archive;
+    private final FileChannel index;
+
+    // Sealed blocks, as stored in the index file
+    private final List<long[]> blocks = new ArrayList<>(); // {offset, minDay, maxDay}
+    // The block still being filled
+    private long openBlockOffset;
+    private int openBlockRecords;
+    private int openBlockMinDay = Integer.MAX_VALUE;
+    private int openBlockMaxDay = Integer.MIN_VALUE;
+    // Length of the payload of the record last read by readRecord
+    private int lastRecordLength;
+
+    /**
+     * Opens (or creates) an archive in the data directory.
+     *
+     * @param fileName The name of the archive file; the index is stored next to it with an ".idx" suffix.
+     */
+    public TrafficArchive(String fileName) {
+        this.archivePath = Paths.get(FileHandler.DATA_DIRECTORY, fileName);
+        this.indexPath = Paths.get(FileHandler.DATA_DIRECTORY, fileName + ".idx");
+        try {
+            Files.createDirectories(archivePath.getParent());
+            this.archive = FileChannel.open(archivePath,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.index = FileChannel.open(indexPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            recover();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open traffic archive " + fileName + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Appends a trip evicted from a port's recent traffic. Matches {@link Port.TrafficEvictionListener}.
+     *
+     * @param port The port the trip was evicted from.
+     * @param trip The evicted trip.
+     */
+    public synchronized void append(Port port, Trip trip) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeUTF(port.getId());
+            out.writeUTF(trip.getVehicle().getId());
+            out.writeUTF(trip.getDeparturePort().getId());
+            out.writeUTF(trip.getArrivalPort().getId());
+            out.writeInt(Math.toIntExact(trip.getDepartureDate().toEpochDay()));
+            out.writeInt(trip.getArrivalDate() == null ? NO_DATE : Math.toIntExact(trip.getArrivalDate().toEpochDay()));
+            out.writeByte(trip.getStatus().ordinal());
+            byte[] payload = bytes.toByteArray();
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+            record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+            long position = archive.size();
+            while (record.hasRemaining()) {
+                archive.write(record, position + record.position());
+            }
+            addToOpenBlock(position, dayOf(trip));
+        } catch (IOException e) {
+            System.err.println("Error appending to traffic archive " + archivePath + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Streams the archived trips of a port whose date falls within a range (inclusive), in archive order.
+     * A trip's date is its arrival date, or its departure date if it never arrived.
+     *
+     * @param portId    The port ID.
+     * @param startDate The start of the range.
+     * @param endDate   The end of the range.
+     * @param consumer  Receives each matching trip.
+     */
+    public synchronized void query(String portId, LocalDate startDate, LocalDate endDate,
+                                   Consumer<ArchivedTrip> consumer) {
+        long startDay = startDate.toEpochDay();
+        long endDay = endDate.toEpochDay();
+        try {
+            for (long[] block : blocks) {
+                if (block[2] >= startDay && block[1] <= endDay) {
+                    scan(block[0], BLOCK_RECORDS, portId, startDay, endDay, consumer);
+                }
+            }
+            if (openBlockRecords > 0 && openBlockMaxDay >= startDay && openBlockMinDay <= endDay) {
+                scan(openBlockOffset, openBlockRecords, portId, startDay, endDay, consumer);
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading traffic archive " + archivePath + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Gets the archived trips of a port whose date falls within a range (inclusive).
+     *
+     * @see #query(String, LocalDate, LocalDate, Consumer)
+     */
+    public List<ArchivedTrip> query(String portId, LocalDate startDate, LocalDate endDate) {
+        List<ArchivedTrip> trips = new ArrayList<>();
+        query(portId, startDate, endDate, trips::add);
+        return trips;
+    }
+
+    /**
+     * Deletes an archive and its index from the data directory, e.g. when the data it refers to is replaced.
+     * The archive must not be open.
+     *
+     * @param fileName The name of the archive file.
+     * @return True if neither file exists any more, false otherwise.
+     */
+    public static boolean delete(String fileName) {
+        try {
+            Files.deleteIfExists(Paths.get(FileHandler.DATA_DIRECTORY, fileName));
+            Files.deleteIfExists(Paths.get(FileHandler.DATA_DIRECTORY, fileName + ".idx"));
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error deleting traffic archive " + fileName + ": " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Gets the number of archived trips.
+     * @return The record count.
+     */
+    public synchronized long size() {
+        return (long) blocks.size() * BLOCK_RECORDS + openBlockRecords;
+    }
+
+    /**
+     * Forces appended records to the storage device.
+     */
+    public synchronized void sync() {
+        try {
+            archive.force(false);
+            index.force(false);
+        } catch (IOException e) {
+            System.err.println("Error syncing traffic archive " + archivePath + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        sync();
+        try {
+            archive.close();
+            index.close();
+        } catch (IOException e) {
+            System.err.println("Error closing traffic archive " + archivePath + ": " + e.getMessage());
+        }
+    }
+
+    private void addToOpenBlock(long position, int day) throws IOException {
+        if (openBlockRecords == 0) {
+            openBlockOffset = position;
+        }
+        openBlockRecords++;
+        openBlockMinDay = Math.min(openBlockMinDay, day);
+        openBlockMaxDay = Math.max(openBlockMaxDay, day);
+        if (openBlockRecords == BLOCK_RECORDS) {
+            long[] block = {openBlockOffset, openBlockMinDay, openBlockMaxDay};
+            ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+            entry.putLong(block[0]).putInt((int) block[1]).putInt((int) block[2]).flip();
+            long indexPosition = (long) blocks.size() * INDEX_ENTRY_SIZE;
+            while (entry.hasRemaining()) {
+                index.write(entry, indexPosition + entry.position());
+            }
+            blocks.add(block);
+            openBlockRecords = 0;
+            openBlockMinDay = Integer.MAX_VALUE;
+            openBlockMaxDay = Integer.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Loads the block index and re-reads the records after the last sealed block. Truncates a torn
+     * record at the end of the archive, and rebuilds the index if it doesn't match the archive.
+     */
+    private void recover() throws IOException {
+        long archiveSize = archive.size();
+        ByteBuffer entries = ByteBuffer.allocate((int) (index.size() / INDEX_ENTRY_SIZE * INDEX_ENTRY_SIZE));
+        while (entries.hasRemaining() && index.read(entries, entries.position()) >= 0) {
+            // keep reading
+        }
+        entries.flip();
+        while (entries.remaining() >= INDEX_ENTRY_SIZE) {
+            long[] block = {entries.getLong(), entries.getInt(), entries.getInt()};
+            long previous = blocks.isEmpty() ? -1 : blocks.get(blocks.size() - 1)[0];
+            if (block[0] <= previous || block[0] >= archiveSize) {
+                System.err.println("Rebuilding stale traffic archive index " + indexPath);
+                blocks.clear();
+                break;
+            }
+            blocks.add(block);
+        }
+        index.truncate((long) blocks.size() * INDEX_ENTRY_SIZE);
+
+        // Re-read everything after the last sealed block, sealing blocks again as they fill up
+        long position = blocks.isEmpty() ? 0 : blocks.get(blocks.size() - 1)[0];
+        if (!blocks.isEmpty()) {
+            position = skip(position, BLOCK_RECORDS);
+        }
+        DataInputStream in = readerAt(position);
+        while (position + HEADER_SIZE <= archiveSize) {
+            ArchivedTrip trip = readRecord(in, position, archiveSize);
+            if (trip == null) {
+                break;
+            }
+            long recordPosition = position;
+            position += HEADER_SIZE + lastRecordLength;
+            addToOpenBlock(recordPosition, dayOf(trip));
+        }
+        if (position < archiveSize) {
+            System.err.println("Discarding corrupt traffic archive tail in " + archivePath + " at byte " + position);
+            archive.truncate(position);
+        }
+    }
+
+    /**
+     * Reads one record, or returns null if the rest of the file doesn't hold a valid record.
+     */
+    private ArchivedTrip readRecord(DataInputStream in, long position, long archiveSize) throws IOException {
+        int length = in.readInt();
+        int checksum = in.readInt();
+        if (length <= 0 || length > MAX_RECORD_SIZE || position + HEADER_SIZE + length > archiveSize) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        lastRecordLength = length;
+        DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+        String portId = record.readUTF();
+        String vehicleId = record.readUTF();
+        String departurePortId = record.readUTF();
+        String arrivalPortId = record.readUTF();
+        LocalDate departureDate = LocalDate.ofEpochDay(record.readInt());
+        int arrivalDay = record.readInt();
+        int status = record.readUnsignedByte();
+        if (status >= STATUSES.length) {
+            return null;
+        }
+        return new ArchivedTrip(portId, vehicleId, departurePortId, arrivalPortId, departureDate,
+                arrivalDay == NO_DATE ? null : LocalDate.ofEpochDay(arrivalDay), STATUSES[status]);
+    }
+
+    /**
+     * Gets the position after a number of records starting at a position.
+     */
+    private long skip(long position, int records) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        for (int i = 0; i < records; i++) {
+            length.clear();
+            archive.read(length, position);
+            length.flip();
+            position += HEADER_SIZE + length.getInt();
+        }
+        return position;
+    }
+
+    private void scan(long position, int records, String portId, long startDay, long endDay,
+                      Consumer<ArchivedTrip> consumer) throws IOException {
+        long archiveSize = archive.size();
+        DataInputStream in = readerAt(position);
+        for (int i = 0; i < records; i++) {
+            ArchivedTrip trip = readRecord(in, position, archiveSize);
+            if (trip == null) {
+                return;
+            }
+            position += HEADER_SIZE + lastRecordLength;
+            int day = dayOf(trip);
+            if (day >= startDay && day <= endDay && trip.getPortId().equals(portId)) {
+                consumer.accept(trip);
+            }
+        }
+    }
+
+    /**
+     * Opens a buffered stream over the archive from a position. The stream is not closed after use,
+     * since closing it would close the archive channel.
+     */
+    private DataInputStream readerAt(long position) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Channels.newInputStream(archive.position(position)), 1 << 16));
+    }
+
+    private static int dayOf(Trip trip) {
+        LocalDate date = trip.getArrivalDate() != null ? trip.getArrivalDate() : trip.getDepartureDate();
+        return Math.toIntExact(date.toEpochDay());
+    }
+
+    private static int dayOf(ArchivedTrip trip) {
+        LocalDate date = trip.getArrivalDate() != null ? trip.getArrivalDate() : trip.getDepartureDate();
+        return Math.toIntExact(date.toEpochDay());
+    }
+}
@@ -0,0 +1,36 @@
+package com.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a trip starting or completing, lasting the transition including the updates
+ * to both ports' traffic.
+ */
+@Name("com.pms.TripTransition")
+@Label("Trip Transition")
+@Category({"Port Management System", "Trips"})
+@Description("A trip started or completed")
+public class TripEvent extends Event {
+    @Label("Vehicle")
+    public String vehicle;
+
+    @Label("Departure Port")
+    public String departurePort;
+
+    @Label("Arrival Port")
+    public String arrivalPort;
+
+    @Label("From Status")
+    public String fromStatus;
+
+    @Label("To Status")
+    public String toStatus;
+
+    @Label("Fuel Used")
+    @Description("Gallons burned over the trip, once it has completed")
+    public double fuelUsed;
+}
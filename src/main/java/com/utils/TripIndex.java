@@ -0,0 +1,194 @@
+package com.utils;
+
+import com.models.Trip;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Store of trips indexed by departure and arrival day.
+ * Trips are bucketed by epoch day in sorted maps, so a query for one day or a range of days costs
+ * O(log n + k) instead of a scan over the whole trip history. Trips that have not arrived yet are kept
+ * in a separate set.
+ *
+ * <p>A trip's arrival date is set when it completes; call {@link #reindex(Trip)} afterwards so the
+ * arrival index picks it up.</p>
+ */
+public class TripIndex implements Iterable<Trip> {
+    private final List<Trip> trips = new ArrayList<>();
+    private final NavigableMap<Long, List<Trip>> byDeparture = new TreeMap<>();
+    private final NavigableMap<Long, List<Trip>> byArrival = new TreeMap<>();
+    private final Set<Trip> notArrived = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<Trip, Long> indexedArrival = new IdentityHashMap<>();
+
+    // Longest completed trip seen, used to bound the departure window of overlap queries
+    private long maxDurationDays;
+
+    /**
+     * Adds a trip to the store and indexes it.
+     * @param trip The trip to add.
+     */
+    public void add(Trip trip) {
+        trips.add(trip);
+        bucket(byDeparture, trip.getDepartureDate().toEpochDay()).add(trip);
+        indexArrival(trip);
+    }
+
+    /**
+     * Removes a trip from the store.
+     * @param trip The trip to remove.
+     * @return True if the trip was stored, false otherwise.
+     */
+    public boolean remove(Trip trip) {
+        if (!trips.remove(trip)) {
+            return false;
+        }
+        unbucket(byDeparture, trip.getDepartureDate().toEpochDay(), trip);
+        unindexArrival(trip);
+        return true;
+    }
+
+    /**
+     * Updates the arrival index after a trip has completed.
+     * @param trip The trip whose arrival date changed.
+     */
+    public void reindex(Trip trip) {
+        unindexArrival(trip);
+        indexArrival(trip);
+    }
+
+    /**
+     * Replaces the contents of the store, e.g. after loading data from files.
+     * @param loaded The trips to store.
+     */
+    public void rebuild(Collection<Trip> loaded) {
+        trips.clear();
+        byDeparture.clear();
+        byArrival.clear();
+        notArrived.clear();
+        indexedArrival.clear();
+        maxDurationDays = 0;
+        loaded.forEach(this::add);
+    }
+
+    /**
+     * Gets the trips departing or arriving on a given day.
+     *
+     * @param date The day.
+     * @return The matching trips, each listed once.
+     */
+    public List<Trip> onDate(LocalDate date) {
+        long day = date.toEpochDay();
+        List<Trip> result = new ArrayList<>(byDeparture.getOrDefault(day, Collections.emptyList()));
+        for (Trip trip : byArrival.getOrDefault(day, Collections.emptyList())) {
+            // Same-day trips are already in the departure bucket
+            if (trip.getDepartureDate().toEpochDay() != day) {
+                result.add(trip);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the trips departing within a range of days that have not arrived after its end.
+     *
+     * @param start The first day of the range (inclusive).
+     * @param end   The last day of the range (inclusive).
+     * @return The matching trips ordered by departure day.
+     */
+    public List<Trip> between(LocalDate start, LocalDate end) {
+        List<Trip> result = new ArrayList<>();
+        for (List<Trip> bucket : departingBetween(start.toEpochDay(), end.toEpochDay())) {
+            for (Trip trip : bucket) {
+                if (trip.getArrivalDate() == null || !trip.getArrivalDate().isAfter(end)) {
+                    result.add(trip);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the trips that are under way at any point during a range of days: those that departed
+     * on or before its end and had not arrived before its start.
+     *
+     * @param start The first day of the range (inclusive).
+     * @param end   The last day of the range (inclusive).
+     * @return The matching trips.
+     */
+    public List<Trip> inProgressDuring(LocalDate start, LocalDate end) {
+        long startDay = start.toEpochDay();
+        long endDay = end.toEpochDay();
+        List<Trip> result = new ArrayList<>();
+        // A completed trip overlapping the range cannot have departed earlier than this
+        for (List<Trip> bucket : departingBetween(startDay - maxDurationDays, endDay)) {
+            for (Trip trip : bucket) {
+                if (trip.getArrivalDate() != null && trip.getArrivalDate().toEpochDay() >= startDay) {
+                    result.add(trip);
+                }
+            }
+        }
+        for (Trip trip : notArrived) {
+            if (trip.getDepartureDate().toEpochDay() <= endDay) {
+                result.add(trip);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return trips.size();
+    }
+
+    /**
+     * Gets a read-only view of all trips in insertion order.
+     * @return The trips.
+     */
+    public List<Trip> values() {
+        return Collections.unmodifiableList(trips);
+    }
+
+    @Override
+    public Iterator<Trip> iterator() {
+        return values().iterator();
+    }
+
+    private Collection<List<Trip>> departingBetween(long startDay, long endDay) {
+        if (startDay > endDay) {
+            return Collections.emptyList();
+        }
+        return byDeparture.subMap(startDay, true, endDay, true).values();
+    }
+
+    private void indexArrival(Trip trip) {
+        if (trip.getArrivalDate() == null) {
+            notArrived.add(trip);
+            return;
+        }
+        long day = trip.getArrivalDate().toEpochDay();
+        bucket(byArrival, day).add(trip);
+        indexedArrival.put(trip, day);
+        maxDurationDays = Math.max(maxDurationDays, day - trip.getDepartureDate().toEpochDay());
+    }
+
+    private void unindexArrival(Trip trip) {
+        notArrived.remove(trip);
+        Long day = indexedArrival.remove(trip);
+        if (day != null) {
+            unbucket(byArrival, day, trip);
+        }
+    }
+
+    private static List<Trip> bucket(Map<Long, List<Trip>> index, long day) {
+        return index.computeIfAbsent(day, d -> new ArrayList<>());
+    }
+
+    private static void unbucket(Map<Long, List<Trip>> index, long day, Trip trip) {
+        List<Trip> bucket = index.get(day);
+        if (bucket != null) {
+            bucket.removeIf(t -> t == trip);
+            if (bucket.isEmpty()) {
+                index.remove(day);
+            }
+        }
+    }
+}
@@ -0,0 +1,496 @@
+package com.utils;
+
+import com.models.Trip;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Columnar on-disk copy of the trip history, queried through memory-mapped columns instead of
+ * {@link Trip} objects. Date-range scans and fuel rollups read the mapped files directly, so years of
+ * history can be queried with a heap holding little more than the vehicle and port ID dictionaries.
+ *
+ * <p>Rows are sorted by departure day, so a range of departure days is found by binary search.
+ * Layout (big-endian): a {@value #HEADER_SIZE}-byte header {@code [int magic][int version][int rows]
+ * [int vehicles][int ports][int max duration days]}, then one fixed-width column after another:
+ * departure day, arrival day ({@code Integer.MIN_VALUE} if not arrived), vehicle, departure port and
+ * arrival port (ints; vehicles and ports are positions in the dictionaries), fuel (doubles, 8-byte
+ * aligned) and status (bytes); then the vehicle and port ID dictionaries as UTF strings.</p>
+ *
+ * <p>Each column is mapped separately, so the log holds up to {@code Integer.MAX_VALUE / 8} trips.
+ * The log is rewritten whole with each snapshot; it does not see trips made since, so readers that need
+ * them keep those trips alongside.</p>
+ */
+public class TripLog implements Closeable {
+    private static final int MAGIC = 0x54524950; // "TRIP"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final Trip.TripStatus[] STATUSES = Trip.TripStatus.values();
+
+    private final FileChannel channel;
+    private final int rows;
+    private final int maxDurationDays;
+    private final IntBuffer departureDays;
+    private final IntBuffer arrivalDays;
+    private final IntBuffer vehicles;
+    private final IntBuffer departurePorts;
+    private final IntBuffer arrivalPorts;
+    private final DoubleBuffer fuel;
+    private final ByteBuffer statuses;
+    private final String[] vehicleIds;
+    private final String[] portIds;
+
+    private TripLog(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a trip log");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported trip log version " + version);
+        }
+        rows = header.getInt();
+        int vehicleCount = header.getInt();
+        int portCount = header.getInt();
+        maxDurationDays = header.getInt();
+
+        long position = HEADER_SIZE;
+        departureDays = map(position, 4L * rows).asIntBuffer();
+        arrivalDays = map(position += 4L * rows, 4L * rows).asIntBuffer();
+        vehicles = map(position += 4L * rows, 4L * rows).asIntBuffer();
+        departurePorts = map(position += 4L * rows, 4L * rows).asIntBuffer();
+        arrivalPorts = map(position += 4L * rows, 4L * rows).asIntBuffer();
+        position = align(position + 4L * rows);
+        fuel = map(position, 8L * rows).asDoubleBuffer();
+        statuses = map(position += 8L * rows, rows);
+        position += rows;
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(position))));
+        vehicleIds = new String[vehicleCount];
+        for (int i = 0; i < vehicleCount; i++) {
+            vehicleIds[i] = in.readUTF();
+        }
+        portIds = new String[portCount];
+        for (int i = 0; i < portCount; i++) {
+            portIds[i] = in.readUTF();
+        }
+    }
+
+    /**
+     * Checks if a trip log exists in the data directory.
+     *
+     * @param fileName The name of the log file.
+     * @return True if the file exists.
+     */
+    public static boolean exists(String fileName) {
+        return Files.exists(Paths.get(FileHandler.DATA_DIRECTORY, fileName));
+    }
+
+    /**
+     * Opens a trip log in the data directory.
+     *
+     * @param fileName The name of the log file.
+     * @return The log, or null if it doesn't exist or cannot be read.
+     */
+    public static TripLog open(String fileName) {
+        Path path = Paths.get(FileHandler.DATA_DIRECTORY, fileName);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            return new TripLog(channel);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error opening trip log " + fileName + ": " + e.getMessage());
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Already reporting the original error
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Writes the trips as a columnar log, replacing the file atomically.
+     *
+     * @param fileName The name of the log file in the data directory.
+     * @param trips    The trips to write.
+     * @param fuel     Gives the fuel used by each trip.
+     * @return True if the log is safely on disk, false otherwise.
+     */
+    public static boolean write(String fileName, Collection<Trip> trips, ToDoubleFunction<Trip> fuel) {
+        Trip[] sorted = trips.toArray(new Trip[0]);
+        Arrays.sort(sorted, Comparator.comparing(Trip::getDepartureDate));
+        Map<String, Integer> vehicleIndex = new LinkedHashMap<>();
+        Map<String, Integer> portIndex = new LinkedHashMap<>();
+        int maxDurationDays = 0;
+        for (Trip trip : sorted) {
+            vehicleIndex.putIfAbsent(trip.getVehicle().getId(), vehicleIndex.size());
+            portIndex.putIfAbsent(trip.getDeparturePort().getId(), portIndex.size());
+            portIndex.putIfAbsent(trip.getArrivalPort().getId(), portIndex.size());
+            if (trip.getArrivalDate() != null) {
+                maxDurationDays = Math.max(maxDurationDays,
+                        (int) (trip.getArrivalDate().toEpochDay() - trip.getDepartureDate().toEpochDay()));
+            }
+        }
+
+        Path path = Paths.get(FileHandler.DATA_DIRECTORY, fileName);
+        Path temp = Paths.get(FileHandler.DATA_DIRECTORY, fileName + ".tmp");
+        int rows = sorted.length;
+        try (FileChannel file = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rows);
+            out.writeInt(vehicleIndex.size());
+            out.writeInt(portIndex.size());
+            out.writeInt(maxDurationDays);
+            out.write(new byte[HEADER_SIZE - 24]);
+            for (Trip trip : sorted) {
+                out.writeInt(Math.toIntExact(trip.getDepartureDate().toEpochDay()));
+            }
+            for (Trip trip : sorted) {
+                out.writeInt(trip.getArrivalDate() == null ? NO_DATE : Math.toIntExact(trip.getArrivalDate().toEpochDay()));
+            }
+            for (Trip trip : sorted) {
+                out.writeInt(vehicleIndex.get(trip.getVehicle().getId()));
+            }
+            for (Trip trip : sorted) {
+                out.writeInt(portIndex.get(trip.getDeparturePort().getId()));
+            }
+            for (Trip trip : sorted) {
+                out.writeInt(portIndex.get(trip.getArrivalPort().getId()));
+            }
+            long position = HEADER_SIZE + 20L * rows;
+            out.write(new byte[(int) (align(position) - position)]);
+            for (Trip trip : sorted) {
+                out.writeDouble(fuel.applyAsDouble(trip));
+            }
+            for (Trip trip : sorted) {
+                out.writeByte(trip.getStatus().ordinal());
+            }
+            for (String id : vehicleIndex.keySet()) {
+                out.writeUTF(id);
+            }
+            for (String id : portIndex.keySet()) {
+                out.writeUTF(id);
+            }
+            out.flush();
+            // The rename must not reach the disk before the data it points at
+            file.force(true);
+        } catch (IOException e) {
+            System.err.println("Error saving trip log " + fileName + ": " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error replacing trip log " + fileName + ": " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Deletes a log from the data directory, e.g. when the data it was written from is replaced.
+     *
+     * @param fileName The name of the log file.
+     * @return True if the file doesn't exist any more, false otherwise.
+     */
+    public static boolean delete(String fileName) {
+        try {
+            Files.deleteIfExists(Paths.get(FileHandler.DATA_DIRECTORY, fileName));
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error deleting trip log " + fileName + ": " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Gets the number of trips in the log.
+     * @return The row count.
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Visits the trips departing within a range of days that have not arrived after its end,
+     * in departure order (the same trips as {@link TripIndex#between}).
+     *
+     * @param start  The first day of the range (inclusive).
+     * @param end    The last day of the range (inclusive).
+     * @param action Receives the row of each matching trip.
+     */
+    public void forEachBetween(LocalDate start, LocalDate end, IntConsumer action) {
+        int endDay = day(end);
+        for (int row = firstDepartingFrom(day(start)); row < rows && departureDays.get(row) <= endDay; row++) {
+            int arrival = arrivalDays.get(row);
+            if (arrival == NO_DATE || arrival <= endDay) {
+                action.accept(row);
+            }
+        }
+    }
+
+    /**
+     * Visits the trips departing or arriving on a given day (the same trips as {@link TripIndex#onDate}).
+     *
+     * @param date   The day.
+     * @param action Receives the row of each matching trip.
+     */
+    public void forEachOnDate(LocalDate date, IntConsumer action) {
+        int day = day(date);
+        // A trip arriving on the day cannot have departed earlier than this
+        for (int row = firstDepartingFrom(day - maxDurationDays); row < rows && departureDays.get(row) <= day; row++) {
+            if (departureDays.get(row) == day || arrivalDays.get(row) == day) {
+                action.accept(row);
+            }
+        }
+    }
+
+    /**
+     * Visits the trips under way at any point during a range of days: those that departed on or before its end
+     * and had not arrived before its start (the same trips as {@link TripIndex#inProgressDuring}).
+     *
+     * @param start  The first day of the range (inclusive).
+     * @param end    The last day of the range (inclusive).
+     * @param action Receives the row of each matching trip.
+     */
+    public void forEachInProgressDuring(LocalDate start, LocalDate end, IntConsumer action) {
+        int startDay = day(start);
+        int endDay = day(end);
+        // Trips that haven't arrived may have departed on any earlier day, so every row up to the end is checked
+        for (int row = 0; row < rows && departureDays.get(row) <= endDay; row++) {
+            int arrival = arrivalDays.get(row);
+            if (arrival == NO_DATE || arrival >= startDay) {
+                action.accept(row);
+            }
+        }
+    }
+
+    /**
+     * Sums the fuel used by the trips departing or arriving on a given day.
+     *
+     * @param date The day.
+     * @return The total fuel.
+     */
+    public double getFuelOnDate(LocalDate date) {
+        double[] total = new double[1];
+        forEachOnDate(date, row -> total[0] += fuel.get(row));
+        return total[0];
+    }
+
+    /**
+     * Sums the fuel used per departure day over a range of days.
+     *
+     * @param start The first day of the range (inclusive).
+     * @param end   The last day of the range (inclusive).
+     * @return The fuel of each day, starting with {@code start}.
+     */
+    public double[] getFuelByDay(LocalDate start, LocalDate end) {
+        int startDay = day(start);
+        int endDay = day(end);
+        double[] totals = new double[Math.max(0, endDay - startDay + 1)];
+        for (int row = firstDepartingFrom(startDay); row < rows && departureDays.get(row) <= endDay; row++) {
+            totals[departureDays.get(row) - startDay] += fuel.get(row);
+        }
+        return totals;
+    }
+
+    /**
+     * Sums the fuel used per vehicle by the trips departing within a range of days.
+     *
+     * @param start The first day of the range (inclusive).
+     * @param end   The last day of the range (inclusive).
+     * @return The fuel of each vehicle that made such a trip, by vehicle ID.
+     */
+    public Map<String, Double> getFuelByVehicle(LocalDate start, LocalDate end) {
+        return rollUp(start, end, vehicles, vehicleIds);
+    }
+
+    /**
+     * Sums the fuel used per departure port by the trips departing within a range of days.
+     *
+     * @param start The first day of the range (inclusive).
+     * @param end   The last day of the range (inclusive).
+     * @return The fuel of each port such a trip departed from, by port ID.
+     */
+    public Map<String, Double> getFuelByPort(LocalDate start, LocalDate end) {
+        return rollUp(start, end, departurePorts, portIds);
+    }
+
+    public LocalDate getDepartureDate(int row) {
+        return LocalDate.ofEpochDay(departureDays.get(row));
+    }
+
+    /**
+     * Gets the arrival date of a trip.
+     * @param row The row of the trip.
+     * @return The arrival date, or null if the trip hasn't arrived.
+     */
+    public LocalDate getArrivalDate(int row) {
+        int day = arrivalDays.get(row);
+        return day == NO_DATE ? null : LocalDate.ofEpochDay(day);
+    }
+
+    public String getVehicleId(int row) {
+        return vehicleIds[vehicles.get(row)];
+    }
+
+    public String getDeparturePortId(int row) {
+        return portIds[departurePorts.get(row)];
+    }
+
+    public String getArrivalPortId(int row) {
+        return portIds[arrivalPorts.get(row)];
+    }
+
+    public double getFuel(int row) {
+        return fuel.get(row);
+    }
+
+    public Trip.TripStatus getStatus(int row) {
+        return STATUSES[statuses.get(row)];
+    }
+
+    /**
+     * Describes a trip in the same form as {@link Trip#toString()}.
+     * @param row The row of the trip.
+     * @return The description.
+     */
+    public String describe(int row) {
+        return Trip.describe(getVehicleId(row), getDepartureDate(row), getArrivalDate(row), getDeparturePortId(row),
+                getArrivalPortId(row), getStatus(row));
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The mappings stay valid until they are garbage collected; closing releases the file handle
+        channel.close();
+    }
+
+    private Map<String, Double> rollUp(LocalDate start, LocalDate end, IntBuffer keys, String[] ids) {
+        int endDay = day(end);
+        double[] totals = new double[ids.length];
+        boolean[] seen = new boolean[ids.length];
+        for (int row = firstDepartingFrom(day(start)); row < rows && departureDays.get(row) <= endDay; row++) {
+            int key = keys.get(row);
+            totals[key] += fuel.get(row);
+            seen[key] = true;
+        }
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (seen[i]) {
+                result.put(ids[i], totals[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the first row departing on or after a day by binary search over the sorted departure column.
+     */
+    private int firstDepartingFrom(int day) {
+        int low = 0;
+        int high = rows;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (departureDays.get(mid) < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private ByteBuffer map(long position, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    private static int day(LocalDate date) {
+        return Math.toIntExact(date.toEpochDay());
+    }
+
+    /**
+     * Prints trip counts and fuel rollups for a range of days straight from the trip log, e.g. with a heap
+     * far too small to load the store. Usage: {@code TripLog --from 2020-01-01 --to 2026-12-31}.
+     */
+    public static void main(String[] args) throws IOException {
+        LocalDate from = LocalDate.MIN;
+        LocalDate to = LocalDate.MAX;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--from":
+                    from = LocalDate.parse(args[i + 1]);
+                    break;
+                case "--to":
+                    to = LocalDate.parse(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        long started = System.nanoTime();
+        try (TripLog log = open(FileHandler.TRIP_LOG_FILE)) {
+            if (log == null) {
+                System.out.println("No trip log found in " + FileHandler.DATA_DIRECTORY);
+                return;
+            }
+            if (log.size() == 0) {
+                System.out.println("The trip log is empty.");
+                return;
+            }
+            // Clamp to the logged days so per-day arrays stay small
+            LocalDate first = log.getDepartureDate(0);
+            LocalDate last = log.getDepartureDate(log.size() - 1);
+            from = from.isBefore(first) ? first : from;
+            to = to.isAfter(last) ? last : to;
+
+            int[] count = new int[1];
+            double[] fuelUsed = new double[1];
+            log.forEachBetween(from, to, row -> {
+                count[0]++;
+                fuelUsed[0] += log.getFuel(row);
+            });
+            System.out.printf("%d of %d trips between %s and %s, %.2f gallons of fuel%n",
+                    count[0], log.size(), from, to, fuelUsed[0]);
+            printTop("Vehicles", log.getFuelByVehicle(from, to));
+            printTop("Departure ports", log.getFuelByPort(from, to));
+        }
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("Done in %d ms with %d MB of heap in use%n", (System.nanoTime() - started) / 1_000_000,
+                (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024));
+    }
+
+    private static void printTop(String title, Map<String, Double> fuelById) {
+        System.out.println(title + " using the most fuel:");
+        fuelById.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .limit(10)
+                .forEach(entry -> System.out.printf("  %-16s %14.2f%n", entry.getKey(), entry.getValue()));
+    }
+}
@@ -0,0 +1,503 @@
+package com.utils;
+
+import com.models.*;
+import com.users.PortManager;
+import com.users.SystemAdmin;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Round trips of every entity type and reference through the store codec, and reads of files written
+ * in the older versions of the format that {@link DataStore#read} still accepts.
+ */
+class DataStoreTest {
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 14);
+
+    private Port harbour;
+    private Port inland;
+    private Port depot;
+    private Container stored;
+    private Container onTruck;
+    private Container onShip;
+    private Container unplaced;
+    private Container oddlyNamed;
+    private Ship ship;
+    private Truck truck;
+    private Ship idle;
+    private Trip underway;
+    private Trip completed;
+    private DataStore store;
+
+    @BeforeEach
+    void setUp() {
+        harbour = new Port("p-1", "Harbour", 10.5, 106.7, 100_000, true);
+        inland = new Port("p-2", "Inland", 11.0, 107.2, 50_000, true);
+        // Only reachable through the manager who runs it
+        depot = new Port("depot", "Depot", -33.9, 151.2, 20_000, false);
+
+        stored = new Container("c-1", 12_000, Container.ContainerType.DRY_STORAGE);
+        onTruck = new Container("c-2", 8_500.25, Container.ContainerType.OPEN_TOP);
+        onShip = new Container("c-3", 20_000, Container.ContainerType.LIQUID);
+        unplaced = new Container("c-4", 3_000, Container.ContainerType.OPEN_SIDE);
+        oddlyNamed = new Container("box-007", 4_200, Container.ContainerType.REFRIGERATED);
+
+        ship = new Ship("sh-1", "Aurora", 50_000, 80_000);
+        truck = new Truck("tr-1", "Hauler", 400, 20_000, Truck.TruckType.BASIC);
+        idle = new Ship("sh-2", "Laid Up", 30_000, 40_000);
+
+        harbour.addContainer(stored);
+        harbour.addContainer(oddlyNamed);
+        truck.setCurrentPort(harbour);
+        truck.addContainer(onTruck);
+        ship.setCurrentPort(inland);
+        ship.addContainer(onShip);
+        ship.refuel(1_234.5);
+
+        underway = new Trip(ship, DAY, null, inland, harbour, Trip.TripStatus.IN_PROGRESS);
+        inland.addTrip(underway);
+        completed = new Trip(truck, DAY.minusDays(3), DAY.minusDays(2), inland, harbour,
+                Trip.TripStatus.COMPLETED);
+        completed.restoreFuelUsed(87.25);
+        inland.addTrip(completed);
+        inland.completeTrip(completed);
+        harbour.addTrip(completed);
+        harbour.completeTrip(completed);
+
+        List<User> users = List.of(new SystemAdmin("admin", "admin123"),
+                new PortManager("manager", "secret", depot));
+        store = new DataStore(users, List.of(harbour, inland),
+                List.of(ship, truck, idle),
+                List.of(stored, onTruck, onShip, unplaced, oddlyNamed),
+                List.of(underway, completed),
+                List.of(new FuelRollup.MoveFuel(DAY, null, "p-1", 12.5),
+                        new FuelRollup.MoveFuel(DAY.plusDays(1), Truck.TruckType.REEFER, "closed", 3.25)));
+    }
+
+    @Test
+    void roundTripsPorts() {
+        DataStore copy = DataStore.decode(store.encode());
+
+        assertEquals(2, copy.getPorts().size());
+        assertPort(harbour, copy.getPorts().get(0));
+        assertPort(inland, copy.getPorts().get(1));
+    }
+
+    @Test
+    void roundTripsVehicles() {
+        DataStore copy = DataStore.decode(store.encode());
+
+        assertEquals(3, copy.getVehicles().size());
+        Vehicle decodedShip = copy.getVehicles().get(0);
+        assertInstanceOf(Ship.class, decodedShip);
+        assertVehicle(ship, decodedShip);
+        Vehicle decodedTruck = copy.getVehicles().get(1);
+        assertInstanceOf(Truck.class, decodedTruck);
+        assertEquals(Truck.TruckType.BASIC, ((Truck) decodedTruck).getType());
+        assertVehicle(truck, decodedTruck);
+        assertNull(copy.getVehicles().get(2).getCurrentPort());
+    }
+
+    @Test
+    void roundTripsUsers() {
+        DataStore copy = DataStore.decode(store.encode());
+
+        assertEquals(2, copy.getUsers().size());
+        User admin = copy.getUsers().get(0);
+        assertInstanceOf(SystemAdmin.class, admin);
+        assertEquals("admin", admin.getUsername());
+        assertTrue(admin.authenticate("admin123"));
+        User manager = copy.getUsers().get(1);
+        assertInstanceOf(PortManager.class, manager);
+        assertEquals("manager", manager.getUsername());
+        assertTrue(manager.authenticate("secret"));
+        assertPort(depot, ((PortManager) manager).getManagedPort());
+    }
+
+    @Test
+    void roundTripsContainers() {
+        DataStore copy = DataStore.decode(store.encode());
+
+        List<Container> containers = copy.getContainers();
+        assertEquals(5, containers.size());
+        List<Container> originals = List.of(stored, onTruck, onShip, unplaced, oddlyNamed);
+        for (int i = 0; i < originals.size(); i++) {
+            assertEquals(originals.get(i).getId(), containers.get(i).getId());
+            assertEquals(originals.get(i).getWeight(), containers.get(i).getWeight());
+            assertEquals(originals.get(i).getType(), containers.get(i).getType());
+        }
+    }
+
+    @Test
+    void roundTripsTrips() {
+        DataStore copy = DataStore.decode(store.encode());
+
+        Trip decodedUnderway = copy.getTrips().get(0);
+        assertEquals(DAY, decodedUnderway.getDepartureDate());
+        assertNull(decodedUnderway.getArrivalDate());
+        assertEquals(Trip.TripStatus.IN_PROGRESS, decodedUnderway.getStatus());
+        Trip decodedCompleted = copy.getTrips().get(1);
+        assertEquals(DAY.minusDays(3), decodedCompleted.getDepartureDate());
+        assertEquals(DAY.minusDays(2), decodedCompleted.getArrivalDate());
+        assertEquals(Trip.TripStatus.COMPLETED, decodedCompleted.getStatus());
+        assertEquals(87.25, decodedCompleted.getFuelUsed());
+    }
+
+    @Test
+    void roundTripsMoveFuel() {
+        DataStore copy = DataStore.decode(store.encode());
+
+        List<FuelRollup.MoveFuel> moveFuels = copy.getMoveFuels();
+        assertEquals(2, moveFuels.size());
+        assertEquals(DAY, moveFuels.get(0).getDate());
+        assertNull(moveFuels.get(0).getTruckType());
+        assertEquals("p-1", moveFuels.get(0).getPortId());
+        assertEquals(12.5, moveFuels.get(0).getFuel());
+        assertEquals(Truck.TruckType.REEFER, moveFuels.get(1).getTruckType());
+        // Kept by ID, so moves from a port that has since been removed still count
+        assertEquals("closed", moveFuels.get(1).getPortId());
+    }
+
+    @Test
+    void relinksReferencesToOneSharedGraph() {
+        DataStore copy = DataStore.decode(store.encode());
+        Port decodedHarbour = copy.getPorts().get(0);
+        Port decodedInland = copy.getPorts().get(1);
+        Vehicle decodedShip = copy.getVehicles().get(0);
+        Vehicle decodedTruck = copy.getVehicles().get(1);
+        List<Container> containers = copy.getContainers();
+        Trip decodedUnderway = copy.getTrips().get(0);
+        Trip decodedCompleted = copy.getTrips().get(1);
+
+        assertSame(decodedInland, decodedShip.getCurrentPort());
+        assertSame(decodedHarbour, decodedTruck.getCurrentPort());
+        assertTrue(decodedHarbour.hasVehicle(decodedTruck));
+        assertTrue(decodedInland.hasVehicle(decodedShip));
+
+        assertSame(decodedHarbour, containers.get(0).getStoringPort());
+        assertSame(decodedTruck, containers.get(1).getCarryingVehicle());
+        assertSame(decodedShip, containers.get(2).getCarryingVehicle());
+        assertFalse(containers.get(3).isPlaced());
+        assertSame(decodedHarbour, containers.get(4).getStoringPort());
+
+        assertSame(decodedShip, decodedUnderway.getVehicle());
+        assertSame(decodedInland, decodedUnderway.getDeparturePort());
+        assertSame(decodedHarbour, decodedUnderway.getArrivalPort());
+        assertSame(decodedTruck, decodedCompleted.getVehicle());
+        assertEquals(List.of(decodedUnderway), decodedInland.getCurrentTrafficView());
+        // One trip object, in the recent traffic of both of its ports
+        assertSame(decodedCompleted, decodedInland.getPastTrafficView().get(0));
+        assertSame(decodedCompleted, decodedHarbour.getPastTrafficView().get(0));
+    }
+
+    @Test
+    void decodesIndependentCopies() {
+        DataStore copy = DataStore.decode(store.encode());
+
+        copy.getPorts().get(0).removeContainer(copy.getContainers().get(0));
+        assertSame(harbour, stored.getStoringPort());
+        assertEquals(2, harbour.getContainerCount());
+    }
+
+    @Test
+    void storesEntitiesOnlyReachableThroughReferences() {
+        Container loose = new Container("c-9", 1_500, Container.ContainerType.DRY_STORAGE);
+        Truck parked = new Truck("tr-9", "Parked", 300, 10_000, Truck.TruckType.BASIC);
+        parked.setCurrentPort(depot);
+        parked.addContainer(loose);
+        DataStore partial = new DataStore(List.of(new PortManager("manager", "secret", depot)),
+                List.of(), List.of(), List.of(), List.of());
+
+        DataStore copy = DataStore.decode(partial.encode());
+
+        Port decodedDepot = ((PortManager) copy.getUsers().get(0)).getManagedPort();
+        Vehicle decodedParked = decodedDepot.findVehicle("tr-9");
+        assertNotNull(decodedParked);
+        assertSame(decodedDepot, decodedParked.getCurrentPort());
+        assertEquals("c-9", decodedParked.findContainer("c-9").getId());
+        assertTrue(copy.getPorts().isEmpty());
+        assertTrue(copy.getVehicles().isEmpty());
+    }
+
+    @Test
+    void writesTheSameBytesAfterARoundTrip() {
+        byte[] encoded = store.encode();
+
+        assertArrayEquals(encoded, DataStore.decode(encoded).encode());
+    }
+
+    @Test
+    void readsVersion2() throws IOException {
+        DataStore legacy = DataStore.read(legacyStore(2));
+
+        assertLegacyStore(legacy);
+    }
+
+    @Test
+    void readsVersion1() throws IOException {
+        DataStore legacy = DataStore.read(legacyStore(1));
+
+        assertLegacyStore(legacy);
+    }
+
+    @Test
+    void rejectsOtherFiles() {
+        assertThrows(IOException.class, () -> DataStore.read(stream(out -> out.writeInt(0x12345678))));
+        assertThrows(IOException.class, () -> DataStore.read(stream(out -> {
+            out.writeInt(0x504D5344);
+            out.writeInt(5);
+        })));
+    }
+
+    @Test
+    void rejectsDanglingReferences() {
+        assertThrows(IOException.class, () -> DataStore.read(stream(out -> {
+            LegacyWriter writer = new LegacyWriter(out, 2);
+            writer.count(0); // containers
+            writer.count(0); // ports
+            writer.count(1); // vehicles
+            out.writeByte(0);
+            out.writeUTF("sh-1");
+            out.writeUTF("Aurora");
+            out.writeDouble(0);
+            out.writeDouble(1_000);
+            out.writeInt(1_000);
+            writer.reference(5); // no such port
+        })));
+    }
+
+    private static void assertPort(Port expected, Port actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getLatitude(), actual.getLatitude());
+        assertEquals(expected.getLongitude(), actual.getLongitude());
+        assertEquals(expected.getStoringCapacity(), actual.getStoringCapacity());
+        assertEquals(expected.hasLandingAbility(), actual.hasLandingAbility());
+        assertEquals(expected.getContainerCount(), actual.getContainerCount());
+        assertEquals(expected.getTotalContainerWeight(), actual.getTotalContainerWeight());
+        assertEquals(expected.getVehicleCount(), actual.getVehicleCount());
+    }
+
+    private static void assertVehicle(Vehicle expected, Vehicle actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getCurrentFuel(), actual.getCurrentFuel());
+        assertEquals(expected.getFuelCapacity(), actual.getFuelCapacity());
+        assertEquals(expected.getCarryingCapacity(), actual.getCarryingCapacity());
+        assertEquals(expected.getCurrentPort().getId(), actual.getCurrentPort().getId());
+        assertEquals(expected.getContainerCount(), actual.getContainerCount());
+        assertEquals(expected.getTotalContainerWeight(), actual.getTotalContainerWeight());
+    }
+
+    /**
+     * Writes a store in an older version of the format: a reefer truck at p-1 carrying c-1, c-2 stored
+     * at p-2, a ship with no port, a trip of the truck from p-1 to p-2 (completed, so its fuel is estimated
+     * on load), an admin and a manager of p-2.
+     */
+    private static DataInputStream legacyStore(int version) throws IOException {
+        return stream(out -> {
+            LegacyWriter writer = new LegacyWriter(out, version);
+            writer.count(2);
+            out.writeUTF("c-1");
+            out.writeDouble(6_000);
+            writer.enumValue(Container.ContainerType.REFRIGERATED);
+            out.writeUTF("c-2");
+            out.writeDouble(9_000);
+            writer.enumValue(Container.ContainerType.LIQUID);
+
+            writer.count(2);
+            for (String id : new String[]{"p-1", "p-2"}) {
+                out.writeUTF(id);
+                out.writeUTF("Port " + id);
+                out.writeDouble(id.equals("p-1") ? 10.0 : 10.5);
+                out.writeDouble(106.0);
+                out.writeInt(40_000);
+                out.writeBoolean(true);
+            }
+
+            writer.count(2);
+            writer.truck(Truck.TruckType.REEFER, "tr-1", "Cold", 150, 300, 10_000, 0);
+            writer.references(0);
+            writer.ship("sh-1", "Drifter", 0, 20_000, 30_000, -1);
+            writer.references();
+
+            writer.count(1);
+            writer.reference(0);
+            writer.dates(DAY.minusDays(1), DAY);
+            writer.reference(0);
+            writer.reference(1);
+            writer.enumValue(Trip.TripStatus.COMPLETED);
+
+            writer.references(); // p-1 containers
+            writer.references(0); // p-1 vehicles
+            writer.references(); // p-1 current traffic
+            writer.references(0); // p-1 past traffic
+            writer.references(1); // p-2 containers
+            writer.references();
+            writer.references();
+            writer.references(0);
+
+            writer.count(2);
+            out.writeBoolean(false);
+            out.writeUTF("admin");
+            out.writeUTF("admin123");
+            out.writeBoolean(true);
+            out.writeUTF("manager");
+            out.writeUTF("secret");
+            writer.reference(1);
+
+            writer.references(0, 1);
+            writer.references(0, 1);
+            writer.references(0, 1);
+            writer.references(0);
+        });
+    }
+
+    private static void assertLegacyStore(DataStore legacy) {
+        Port first = legacy.getPorts().get(0);
+        Port second = legacy.getPorts().get(1);
+        assertEquals("p-1", first.getId());
+        assertEquals(40_000, second.getStoringCapacity());
+
+        Vehicle truck = legacy.getVehicles().get(0);
+        assertInstanceOf(Truck.class, truck);
+        assertEquals(Truck.TruckType.REEFER, ((Truck) truck).getType());
+        assertEquals(150, truck.getCurrentFuel());
+        assertSame(first, truck.getCurrentPort());
+        assertNull(legacy.getVehicles().get(1).getCurrentPort());
+        assertInstanceOf(Ship.class, legacy.getVehicles().get(1));
+
+        Container reefer = legacy.getContainers().get(0);
+        assertEquals(Container.ContainerType.REFRIGERATED, reefer.getType());
+        assertSame(truck, reefer.getCarryingVehicle());
+        assertSame(second, legacy.getContainers().get(1).getStoringPort());
+
+        Trip trip = legacy.getTrips().get(0);
+        assertSame(truck, trip.getVehicle());
+        assertEquals(DAY.minusDays(1), trip.getDepartureDate());
+        assertEquals(DAY, trip.getArrivalDate());
+        assertEquals(Trip.TripStatus.COMPLETED, trip.getStatus());
+        // Older files have no fuel per trip; it is estimated from the vehicle's current load
+        assertEquals(truck.calculateRequiredFuel(first, second), trip.getFuelUsed());
+        assertTrue(trip.getFuelUsed() > 0);
+        assertSame(trip, first.getPastTrafficView().get(0));
+        assertSame(trip, second.getPastTrafficView().get(0));
+
+        assertTrue(legacy.getMoveFuels().isEmpty());
+        assertInstanceOf(SystemAdmin.class, legacy.getUsers().get(0));
+        assertSame(second, ((PortManager) legacy.getUsers().get(1)).getManagedPort());
+    }
+
+    private interface Content {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    private static DataInputStream stream(Content content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            content.writeTo(out);
+        }
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    /**
+     * Writes the parts of the format that differ between versions 1 and 2. Version 1 stores counts and
+     * references as plain ints, enums by name and dates as long epoch days, the arrival behind a presence flag;
+     * version 2 stores them as in {@link DataStore.Writer}, but trips have no fuel.
+     */
+    private static final class LegacyWriter {
+        private final DataOutputStream out;
+        private final int version;
+
+        LegacyWriter(DataOutputStream out, int version) throws IOException {
+            this.out = out;
+            this.version = version;
+            out.writeInt(0x504D5344);
+            out.writeInt(version);
+        }
+
+        void count(int count) throws IOException {
+            if (version == 1) {
+                out.writeInt(count);
+            } else {
+                writeVarInt(count);
+            }
+        }
+
+        void reference(int index) throws IOException {
+            if (version == 1) {
+                out.writeInt(index);
+            } else {
+                writeVarInt(index + 1);
+            }
+        }
+
+        void references(int... indexes) throws IOException {
+            count(indexes.length);
+            for (int index : indexes) {
+                reference(index);
+            }
+        }
+
+        void enumValue(Enum<?> value) throws IOException {
+            if (version == 1) {
+                out.writeUTF(value.name());
+            } else {
+                out.writeByte(value.ordinal());
+            }
+        }
+
+        void dates(LocalDate departureDate, LocalDate arrivalDate) throws IOException {
+            if (version == 1) {
+                out.writeLong(departureDate.toEpochDay());
+                out.writeBoolean(true);
+                out.writeLong(arrivalDate.toEpochDay());
+            } else {
+                out.writeInt(Math.toIntExact(departureDate.toEpochDay()));
+                out.writeInt(Math.toIntExact(arrivalDate.toEpochDay()));
+            }
+        }
+
+        void ship(String id, String name, double currentFuel, double fuelCapacity, int carryingCapacity,
+                  int currentPort) throws IOException {
+            out.writeByte(0);
+            vehicle(id, name, currentFuel, fuelCapacity, carryingCapacity);
+            reference(currentPort);
+        }
+
+        void truck(Truck.TruckType type, String id, String name, double currentFuel, double fuelCapacity,
+                   int carryingCapacity, int currentPort) throws IOException {
+            out.writeByte(version == 1 ? 1 : type.ordinal() + 1);
+            vehicle(id, name, currentFuel, fuelCapacity, carryingCapacity);
+            if (version == 1) {
+                out.writeUTF(type.name());
+            }
+            reference(currentPort);
+        }
+
+        private void vehicle(String id, String name, double currentFuel, double fuelCapacity,
+                             int carryingCapacity) throws IOException {
+            out.writeUTF(id);
+            out.writeUTF(name);
+            out.writeDouble(currentFuel);
+            out.writeDouble(fuelCapacity);
+            out.writeInt(carryingCapacity);
+        }
+
+        private void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.utils;
+
+import com.models.Port;
+import com.models.Ship;
+import com.models.Trip;
+import com.models.Truck;
+import com.models.Vehicle;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The days, vehicle kinds and ports that trips and moves are counted under, and the move totals that the
+ * data store saves because no trip is left to rebuild them from.
+ */
+class FuelRollupTest {
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 14);
+
+    private Port harbour;
+    private Port inland;
+    private Ship ship;
+    private Truck truck;
+    private FuelRollup rollup;
+
+    @BeforeEach
+    void setUp() {
+        harbour = new Port("p-1", "Harbour", 10.5, 106.7, 100_000, true);
+        inland = new Port("p-2", "Inland", 11.0, 107.2, 50_000, true);
+        ship = new Ship("sh-1", "Aurora", 50_000, 80_000);
+        truck = new Truck("tr-1", "Hauler", 400, 20_000, Truck.TruckType.TANKER);
+        rollup = new FuelRollup();
+    }
+
+    @Test
+    void countsATripOnItsDepartureAndArrivalDays() {
+        rollup.add(completed(ship, DAY, DAY.plusDays(2), harbour, 40));
+
+        assertEquals(40, rollup.getFuel(DAY));
+        assertEquals(0, rollup.getFuel(DAY.plusDays(1)));
+        assertEquals(40, rollup.getFuel(DAY.plusDays(2)));
+        assertEquals(40, rollup.getShipFuel(DAY.plusDays(2)));
+        // Both days credit the port the trip left from
+        assertEquals(Map.of("p-1", 40.0), rollup.getFuelByPort(DAY.plusDays(2)));
+    }
+
+    @Test
+    void countsASameDayTripOnce() {
+        rollup.add(completed(truck, DAY, DAY, inland, 7.5));
+
+        assertEquals(7.5, rollup.getFuel(DAY));
+        assertEquals(7.5, rollup.getTruckFuel(DAY, Truck.TruckType.TANKER));
+        assertEquals(0, rollup.getTruckFuel(DAY, Truck.TruckType.BASIC));
+    }
+
+    @Test
+    void ignoresTripsThatHaveNotCompleted() {
+        rollup.add(new Trip(ship, DAY, null, harbour, inland, Trip.TripStatus.IN_PROGRESS));
+
+        assertEquals(0, rollup.getFuel(DAY));
+    }
+
+    @Test
+    void removesATripFromBothDays() {
+        Trip trip = completed(ship, DAY, DAY.plusDays(1), harbour, 40);
+        rollup.add(trip);
+        rollup.add(completed(truck, DAY, DAY, inland, 5));
+
+        rollup.remove(trip);
+
+        assertEquals(5, rollup.getFuel(DAY));
+        assertEquals(0, rollup.getFuel(DAY.plusDays(1)));
+        assertEquals(Map.of("p-2", 5.0), rollup.getFuelByPort(DAY));
+        assertTrue(rollup.getFuelByPort(DAY.plusDays(1)).isEmpty());
+    }
+
+    @Test
+    void addsMovesWithoutTrips() {
+        rollup.add(completed(ship, DAY, DAY, harbour, 40));
+        rollup.addMove(truck, inland, DAY, 2.5);
+        rollup.addMove(truck, inland, DAY, 1.5);
+
+        assertEquals(44, rollup.getFuel(DAY));
+        assertEquals(4, rollup.getTruckFuel(DAY, Truck.TruckType.TANKER));
+        assertEquals(Map.of("p-1", 40.0, "p-2", 4.0), rollup.getFuelByPort(DAY));
+
+        List<FuelRollup.MoveFuel> moveFuels = rollup.getMoveFuels();
+        assertEquals(1, moveFuels.size());
+        assertEquals(DAY, moveFuels.get(0).getDate());
+        assertEquals(Truck.TruckType.TANKER, moveFuels.get(0).getTruckType());
+        assertEquals("p-2", moveFuels.get(0).getPortId());
+        assertEquals(4, moveFuels.get(0).getFuel());
+    }
+
+    @Test
+    void rebuildsMovesFromTheirSavedTotals() {
+        Trip trip = completed(ship, DAY, DAY.plusDays(1), harbour, 40);
+        rollup.add(trip);
+        rollup.addMove(ship, harbour, DAY, 10);
+        rollup.addMove(truck, inland, DAY.plusDays(1), 3);
+
+        FuelRollup reloaded = new FuelRollup();
+        reloaded.rebuild(List.of(trip), rollup.getMoveFuels());
+
+        for (LocalDate date : List.of(DAY, DAY.plusDays(1))) {
+            assertEquals(rollup.getFuel(date), reloaded.getFuel(date));
+            assertEquals(rollup.getShipFuel(date), reloaded.getShipFuel(date));
+            assertEquals(rollup.getFuelByPort(date), reloaded.getFuelByPort(date));
+        }
+        assertEquals(50, reloaded.getFuel(DAY));
+        assertEquals(43, reloaded.getFuel(DAY.plusDays(1)));
+    }
+
+    private Trip completed(Vehicle vehicle, LocalDate departure, LocalDate arrival, Port from,
+                           double fuel) {
+        Trip trip = new Trip(vehicle, departure, arrival, from, from == harbour ? inland : harbour,
+                Trip.TripStatus.COMPLETED);
+        trip.restoreFuelUsed(fuel);
+        return trip;
+    }
+}
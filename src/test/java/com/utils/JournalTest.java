@@ -0,0 +1,209 @@
+package com.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Recovery of the journal on open: torn and corrupt tails, checkpoints, and the sequence numbers that
+ * decide which records a replay applies. The journal lives in data/ under the test working directory.
+ */
+class JournalTest {
+    private static final String FILE_NAME = "journal-test.log";
+
+    private final Path journalPath = Paths.get(FileHandler.DATA_DIRECTORY, FILE_NAME);
+    private final Path checkpointPath = Paths.get(FileHandler.DATA_DIRECTORY, FILE_NAME + ".checkpoint");
+    private Journal journal;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        deleteFiles();
+        journal = open();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        journal.close();
+        deleteFiles();
+    }
+
+    @Test
+    void replaysRecordsInOrder() {
+        journal.append(JournalEntry.Operation.ADD_CONTAINER, "c-1", "1200.0", "DRY_STORAGE", "p-1");
+        journal.append(JournalEntry.Operation.REMOVE_CONTAINER, "c-1", null);
+
+        List<JournalEntry> entries = reopen();
+
+        assertEquals(2, entries.size());
+        assertEquals(JournalEntry.Operation.ADD_CONTAINER, entries.get(0).getOperation());
+        assertEquals("p-1", entries.get(0).getArg(3));
+        assertEquals(JournalEntry.Operation.REMOVE_CONTAINER, entries.get(1).getOperation());
+        // Null arguments come back as empty strings
+        assertEquals("", entries.get(1).getArg(1));
+        assertEquals(2, journal.getRecordCount());
+    }
+
+    @Test
+    void truncatesATornTail() throws IOException {
+        appendThree();
+        journal.close();
+        long validLength = Files.size(journalPath);
+        // A record whose header made it to disk but whose payload did not
+        appendBytes(new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 0, 0});
+
+        journal = open();
+
+        assertEquals(validLength, Files.size(journalPath));
+        assertEquals(List.of(1L, 2L, 3L), sequences(replay()));
+        assertEquals(4, journal.append(JournalEntry.Operation.REFUEL_VEHICLE, "sh-1", "10.0"));
+        assertEquals(List.of(1L, 2L, 3L, 4L), sequences(reopen()));
+    }
+
+    @Test
+    void truncatesARecordWithABadChecksum() throws IOException {
+        journal.append(JournalEntry.Operation.ADD_PORT, "p-1");
+        reopenWithoutReplay();
+        long firstLength = Files.size(journalPath);
+        journal.append(JournalEntry.Operation.ADD_PORT, "p-2");
+        reopenWithoutReplay();
+        long secondLength = Files.size(journalPath);
+        journal.append(JournalEntry.Operation.ADD_PORT, "p-3");
+        journal.close();
+        // Change the last byte of p-2's payload; p-3 after it is intact but is dropped with it
+        try (FileChannel file = FileChannel.open(journalPath, StandardOpenOption.WRITE)) {
+            file.write(ByteBuffer.wrap(new byte[]{'x'}), secondLength - 1);
+        }
+
+        journal = open();
+
+        assertEquals(firstLength, Files.size(journalPath));
+        List<JournalEntry> entries = replay();
+        assertEquals(1, entries.size());
+        assertEquals("p-1", entries.get(0).getArg(0));
+        assertEquals(2, journal.append(JournalEntry.Operation.ADD_PORT, "p-2"));
+    }
+
+    @Test
+    void checkpointEmptiesTheJournal() throws IOException {
+        appendThree();
+
+        journal.checkpoint();
+
+        assertEquals(0, Files.size(journalPath));
+        assertEquals(0, journal.getRecordCount());
+        assertEquals("3", Files.readString(checkpointPath, StandardCharsets.UTF_8));
+        assertTrue(reopen().isEmpty());
+    }
+
+    @Test
+    void replaysOnlyRecordsAfterTheCheckpoint() {
+        appendThree();
+        journal.checkpoint();
+        journal.append(JournalEntry.Operation.MOVE_VEHICLE, "tr-1", "p-2", "2024-03-14");
+        journal.append(JournalEntry.Operation.REFUEL_VEHICLE, "tr-1", "25.0");
+
+        List<JournalEntry> entries = reopen();
+
+        assertEquals(List.of(4L, 5L), sequences(entries));
+        assertEquals(JournalEntry.Operation.MOVE_VEHICLE, entries.get(0).getOperation());
+        assertEquals("2024-03-14", entries.get(0).getArg(2));
+        assertEquals(2, journal.getRecordCount());
+    }
+
+    @Test
+    void skipsRecordsCoveredByACheckpointThatWasNotTruncated() throws IOException {
+        appendThree();
+        journal.close();
+        // A crash after the checkpoint was written but before the journal was emptied
+        Files.writeString(checkpointPath, "2", StandardCharsets.UTF_8);
+
+        journal = open();
+
+        assertEquals(List.of(3L), sequences(replay()));
+        assertEquals(1, journal.getRecordCount());
+        assertEquals(4, journal.append(JournalEntry.Operation.ADD_PORT, "p-4"));
+    }
+
+    @Test
+    void continuesSequenceNumbersAcrossCheckpointsAndReopens() {
+        assertEquals(1, journal.append(JournalEntry.Operation.ADD_PORT, "p-1"));
+        assertEquals(2, journal.append(JournalEntry.Operation.ADD_PORT, "p-2"));
+        journal.checkpoint();
+        reopen();
+
+        // The journal is empty, so the next number comes from the checkpoint
+        assertEquals(3, journal.append(JournalEntry.Operation.ADD_PORT, "p-3"));
+        journal.appendAll(List.of(
+                new JournalEntry(0, JournalEntry.Operation.ADD_PORT, "p-4"),
+                new JournalEntry(0, JournalEntry.Operation.ADD_PORT, "p-5")));
+        assertEquals(6, journal.append(JournalEntry.Operation.ADD_PORT, "p-6"));
+
+        List<JournalEntry> entries = reopen();
+
+        assertEquals(List.of(3L, 4L, 5L, 6L), sequences(entries));
+        assertEquals("p-5", entries.get(2).getArg(0));
+    }
+
+    @Test
+    void replaysOnlyOnce() {
+        appendThree();
+        reopenWithoutReplay();
+
+        assertEquals(3, replay().size());
+        assertTrue(replay().isEmpty());
+    }
+
+    private void appendThree() {
+        journal.append(JournalEntry.Operation.ADD_PORT, "p-1");
+        journal.append(JournalEntry.Operation.ADD_VEHICLE, "sh-1");
+        journal.append(JournalEntry.Operation.ADD_CONTAINER, "c-1");
+    }
+
+    private Journal open() {
+        return new Journal(FILE_NAME, Journal.SyncPolicy.ALWAYS, 1);
+    }
+
+    private void reopenWithoutReplay() {
+        journal.close();
+        journal = open();
+    }
+
+    /**
+     * Closes the journal, opens it again and replays it.
+     */
+    private List<JournalEntry> reopen() {
+        reopenWithoutReplay();
+        return replay();
+    }
+
+    private List<JournalEntry> replay() {
+        List<JournalEntry> entries = new ArrayList<>();
+        journal.replay(entries::add);
+        return entries;
+    }
+
+    private static List<Long> sequences(List<JournalEntry> entries) {
+        return entries.stream().map(JournalEntry::getSequence).toList();
+    }
+
+    private void appendBytes(byte[] bytes) throws IOException {
+        Files.write(journalPath, bytes, StandardOpenOption.APPEND);
+    }
+
+    private void deleteFiles() throws IOException {
+        Files.deleteIfExists(journalPath);
+        Files.deleteIfExists(checkpointPath);
+    }
+}